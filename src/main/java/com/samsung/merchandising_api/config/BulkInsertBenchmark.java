@@ -0,0 +1,97 @@
+package com.samsung.merchandising_api.config;
+
+import com.samsung.merchandising_api.model.Store;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk import throughput, before / after JDBC batching (app.benchmark.bulk-insert.enabled=true).
+ * <p>
+ * Inserts {@code app.benchmark.bulk-insert.rows} stores twice, each run in a transaction that is
+ * rolled back, and logs rows/s:
+ * <ul>
+ *   <li>row per round trip: batch size 1 and a flush per row, which is what IDENTITY ids forced
+ *       (Hibernate must run each INSERT to learn the id);</li>
+ *   <li>batched: the configured hibernate.jdbc.batch_size, flushed every batch as saveAll does.</li>
+ * </ul>
+ * Both runs draw ids from the pooled sequence, so the difference is the INSERT round trips alone.
+ * Run against a disposable or idle database: sequences advance even though the rows are rolled back.
+ */
+@Component
+@ConditionalOnProperty(name = "app.benchmark.bulk-insert.enabled", havingValue = "true")
+public class BulkInsertBenchmark implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInsertBenchmark.class);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int rows;
+    private final int batchSize;
+
+    public BulkInsertBenchmark(EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.benchmark.bulk-insert.rows:5000}") int rows,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rows = rows;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // Warm-up: connection pool, statement cache, JIT
+        insert(Math.min(rows, 500), 1);
+        insert(Math.min(rows, 500), batchSize);
+
+        long before = insert(rows, 1);
+        long after = insert(rows, batchSize);
+        log.info("Bulk insert of {} stores: row per round trip {} ms ({} rows/s), batched by {} {} ms ({} rows/s), x{}",
+                rows, before / 1_000_000, rowsPerSecond(before), batchSize, after / 1_000_000, rowsPerSecond(after),
+                String.format("%.1f", (double) before / Math.max(after, 1)));
+    }
+
+    /** Nanoseconds to persist and flush {@code count} stores, flushing every {@code flushEvery} rows. */
+    private long insert(int count, int flushEvery) {
+        Long elapsed = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            entityManager.unwrap(Session.class).setJdbcBatchSize(flushEvery);
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                entityManager.persist(store(i));
+                if ((i + 1) % flushEvery == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            long time = System.nanoTime() - start;
+            entityManager.clear();
+            return time;
+        });
+        return elapsed != null ? elapsed : 0;
+    }
+
+    private long rowsPerSecond(long nanos) {
+        return nanos == 0 ? 0 : Math.round(rows * 1_000_000_000.0 / nanos);
+    }
+
+    private static Store store(int i) {
+        Store store = new Store();
+        store.setName("benchmark-" + i);
+        store.setType("OR");
+        store.setCity("Casablanca");
+        store.setLatitude(33.57 + (i % 100) / 1000.0);
+        store.setLongitude(-7.59 - (i % 100) / 1000.0);
+        return store;
+    }
+}
@@ -0,0 +1,124 @@
+package com.samsung.merchandising_api.config;
+
+import com.samsung.merchandising_api.dto.ProductCatalogDeltaDTO;
+import com.samsung.merchandising_api.dto.ProductDTO;
+import com.samsung.merchandising_api.service.ProductSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Product search latency (app.benchmark.product-search.enabled=true).
+ * <p>
+ * Builds a separate {@link ProductSearchIndex} over {@code app.benchmark.product-search.products}
+ * synthetic products drawn from a fixed seed (the same catalog on every run; no database access),
+ * applies 40 incremental deltas of ~100 products, then logs the build and delta times and, for each
+ * query of {@link #QUERIES}, the median, average and p99 latency over
+ * {@code app.benchmark.product-search.iterations} searches of 20 results after a warm-up. The queries
+ * cover name prefixes, substrings, SKUs, several tokens and queries without any match.
+ */
+@Component
+@ConditionalOnProperty(name = "app.benchmark.product-search.enabled", havingValue = "true")
+public class ProductSearchBenchmark implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchBenchmark.class);
+
+    private static final long SEED = 42;
+    private static final int LIMIT = 20;
+
+    private static final String[] FAMILIES = {"Galaxy A", "Galaxy S", "Galaxy Z Fold", "Galaxy Z Flip", "Galaxy Tab S",
+            "Galaxy Watch", "Galaxy Buds", "Neo QLED", "Crystal UHD", "The Frame", "Odyssey G", "Bespoke",
+            "EcoBubble", "AddWash", "WindFree", "Jet Bot", "Réfrigérateur Side by Side", "Micro-ondes Grill",
+            "Lave-vaisselle", "Barre de son"};
+    private static final String[] VARIANTS = {"", "Ultra", "Plus", "Pro", "FE", "5G", "AI", "Combi", "Inverter"};
+    private static final String[] COLORS = {"Noir", "Blanc", "Argent", "Graphite", "Lavande", "Crème", "Bleu"};
+    private static final String[] SUB_CATEGORIES = {"Smartphones", "Tablettes", "Montres", "Audio", "TV", "Moniteurs",
+            "Réfrigérateurs", "Lave-linge", "Climatiseurs", "Aspirateurs", "Micro-ondes", "Lave-vaisselle"};
+
+    static final String[] QUERIES = {"galaxy", "galaxy s", "galaxy s24 ultra", "neo qled 65", "g", "ga", "refri",
+            "réfrigérateur", "bubble", "alaxy", "ultra noir", "fold", "flip 5", "sm-a5", "sma546", "windfree blanc",
+            "tv 55", "lave", "zzz", "galaxy bespoke"};
+
+    private final int products;
+    private final int iterations;
+
+    public ProductSearchBenchmark(@Value("${app.benchmark.product-search.products:100000}") int products,
+                                  @Value("${app.benchmark.product-search.iterations:2000}") int iterations) {
+        this.products = products;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Random random = new Random(SEED);
+        List<ProductDTO> catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            catalog.add(product(i + 1, random));
+        }
+        ProductSearchIndex index = new ProductSearchIndex(null);
+        long start = System.nanoTime();
+        index.index(new ProductCatalogDeltaDTO(1L, -1L, true, catalog, List.of()));
+        long build = System.nanoTime() - start;
+
+        // Deltas are timed after as many untimed ones (JIT warm-up)
+        long[] deltas = new long[40];
+        for (int d = 0; d < deltas.length; d++) {
+            List<ProductDTO> changed = new ArrayList<>();
+            for (int n = 0; n < 100; n++) {
+                changed.add(product(1 + random.nextInt(products), random));
+            }
+            changed.add(product(products + d + 1, random));
+            start = System.nanoTime();
+            index.index(new ProductCatalogDeltaDTO(d + 2L, d + 1L, false, changed,
+                    List.of((long) 1 + random.nextInt(products))));
+            deltas[d] = System.nanoTime() - start;
+        }
+        long[] timed = Arrays.copyOfRange(deltas, deltas.length / 2, deltas.length);
+        log.info("Product search benchmark: {} products indexed in {} ms, delta of ~100 products median {} ms",
+                products, build / 1_000_000, percentile(timed, 50) / 1_000_000);
+
+        for (String query : QUERIES) {
+            for (int w = 0; w < iterations; w++) {
+                index.search(query, Set.of(), LIMIT);
+            }
+            long[] times = new long[iterations];
+            int hits = 0;
+            for (int n = 0; n < iterations; n++) {
+                start = System.nanoTime();
+                hits = index.search(query, Set.of(), LIMIT).getProducts().size();
+                times[n] = System.nanoTime() - start;
+            }
+            log.info("Product search '{}': {} hits, median {} us, avg {} us, p99 {} us", query, hits,
+                    percentile(times, 50) / 1000, Arrays.stream(times).sum() / iterations / 1000,
+                    percentile(times, 99) / 1000);
+        }
+    }
+
+    /** Product {@code id} of the synthetic catalog; a re-drawn id is an update of that product. */
+    private static ProductDTO product(long id, Random random) {
+        String family = FAMILIES[random.nextInt(FAMILIES.length)];
+        String variant = VARIANTS[random.nextInt(VARIANTS.length)];
+        String name = family + (family.startsWith("Galaxy") ? random.nextInt(30) : " " + (32 + random.nextInt(60)))
+                + (variant.isEmpty() ? "" : " " + variant) + " " + COLORS[random.nextInt(COLORS.length)];
+        String sku = "SM-" + (char) ('A' + random.nextInt(26)) + (100 + random.nextInt(900))
+                + Long.toString(id, 36).toUpperCase();
+        return new ProductDTO(id, name, null, sku, random.nextBoolean() ? "BROWN_GOODS" : "WHITE_GOODS",
+                SUB_CATEGORIES[random.nextInt(SUB_CATEGORIES.length)], 100.0 + random.nextInt(2000), null, 0);
+    }
+
+    private static long percentile(long[] values, int percent) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
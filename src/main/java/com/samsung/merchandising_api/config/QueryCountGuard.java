@@ -0,0 +1,100 @@
+package com.samsung.merchandising_api.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements Hibernate prepares for each HTTP request and logs a warning
+ * when an endpoint goes over its budget. This is the safety net for the LAZY fetch plans:
+ * an N+1 regression shows up as "GET /api/visits/user/3 ran 212 SQL statements".
+ * <p>
+ * Statements issued on other threads (async drainers, streaming exports) are not attributed
+ * to a request. JdbcTemplate statements bypass Hibernate and are not counted either.
+ */
+@Configuration
+public class QueryCountGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountGuard.class);
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    /** Number of statements run so far by the current request, or -1 outside a request. */
+    public static int currentCount() {
+        int[] counter = COUNTER.get();
+        return counter != null ? counter[0] : -1;
+    }
+
+    /** Starts counting the statements run on this thread (the request filter, tests). */
+    static void startCounting() {
+        COUNTER.set(new int[1]);
+    }
+
+    /** Stops counting on this thread and returns the number of statements run since {@link #startCounting()}. */
+    static int stopCounting() {
+        int count = currentCount();
+        COUNTER.remove();
+        return count;
+    }
+
+    static class CountingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            int[] counter = COUNTER.get();
+            if (counter != null) {
+                counter[0]++;
+            }
+            return sql;
+        }
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountInspectorCustomizer(
+            @Value("${app.query-guard.enabled:true}") boolean enabled) {
+        return properties -> {
+            if (enabled) {
+                properties.put(AvailableSettings.STATEMENT_INSPECTOR, new CountingStatementInspector());
+            }
+        };
+    }
+
+    @Bean
+    public OncePerRequestFilter queryCountFilter(
+            @Value("${app.query-guard.enabled:true}") boolean enabled,
+            @Value("${app.query-guard.max-statements-per-request:20}") int maxStatements) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain chain) throws ServletException, IOException {
+                if (!enabled) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+                startCounting();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    int count = stopCounting();
+                    if (count > maxStatements) {
+                        log.warn("{} {} ran {} SQL statements (budget {})",
+                                request.getMethod(), request.getRequestURI(), count, maxStatements);
+                    } else if (log.isDebugEnabled()) {
+                        log.debug("{} {} ran {} SQL statements", request.getMethod(), request.getRequestURI(), count);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -46,6 +46,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/visits/**").permitAll()
                 .requestMatchers("/api/assignments/**").permitAll()
                 .requestMatchers("/api/photos/**").permitAll()
+                .requestMatchers("/api/sync/**").permitAll()
+                .requestMatchers("/api/sellouts/**").permitAll()
                 .requestMatchers("/uploads/**").permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .anyRequest().authenticated()
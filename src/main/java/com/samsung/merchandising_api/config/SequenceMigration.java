@@ -0,0 +1,56 @@
+package com.samsung.merchandising_api.config;
+
+import com.samsung.merchandising_api.model.IdSequences;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Moves existing databases from IDENTITY / serial ids to the pooled sequences declared on the
+ * entities: each {@code <table>_id_seq} is set to step by {@link IdSequences#ALLOCATION_SIZE}.
+ * <p>
+ * Runs before the EntityManagerFactory, because Hibernate refuses to start when a sequence's
+ * increment differs from the mapping's allocationSize. Idempotent; on an empty database there is
+ * nothing to migrate and Hibernate creates the sequences itself. Column defaults are kept, so raw
+ * SQL inserts that rely on them still get unique ids (one per call, never inside a pooled block).
+ */
+@Configuration
+public class SequenceMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceMigration.class);
+
+    private static final String CURRENT_INCREMENT =
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor sequenceMigrationDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor(SequenceMigration.class);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        for (String table : IdSequences.TABLES) {
+            String sequence = IdSequences.sequenceOf(table);
+            List<Long> increment = jdbcTemplate.queryForList(CURRENT_INCREMENT, Long.class, sequence);
+            if (increment.isEmpty() || increment.get(0) == IdSequences.ALLOCATION_SIZE) {
+                continue;
+            }
+            // The next value lands past every id handed out so far, so the first pooled block is free
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + IdSequences.ALLOCATION_SIZE);
+            log.info("Sequence {} now steps by {} (was {})", sequence, IdSequences.ALLOCATION_SIZE, increment.get(0));
+        }
+    }
+}
@@ -1,35 +1,274 @@
 package com.samsung.merchandising_api.controller;
 
+import com.samsung.merchandising_api.dto.CacheStatsDTO;
 import com.samsung.merchandising_api.dto.DashboardSummaryDTO;
 import com.samsung.merchandising_api.model.AssignmentStatus;
+import com.samsung.merchandising_api.model.CoverageDimension;
+import com.samsung.merchandising_api.model.KpiTotals;
+import com.samsung.merchandising_api.model.ShelfShareDimension;
 import com.samsung.merchandising_api.repository.AssignmentRepository;
-import com.samsung.merchandising_api.repository.VisitRepository;
+import com.samsung.merchandising_api.service.CoverageService;
+import com.samsung.merchandising_api.service.InteractionAnalyticsService;
+import com.samsung.merchandising_api.service.KpiResponseCache;
+import com.samsung.merchandising_api.service.KpiRollupService;
+import com.samsung.merchandising_api.service.KpiService;
+import com.samsung.merchandising_api.service.LiveFeedBroadcaster;
+import com.samsung.merchandising_api.service.SalesLeaderboard;
+import com.samsung.merchandising_api.service.SelloutCube;
+import com.samsung.merchandising_api.service.ShelfShareService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/dashboard")
 @CrossOrigin(origins = "*")
 public class DashboardController {
 
-    private final VisitRepository visitRepository;
+    private final KpiService kpiService;
     private final AssignmentRepository assignmentRepository;
+    private final KpiRollupService kpiRollupService;
+    private final KpiResponseCache kpiResponseCache;
+    private final LiveFeedBroadcaster liveFeedBroadcaster;
+    private final SalesLeaderboard salesLeaderboard;
+    private final CoverageService coverageService;
+    private final ShelfShareService shelfShareService;
+    private final SelloutCube selloutCube;
+    private final InteractionAnalyticsService interactionAnalyticsService;
 
-    public DashboardController(VisitRepository visitRepository,
-                               AssignmentRepository assignmentRepository) {
-        this.visitRepository = visitRepository;
+    public DashboardController(KpiService kpiService,
+                               AssignmentRepository assignmentRepository,
+                               KpiRollupService kpiRollupService,
+                               KpiResponseCache kpiResponseCache,
+                               LiveFeedBroadcaster liveFeedBroadcaster,
+                               SalesLeaderboard salesLeaderboard,
+                               CoverageService coverageService,
+                               ShelfShareService shelfShareService,
+                               SelloutCube selloutCube,
+                               InteractionAnalyticsService interactionAnalyticsService) {
+        this.kpiService = kpiService;
         this.assignmentRepository = assignmentRepository;
+        this.kpiRollupService = kpiRollupService;
+        this.kpiResponseCache = kpiResponseCache;
+        this.liveFeedBroadcaster = liveFeedBroadcaster;
+        this.salesLeaderboard = salesLeaderboard;
+        this.coverageService = coverageService;
+        this.shelfShareService = shelfShareService;
+        this.selloutCube = selloutCube;
+        this.interactionAnalyticsService = interactionAnalyticsService;
     }
 
+    /**
+     * GET /api/dashboard/summary - KPIs globaux + avancement des affectations du jour
+     * Visit KPIs come from the running totals; the two assignment counts use idx_assignments_date_status.
+     * Cached (KpiResponseCache): dropped on every visit / sellout commit, TTL otherwise.
+     */
     @GetMapping("/summary")
     public DashboardSummaryDTO getSummary() {
-        Long totalVisits = visitRepository.countCompletedVisits();
-        Double totalSales = visitRepository.sumTotalSales();
-        Double avgShelfShare = visitRepository.avgShelfShare();
+        return kpiResponseCache.get(KpiResponseCache.DASHBOARD_SUMMARY, this::loadSummary);
+    }
+
+    /**
+     * GET /api/dashboard/cache/stats - Hits, misses, hit ratio and load times of the KPI cache
+     */
+    @GetMapping("/cache/stats")
+    public CacheStatsDTO getCacheStats() {
+        return kpiResponseCache.getStats();
+    }
+
+    /**
+     * GET /api/dashboard/live - Flux SSE (text/event-stream) pour le dashboard superviseur
+     * Starts with a "summary" event, then pushes visit-submitted, visit-status-changed and kpi-delta
+     * as they commit. Clients that fall behind are disconnected and should reconnect.
+     * 503 when this node already holds app.live-feed.max-connections connections.
+     */
+    @GetMapping(value = "/live", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> live() {
+        return liveFeedBroadcaster.subscribe("summary", getSummary())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "10")
+                        .build());
+    }
+
+    /**
+     * GET /api/dashboard/live/stats - Open SSE connections, events published, slow consumers dropped
+     */
+    @GetMapping("/live/stats")
+    public Map<String, Object> getLiveStats() {
+        return Map.of(
+                "connections", liveFeedBroadcaster.getConnectionCount(),
+                "published", liveFeedBroadcaster.getPublishedCount(),
+                "dropped", liveFeedBroadcaster.getDroppedCount());
+    }
+
+    /**
+     * GET /api/dashboard/leaderboard?period=TODAY|WEEK|MONTH&by=PROMOTER|STORE&limit=10
+     * Classement par montant de sellout, served from memory (SalesLeaderboard). limit is capped at 100.
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<?> getLeaderboard(
+            @RequestParam(defaultValue = "TODAY") String period,
+            @RequestParam(defaultValue = "PROMOTER") String by,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(salesLeaderboard.getLeaderboard(
+                    SalesLeaderboard.Period.valueOf(period.toUpperCase()),
+                    SalesLeaderboard.Dimension.valueOf(by.toUpperCase()),
+                    Math.min(limit, SalesLeaderboard.MAX_K)));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/dashboard/coverage?dimension=GLOBAL|REGION|SFOS&key=&from=2026-03-01&to=2026-04-01
+     * Couverture: magasins visités, promoteurs actifs et produits vendus distincts sur la période.
+     * Approximate (HyperLogLog, ~1.6 % standard error); each entry carries a 95 % interval. 'to' is exclusive.
+     */
+    @GetMapping("/coverage")
+    public ResponseEntity<?> getCoverage(
+            @RequestParam(defaultValue = "GLOBAL") String dimension,
+            @RequestParam(required = false) String key,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(coverageService.getCoverage(
+                    CoverageDimension.valueOf(dimension.toUpperCase()), key,
+                    from != null ? LocalDate.parse(from) : null,
+                    to != null ? LocalDate.parse(to) : null));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/dashboard/shelf-share?dimension=GLOBAL|REGION|CITY|STORE&key=&from=2026-03-01&to=2026-04-01
+     * Distribution du shelf share: p10 / p50 / p90 par magasin, ville ou région, médiane la plus faible en premier.
+     * Approximate (t-digest), merged from daily digests; 'to' is exclusive.
+     */
+    @GetMapping("/shelf-share")
+    public ResponseEntity<?> getShelfShare(
+            @RequestParam(defaultValue = "STORE") String dimension,
+            @RequestParam(required = false) String key,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            return ResponseEntity.ok(shelfShareService.getDistribution(
+                    ShelfShareDimension.valueOf(dimension.toUpperCase()), key,
+                    from != null ? LocalDate.parse(from) : null,
+                    to != null ? LocalDate.parse(to) : null));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/dashboard/sellout-cube?groupBy=CITY,PRODUCT_TYPE&from=2026-03-01&to=2026-04-01
+     *     &productType=&subCategory=&sku=&storeId=&city=&region=&limit=100
+     * Analyse sellout (quantité, montant) par type, sous-catégorie, SKU, magasin, ville, région ou jour.
+     * Served from the in-memory cube (SelloutCube); filters take comma-separated values, 'to' is exclusive.
+     */
+    @GetMapping("/sellout-cube")
+    public ResponseEntity<?> getSelloutCube(
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String productType,
+            @RequestParam(required = false) String subCategory,
+            @RequestParam(required = false) String sku,
+            @RequestParam(required = false) String storeId,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            List<SelloutCube.Dimension> dimensions = new ArrayList<>();
+            if (groupBy != null) {
+                for (String name : groupBy.split(",")) {
+                    if (!name.isBlank()) {
+                        dimensions.add(SelloutCube.Dimension.valueOf(name.trim().toUpperCase()));
+                    }
+                }
+            }
+            Map<SelloutCube.Dimension, Set<String>> filters = new EnumMap<>(SelloutCube.Dimension.class);
+            putFilter(filters, SelloutCube.Dimension.PRODUCT_TYPE, productType);
+            putFilter(filters, SelloutCube.Dimension.SUB_CATEGORY, subCategory);
+            putFilter(filters, SelloutCube.Dimension.SKU, sku);
+            putFilter(filters, SelloutCube.Dimension.STORE, storeId);
+            putFilter(filters, SelloutCube.Dimension.CITY, city);
+            putFilter(filters, SelloutCube.Dimension.REGION, region);
+            return ResponseEntity.ok(selloutCube.query(dimensions, filters,
+                    from != null ? LocalDate.parse(from) : null,
+                    to != null ? LocalDate.parse(to) : null,
+                    Math.min(limit, 10000)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/dashboard/interactions?groupBy=GENDER,COLOR&from=2026-03-01&to=2026-04-01
+     *     &storeId=&region=&productId=&gender=&color=
+     * Démographie clients (genre, couleur, produit) par magasin, région ou jour, avec la part de chaque groupe.
+     * Answered from the daily counters (interaction_daily_counts) only; 'to' is exclusive.
+     */
+    @GetMapping("/interactions")
+    public ResponseEntity<?> getInteractionBreakdown(
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String color) {
+        try {
+            List<InteractionAnalyticsService.Dimension> dimensions = new ArrayList<>();
+            if (groupBy != null) {
+                for (String name : groupBy.split(",")) {
+                    InteractionAnalyticsService.Dimension dimension = name.isBlank() ? null
+                            : InteractionAnalyticsService.Dimension.valueOf(name.trim().toUpperCase());
+                    if (dimension != null && !dimensions.contains(dimension)) {
+                        dimensions.add(dimension);
+                    }
+                }
+            }
+            return ResponseEntity.ok(interactionAnalyticsService.getBreakdown(dimensions,
+                    from != null ? LocalDate.parse(from) : null,
+                    to != null ? LocalDate.parse(to) : null,
+                    storeId, region, productId, gender, color));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    private static void putFilter(Map<SelloutCube.Dimension, Set<String>> filters,
+                                  SelloutCube.Dimension dimension, String csv) {
+        Set<String> values = SelloutCube.valuesOf(csv);
+        if (values != null) {
+            filters.put(dimension, values);
+        }
+    }
+
+    private DashboardSummaryDTO loadSummary() {
+        KpiTotals totals = kpiService.getTotals();
+        Long totalVisits = totals.getCompletedVisits();
+        Double totalSales = totals.getSalesSum();
+        Double avgShelfShare = totals.getAvgShelfShare();
 
         LocalDate today = LocalDate.now();
         long planned = assignmentRepository.countByDateAndStatus(today, AssignmentStatus.PLANNED);
@@ -37,5 +276,32 @@ public class DashboardController {
 
         return new DashboardSummaryDTO(totalVisits, totalSales, avgShelfShare, planned, done);
     }
-}
 
+    /**
+     * GET /api/dashboard/trends?granularity=DAY&groupBy=REGION&from=2026-03-01&to=2026-04-01&region=&city=&storeId=&userId=
+     * Ventes, visites COMPLETED et part de linéaire moyenne par période (HOUR, DAY, WEEK, MONTH),
+     * optionally split by REGION, CITY, STORE or PROMOTER. 'to' is exclusive.
+     * Served from the rollup tables only; see dataUpTo for freshness.
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<?> getTrends(
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(defaultValue = "NONE") String groupBy,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) Long userId) {
+        try {
+            return ResponseEntity.ok(kpiRollupService.getTrends(
+                    KpiRollupService.Granularity.valueOf(granularity.toUpperCase()),
+                    KpiRollupService.Dimension.valueOf(groupBy.toUpperCase()),
+                    from != null ? LocalDate.parse(from) : null,
+                    to != null ? LocalDate.parse(to) : null,
+                    region, city, storeId, userId));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+}
@@ -2,18 +2,15 @@ package com.samsung.merchandising_api.controller;
 
 import com.samsung.merchandising_api.dto.InteractionCreateDTO;
 import com.samsung.merchandising_api.dto.InteractionDTO;
-import com.samsung.merchandising_api.model.Interaction;
-import com.samsung.merchandising_api.model.Product;
-import com.samsung.merchandising_api.model.Visit;
 import com.samsung.merchandising_api.repository.InteractionRepository;
-import com.samsung.merchandising_api.repository.ProductRepository;
 import com.samsung.merchandising_api.repository.VisitRepository;
+import com.samsung.merchandising_api.service.InteractionBuffer;
+import com.samsung.merchandising_api.service.InteractionService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,14 +23,17 @@ public class InteractionController {
 
     private final InteractionRepository interactionRepository;
     private final VisitRepository visitRepository;
-    private final ProductRepository productRepository;
+    private final InteractionService interactionService;
+    private final InteractionBuffer interactionBuffer;
 
     public InteractionController(InteractionRepository interactionRepository,
                                   VisitRepository visitRepository,
-                                  ProductRepository productRepository) {
+                                  InteractionService interactionService,
+                                  InteractionBuffer interactionBuffer) {
         this.interactionRepository = interactionRepository;
         this.visitRepository = visitRepository;
-        this.productRepository = productRepository;
+        this.interactionService = interactionService;
+        this.interactionBuffer = interactionBuffer;
     }
 
     /**
@@ -57,30 +57,28 @@ public class InteractionController {
     @PostMapping
     public ResponseEntity<?> addInteraction(@PathVariable Long visitId,
                                              @RequestBody InteractionCreateDTO dto) {
-        Visit visit = visitRepository.findById(visitId).orElse(null);
-        if (visit == null) {
+        return interactionService.addInteraction(visitId, dto)
+                .<ResponseEntity<?>>map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * POST /api/visits/{visitId}/interactions/async - Enregistrement rapide d'une interaction (tap)
+     * Buffered and written in batches within ~500 ms (InteractionBuffer). Returns 202, 404 for an
+     * unknown visit, or 429 when the buffer is full.
+     */
+    @PostMapping("/async")
+    public ResponseEntity<?> addInteractionAsync(@PathVariable Long visitId,
+                                                  @RequestBody InteractionCreateDTO dto) {
+        if (!interactionBuffer.isKnownVisit(visitId)) {
             return ResponseEntity.notFound().build();
         }
-
-        Interaction interaction = new Interaction();
-        interaction.setVisit(visit);
-        interaction.setGender(dto.getGender());
-        interaction.setColor(dto.getColor());
-        interaction.setCreatedAt(LocalDateTime.now());
-
-        if (dto.getProductId() != null) {
-            Product product = productRepository.findById(dto.getProductId()).orElse(null);
-            interaction.setProduct(product);
+        if (!interactionBuffer.offer(visitId, dto)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "2")
+                    .body(Map.of("error", "Trop d'interactions en attente, réessayez dans quelques secondes"));
         }
-
-        Interaction saved = interactionRepository.save(interaction);
-
-        // Update the interaction count on the Visit
-        Long count = interactionRepository.countByVisitId(visitId);
-        visit.setInteractionCount(count.intValue());
-        visitRepository.save(visit);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(InteractionDTO.fromEntity(saved));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("visitId", visitId, "status", "QUEUED"));
     }
 
     /**
@@ -89,34 +87,9 @@ public class InteractionController {
     @PostMapping("/batch")
     public ResponseEntity<?> addInteractionsBatch(@PathVariable Long visitId,
                                                     @RequestBody List<InteractionCreateDTO> dtos) {
-        Visit visit = visitRepository.findById(visitId).orElse(null);
-        if (visit == null) {
-            return ResponseEntity.notFound().build();
-        }
-
-        List<InteractionDTO> results = new ArrayList<>();
-        for (InteractionCreateDTO dto : dtos) {
-            Interaction interaction = new Interaction();
-            interaction.setVisit(visit);
-            interaction.setGender(dto.getGender());
-            interaction.setColor(dto.getColor());
-            interaction.setCreatedAt(LocalDateTime.now());
-
-            if (dto.getProductId() != null) {
-                Product product = productRepository.findById(dto.getProductId()).orElse(null);
-                interaction.setProduct(product);
-            }
-
-            Interaction saved = interactionRepository.save(interaction);
-            results.add(InteractionDTO.fromEntity(saved));
-        }
-
-        // Update the interaction count on the Visit
-        Long count = interactionRepository.countByVisitId(visitId);
-        visit.setInteractionCount(count.intValue());
-        visitRepository.save(visit);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(results);
+        return interactionService.addInteractions(visitId, dtos)
+                .<ResponseEntity<?>>map(results -> ResponseEntity.status(HttpStatus.CREATED).body(results))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -125,21 +98,10 @@ public class InteractionController {
     @DeleteMapping("/{interactionId}")
     public ResponseEntity<?> deleteInteraction(@PathVariable Long visitId,
                                                 @PathVariable Long interactionId) {
-        Interaction interaction = interactionRepository.findById(interactionId).orElse(null);
-        if (interaction == null || !interaction.getVisit().getId().equals(visitId)) {
+        if (!interactionService.deleteInteraction(visitId, interactionId)) {
             return ResponseEntity.notFound().build();
         }
 
-        interactionRepository.delete(interaction);
-
-        // Update the interaction count
-        Visit visit = visitRepository.findById(visitId).orElse(null);
-        if (visit != null) {
-            Long count = interactionRepository.countByVisitId(visitId);
-            visit.setInteractionCount(count.intValue());
-            visitRepository.save(visit);
-        }
-
         Map<String, String> response = new HashMap<>();
         response.put("message", "Interaction supprimée avec succès");
         return ResponseEntity.ok(response);
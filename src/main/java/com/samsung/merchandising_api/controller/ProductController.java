@@ -1,12 +1,22 @@
 package com.samsung.merchandising_api.controller;
 
 import com.samsung.merchandising_api.dto.ProductDTO;
+import com.samsung.merchandising_api.service.ProductCatalog;
+import com.samsung.merchandising_api.service.ProductImportService;
+import com.samsung.merchandising_api.service.ProductSearchIndex;
 import com.samsung.merchandising_api.service.ProductService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/products")
@@ -14,18 +24,75 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductCatalog productCatalog;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductImportService productImportService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             ProductCatalog productCatalog,
+                             ProductSearchIndex productSearchIndex,
+                             ProductImportService productImportService) {
         this.productService = productService;
+        this.productCatalog = productCatalog;
+        this.productSearchIndex = productSearchIndex;
+        this.productImportService = productImportService;
     }
 
     /**
      * GET /api/products - Retourne tous les produits
+     * Served from the serialized catalog (ProductCatalog), gzipped when the client accepts it.
+     * ETag = catalog version: If-None-Match with the current version returns 304 without a body.
+     * GET /api/products?since=42 - Produits modifiés / supprimés depuis la version 42 (ProductCatalogDeltaDTO)
      */
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        List<ProductDTO> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (since != null) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .body(productCatalog.delta(since));
+        }
+        ProductCatalog.Snapshot catalog = productCatalog.snapshot();
+        if (matches(ifNoneMatch, catalog.version())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(catalog.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? catalog.gzip() : catalog.json());
+    }
+
+    /**
+     * GET /api/products/search?q=galaxy a54&type=BROWN_GOODS&limit=20 - Recherche / autocomplétion produit
+     * Matches name, SKU and sub-category (every word, prefix or substring), best match first.
+     * Served from the in-memory index (ProductSearchIndex); 'type' takes comma-separated values.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam String q,
+                                            @RequestParam(required = false) String type,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        Set<String> types = type == null ? Set.of() : Arrays.stream(type.split(","))
+                .map(String::trim)
+                .filter(t -> !t.isEmpty())
+                .map(String::toUpperCase)
+                .collect(Collectors.toSet());
+        try {
+            return ResponseEntity.ok(productSearchIndex.search(q, types,
+                    Math.max(1, Math.min(limit, ProductSearchIndex.MAX_LIMIT))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     /**
@@ -38,6 +105,22 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * DELETE /api/products/{id} - Supprime un produit (409 s'il est encore référencé par des ventes ou interactions)
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
+        try {
+            if (!productService.deleteProduct(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(Map.of("message", "Produit supprimé avec succès"));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Produit référencé par des ventes ou interactions: " + id));
+        }
+    }
+
     /**
      * POST /api/products - Crée un nouveau produit
      */
@@ -49,9 +132,19 @@ public class ProductController {
 
     /**
      * POST /api/products/bulk - Bulk create products
+     * POST /api/products/bulk?mode=upsert - Mise à jour du catalogue par SKU: crée les nouveaux SKU, met à jour
+     * les existants (champs non nuls), rejette les éléments invalides sans bloquer le reste.
+     * Committed in chunks (app.products.bulk.chunk-size); the report has one result per item.
      */
     @PostMapping("/bulk")
-    public ResponseEntity<?> createProductsBulk(@RequestBody java.util.List<ProductDTO> dtos) {
+    public ResponseEntity<?> createProductsBulk(@RequestBody java.util.List<ProductDTO> dtos,
+                                                @RequestParam(required = false) String mode) {
+        if ("upsert".equalsIgnoreCase(mode)) {
+            return ResponseEntity.ok(productImportService.upsert(dtos));
+        }
+        if (mode != null && !mode.equalsIgnoreCase("create")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Mode inconnu: " + mode + " (create ou upsert)"));
+        }
         try {
             java.util.List<ProductDTO> created = productService.createProductsBulk(dtos);
             return ResponseEntity.status(HttpStatus.CREATED).body(created);
@@ -61,4 +154,24 @@ public class ProductController {
             }});
         }
     }
+
+    /** Weak comparison of If-None-Match against the catalog version ("*" matches any). */
+    private static boolean matches(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("\"" + version + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
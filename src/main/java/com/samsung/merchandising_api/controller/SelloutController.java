@@ -2,18 +2,13 @@ package com.samsung.merchandising_api.controller;
 
 import com.samsung.merchandising_api.dto.SelloutCreateDTO;
 import com.samsung.merchandising_api.dto.SelloutDTO;
-import com.samsung.merchandising_api.model.Product;
-import com.samsung.merchandising_api.model.Sellout;
-import com.samsung.merchandising_api.model.Visit;
-import com.samsung.merchandising_api.repository.ProductRepository;
 import com.samsung.merchandising_api.repository.SelloutRepository;
 import com.samsung.merchandising_api.repository.VisitRepository;
+import com.samsung.merchandising_api.service.SelloutService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,14 +21,14 @@ public class SelloutController {
 
     private final SelloutRepository selloutRepository;
     private final VisitRepository visitRepository;
-    private final ProductRepository productRepository;
+    private final SelloutService selloutService;
 
     public SelloutController(SelloutRepository selloutRepository,
                               VisitRepository visitRepository,
-                              ProductRepository productRepository) {
+                              SelloutService selloutService) {
         this.selloutRepository = selloutRepository;
         this.visitRepository = visitRepository;
-        this.productRepository = productRepository;
+        this.selloutService = selloutService;
     }
 
     /**
@@ -57,33 +52,15 @@ public class SelloutController {
     @PostMapping
     public ResponseEntity<?> addSellout(@PathVariable Long visitId,
                                          @RequestBody SelloutCreateDTO dto) {
-        Visit visit = visitRepository.findById(visitId).orElse(null);
-        if (visit == null) {
-            return ResponseEntity.notFound().build();
-        }
-
-        Product product = productRepository.findById(dto.getProductId()).orElse(null);
-        if (product == null) {
+        try {
+            return selloutService.addSellout(visitId, dto)
+                    .<ResponseEntity<?>>map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException ex) {
             Map<String, String> error = new HashMap<>();
-            error.put("error", "Produit non trouvé avec l'ID: " + dto.getProductId());
+            error.put("error", ex.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
-
-        Sellout sellout = new Sellout();
-        sellout.setVisit(visit);
-        sellout.setProduct(product);
-        sellout.setQuantity(dto.getQuantity() != null ? dto.getQuantity() : 0);
-        sellout.setAmount(dto.getAmount() != null ? dto.getAmount() : 0.0);
-        sellout.setCreatedAt(LocalDateTime.now());
-
-        Sellout saved = selloutRepository.save(sellout);
-
-        // Update the salesAmount on the Visit with the total sellout
-        Double totalAmount = selloutRepository.sumAmountByVisitId(visitId);
-        visit.setSalesAmount(totalAmount);
-        visitRepository.save(visit);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(SelloutDTO.fromEntity(saved));
     }
 
     /**
@@ -92,33 +69,9 @@ public class SelloutController {
     @PostMapping("/batch")
     public ResponseEntity<?> addSelloutBatch(@PathVariable Long visitId,
                                                @RequestBody List<SelloutCreateDTO> dtos) {
-        Visit visit = visitRepository.findById(visitId).orElse(null);
-        if (visit == null) {
-            return ResponseEntity.notFound().build();
-        }
-
-        List<SelloutDTO> results = new ArrayList<>();
-        for (SelloutCreateDTO dto : dtos) {
-            Product product = productRepository.findById(dto.getProductId()).orElse(null);
-            if (product == null) continue; // skip invalid products
-
-            Sellout sellout = new Sellout();
-            sellout.setVisit(visit);
-            sellout.setProduct(product);
-            sellout.setQuantity(dto.getQuantity() != null ? dto.getQuantity() : 0);
-            sellout.setAmount(dto.getAmount() != null ? dto.getAmount() : 0.0);
-            sellout.setCreatedAt(LocalDateTime.now());
-
-            Sellout saved = selloutRepository.save(sellout);
-            results.add(SelloutDTO.fromEntity(saved));
-        }
-
-        // Update the salesAmount on the Visit with the total sellout
-        Double totalAmount = selloutRepository.sumAmountByVisitId(visitId);
-        visit.setSalesAmount(totalAmount);
-        visitRepository.save(visit);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(results);
+        return selloutService.addSellouts(visitId, dtos)
+                .<ResponseEntity<?>>map(results -> ResponseEntity.status(HttpStatus.CREATED).body(results))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -127,23 +80,29 @@ public class SelloutController {
     @DeleteMapping("/{selloutId}")
     public ResponseEntity<?> deleteSellout(@PathVariable Long visitId,
                                             @PathVariable Long selloutId) {
-        Sellout sellout = selloutRepository.findById(selloutId).orElse(null);
-        if (sellout == null || !sellout.getVisit().getId().equals(visitId)) {
+        if (!selloutService.deleteSellout(visitId, selloutId)) {
             return ResponseEntity.notFound().build();
         }
 
-        selloutRepository.delete(sellout);
-
-        // Update the salesAmount on the Visit
-        Visit visit = visitRepository.findById(visitId).orElse(null);
-        if (visit != null) {
-            Double totalAmount = selloutRepository.sumAmountByVisitId(visitId);
-            visit.setSalesAmount(totalAmount);
-            visitRepository.save(visit);
-        }
-
         Map<String, String> response = new HashMap<>();
         response.put("message", "Sellout supprimé avec succès");
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * POST /api/visits/{visitId}/sellout/recompute - Recalculer le salesAmount de la visite depuis ses lignes
+     * Repair path for a total that drifted (manual SQL, restored backup); normal writes apply deltas.
+     * KPI totals pick up the corrected amount at their next reconciliation.
+     */
+    @PostMapping("/recompute")
+    public ResponseEntity<?> recomputeSalesAmount(@PathVariable Long visitId) {
+        return selloutService.recomputeSalesAmount(visitId)
+                .<ResponseEntity<?>>map(salesAmount -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("visitId", visitId);
+                    response.put("salesAmount", salesAmount);
+                    return ResponseEntity.ok(response);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
@@ -0,0 +1,59 @@
+package com.samsung.merchandising_api.controller;
+
+import com.samsung.merchandising_api.service.SelloutImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sellouts")
+@CrossOrigin(origins = "*")
+public class SelloutImportController {
+
+    private final SelloutImportService selloutImportService;
+
+    public SelloutImportController(SelloutImportService selloutImportService) {
+        this.selloutImportService = selloutImportService;
+    }
+
+    /**
+     * POST /api/sellouts/import (Content-Type: text/csv) - Import d'un fichier sellout distributeur
+     * Columns visit_id, sku, quantity, amount[, created_at]. The body is read as a stream, so file
+     * size is not limited by the multipart settings. Rejected lines are listed in the report.
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importCsv(HttpServletRequest request) {
+        try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(selloutImportService.importCsv(reader));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (IOException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Lecture du fichier impossible: " + ex.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/sellouts/import (multipart, field "file") - Même import depuis un formulaire web
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importFile(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Fichier vide"));
+        }
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            return ResponseEntity.ok(selloutImportService.importCsv(reader));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (IOException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Lecture du fichier impossible: " + ex.getMessage()));
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.samsung.merchandising_api.controller;
 
+import com.samsung.merchandising_api.dto.NearbyStoreDTO;
 import com.samsung.merchandising_api.model.Store;
 import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.service.StoreSpatialIndex;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +17,16 @@ import java.util.Locale;
 @CrossOrigin("*")
 public class StoreController {
 
+    /** Upper bounds for /nearby so a single call cannot turn into a full scan dump. */
+    private static final double MAX_NEARBY_RADIUS_METERS = 50_000;
+    private static final int MAX_NEARBY_RESULTS = 100;
+
     private final StoreRepository storeRepository;
+    private final StoreSpatialIndex storeSpatialIndex;
 
-    public StoreController(StoreRepository storeRepository) {
+    public StoreController(StoreRepository storeRepository, StoreSpatialIndex storeSpatialIndex) {
         this.storeRepository = storeRepository;
+        this.storeSpatialIndex = storeSpatialIndex;
     }
 
     /**
@@ -29,6 +37,26 @@ public class StoreController {
         return storeRepository.findAll();
     }
 
+    /**
+     * GET /api/stores/nearby?lat=..&lon=..&radius=500&k=10
+     * Returns the k closest stores within radius (meters), served from the in-memory spatial index.
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<?> getNearbyStores(@RequestParam double lat,
+                                             @RequestParam double lon,
+                                             @RequestParam(defaultValue = "500") double radius,
+                                             @RequestParam(defaultValue = "10") int k) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return ResponseEntity.badRequest().body("Invalid coordinates");
+        }
+        if (radius <= 0 || k <= 0) {
+            return ResponseEntity.badRequest().body("radius and k must be positive");
+        }
+        List<NearbyStoreDTO> stores = storeSpatialIndex.findNearby(lat, lon,
+                Math.min(radius, MAX_NEARBY_RADIUS_METERS), Math.min(k, MAX_NEARBY_RESULTS));
+        return ResponseEntity.ok(stores);
+    }
+
     /**
      * GET /api/stores/{id} - Retourne un magasin par son ID
      */
@@ -47,6 +75,7 @@ public class StoreController {
         try {
             validateStore(store);
             Store saved = storeRepository.save(store);
+            storeSpatialIndex.put(saved);
             return ResponseEntity.status(HttpStatus.CREATED).body(saved);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(ex.getMessage());
@@ -69,6 +98,7 @@ public class StoreController {
                         existing.setAddress(updatedStore.getAddress());
                         validateStore(existing);
                         Store saved = storeRepository.save(existing);
+                        storeSpatialIndex.put(saved);
                         return ResponseEntity.ok(saved);
                     } catch (IllegalArgumentException ex) {
                         return ResponseEntity.badRequest().body(ex.getMessage());
@@ -87,6 +117,7 @@ public class StoreController {
         }
         // TODO: add safety checks when visits/assignments will reference stores
         storeRepository.deleteById(id);
+        storeSpatialIndex.remove(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -110,6 +141,7 @@ public class StoreController {
         }
 
         List<Store> saved = storeRepository.saveAll(toSave);
+        storeSpatialIndex.putAll(saved);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
@@ -0,0 +1,42 @@
+package com.samsung.merchandising_api.controller;
+
+import com.samsung.merchandising_api.dto.SyncBundleDTO;
+import com.samsung.merchandising_api.dto.SyncResponseDTO;
+import com.samsung.merchandising_api.service.SyncService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * POST /api/sync - Replay an ordered bundle of offline operations (visits, interactions, sellouts)
+     * Applied in a single transaction; each operation is deduplicated by its idempotencyKey
+     * and gets its own CREATED / DUPLICATE / REJECTED result.
+     */
+    @PostMapping
+    public ResponseEntity<?> sync(@RequestBody SyncBundleDTO bundle) {
+        try {
+            SyncResponseDTO response = syncService.sync(bundle);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        } catch (DataIntegrityViolationException ex) {
+            // Same bundle being applied concurrently by a retry: nothing was committed, safe to resend
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Bundle déjà en cours de synchronisation, veuillez réessayer"));
+        }
+    }
+}
@@ -1,25 +1,33 @@
 package com.samsung.merchandising_api.controller;
 
 import com.samsung.merchandising_api.dto.*;
-import com.samsung.merchandising_api.model.Assignment;
-import com.samsung.merchandising_api.model.Store;
-import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.KpiTotals;
 import com.samsung.merchandising_api.model.Visit;
 import com.samsung.merchandising_api.model.VisitStatus;
-import com.samsung.merchandising_api.repository.AssignmentRepository;
-import com.samsung.merchandising_api.repository.InteractionRepository;
-import com.samsung.merchandising_api.repository.SelloutRepository;
-import com.samsung.merchandising_api.repository.StoreRepository;
-import com.samsung.merchandising_api.repository.UserRepository;
 import com.samsung.merchandising_api.repository.VisitRepository;
+import com.samsung.merchandising_api.service.KpiResponseCache;
+import com.samsung.merchandising_api.service.KpiService;
+import com.samsung.merchandising_api.service.StoreSpatialIndex;
+import com.samsung.merchandising_api.service.VisitExportService;
+import com.samsung.merchandising_api.service.VisitQueryService;
+import com.samsung.merchandising_api.service.VisitStatusService;
+import com.samsung.merchandising_api.service.VisitSubmissionQueue;
+import com.samsung.merchandising_api.service.VisitSubmissionService;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -28,71 +36,143 @@ import java.util.stream.Collectors;
 public class VisitController {
 
     /** Maximum allowed distance (in meters) between check-in position and store coordinates */
-    private static final double GEOFENCE_RADIUS_METERS = 500.0;
+    private static final double GEOFENCE_RADIUS_METERS = VisitSubmissionService.GEOFENCE_RADIUS_METERS;
 
     private final VisitRepository visitRepository;
-    private final StoreRepository storeRepository;
-    private final UserRepository userRepository;
-    private final AssignmentRepository assignmentRepository;
-    private final InteractionRepository interactionRepository;
-    private final SelloutRepository selloutRepository;
+    private final VisitQueryService visitQueryService;
+    private final VisitExportService visitExportService;
+    private final StoreSpatialIndex storeSpatialIndex;
+    private final VisitSubmissionService visitSubmissionService;
+    private final VisitStatusService visitStatusService;
+    private final VisitSubmissionQueue visitSubmissionQueue;
+    private final KpiService kpiService;
+    private final KpiResponseCache kpiResponseCache;
 
     public VisitController(VisitRepository visitRepository,
-                           StoreRepository storeRepository,
-                           UserRepository userRepository,
-                           AssignmentRepository assignmentRepository,
-                           InteractionRepository interactionRepository,
-                           SelloutRepository selloutRepository) {
+                           VisitQueryService visitQueryService,
+                           VisitExportService visitExportService,
+                           StoreSpatialIndex storeSpatialIndex,
+                           VisitSubmissionService visitSubmissionService,
+                           VisitStatusService visitStatusService,
+                           VisitSubmissionQueue visitSubmissionQueue,
+                           KpiService kpiService,
+                           KpiResponseCache kpiResponseCache) {
         this.visitRepository = visitRepository;
-        this.storeRepository = storeRepository;
-        this.userRepository = userRepository;
-        this.assignmentRepository = assignmentRepository;
-        this.interactionRepository = interactionRepository;
-        this.selloutRepository = selloutRepository;
+        this.visitQueryService = visitQueryService;
+        this.visitExportService = visitExportService;
+        this.storeSpatialIndex = storeSpatialIndex;
+        this.visitSubmissionService = visitSubmissionService;
+        this.visitStatusService = visitStatusService;
+        this.visitSubmissionQueue = visitSubmissionQueue;
+        this.kpiService = kpiService;
+        this.kpiResponseCache = kpiResponseCache;
     }
 
-    /**
-     * Calculate distance between two GPS coordinates using the Haversine formula.
-     * @return distance in meters
-     */
-    private double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371000; // Earth radius in meters
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
-
-    /** Enrich a VisitResponseDTO with interaction and sellout details */
-    private VisitResponseDTO enrichWithDetails(VisitResponseDTO dto) {
-        if (dto.getId() != null) {
-            dto.setInteractions(
-                interactionRepository.findByVisitId(dto.getId()).stream()
-                    .map(InteractionDTO::fromEntity)
-                    .collect(Collectors.toList())
-            );
-            dto.setSelloutItems(
-                selloutRepository.findByVisitId(dto.getId()).stream()
-                    .map(SelloutDTO::fromEntity)
-                    .collect(Collectors.toList())
-            );
+    /** Accepts either an ISO date-time (2026-03-01T08:00:00) or a plain date (2026-03-01 = start of day). */
+    private LocalDateTime parseDateTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
         }
-        return dto;
+        return value.length() <= 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
     }
 
     /**
      * GET /api/visits - Retourne toutes les visites, triées par date (plus récentes en premier)
      * Inclut les informations du magasin et de l'utilisateur
+     * Unbounded: prefer GET /api/visits/page for anything but small datasets.
      */
     @GetMapping
     public List<VisitResponseDTO> getAllVisits() {
-        return visitRepository.findAllByVisitDateDescNative().stream()
+        return visitQueryService.enrichWithDetails(visitRepository.findAllByVisitDateDesc().stream()
                 .map(VisitResponseDTO::fromVisit)
-                .map(this::enrichWithDetails)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * GET /api/visits/page?size=50&cursor=...&userId=&storeId=&status=&from=&to=
+     * Keyset-paginated listing (plus récentes en premier) returning slim projections.
+     * Pass back the returned nextCursor to get the following page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getVisitPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            VisitStatus parsedStatus = status != null ? VisitStatus.valueOf(status.toUpperCase()) : null;
+            VisitPageDTO page = visitQueryService.getVisitPage(cursor, size, userId, storeId, parsedStatus,
+                    parseDateTime(from), parseDateTime(to));
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/visits/search?from=&to=&status=&city=&region=&storeType=&userId=&sfosId=&page=0&size=50
+     * Server-side multi-criteria search (plus récentes en premier), returned as a Slice without total count.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchVisits(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String storeType,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long sfosId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        try {
+            VisitStatus parsedStatus = status != null ? VisitStatus.valueOf(status.toUpperCase()) : null;
+            Slice<VisitSummaryDTO> result = visitQueryService.search(parseDateTime(from), parseDateTime(to),
+                    parsedStatus, city, region, storeType, userId, sfosId, page, size);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/visits/export?format=ndjson|csv&userId=&storeId=&status=&from=&to=
+     * Streams matching visits (oldest first) from a server-side cursor; nothing is buffered in memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportVisits(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long storeId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        VisitExportService.Format exportFormat;
+        VisitStatus parsedStatus;
+        LocalDateTime fromDate;
+        LocalDateTime toDate;
+        try {
+            exportFormat = VisitExportService.Format.valueOf(format.toUpperCase());
+            parsedStatus = status != null ? VisitStatus.valueOf(status.toUpperCase()) : null;
+            fromDate = parseDateTime(from);
+            toDate = parseDateTime(to);
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+
+        boolean csv = exportFormat == VisitExportService.Format.CSV;
+        StreamingResponseBody body = out -> visitExportService.export(
+                out, exportFormat, userId, storeId, parsedStatus, fromDate, toDate);
+
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"visits." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
     }
 
     /**
@@ -100,7 +180,7 @@ public class VisitController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Visit> getVisitById(@PathVariable Long id) {
-        return visitRepository.findById(id)
+        return visitRepository.findDetailedById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -110,14 +190,15 @@ public class VisitController {
      * - totalVisits: Nombre de visites COMPLETED
      * - totalSales: Somme des salesAmount
      * - avgShelfShare: Moyenne des shelfShare
+     * Read from the running totals (one primary-key lookup), not recomputed over visits,
+     * and cached until the next visit / sellout commit.
      */
     @GetMapping("/stats")
     public VisitStatsDTO getVisitStats() {
-        Long totalVisits = visitRepository.countCompletedVisits();
-        Double totalSales = visitRepository.sumTotalSales();
-        Double avgShelfShare = visitRepository.avgShelfShare();
-
-        return new VisitStatsDTO(totalVisits, totalSales, avgShelfShare);
+        return kpiResponseCache.get(KpiResponseCache.VISIT_STATS, () -> {
+            KpiTotals totals = kpiService.getTotals();
+            return new VisitStatsDTO(totals.getCompletedVisits(), totals.getSalesSum(), totals.getAvgShelfShare());
+        });
     }
 
     /**
@@ -125,10 +206,9 @@ public class VisitController {
      */
     @GetMapping("/user/{userId}")
     public List<VisitResponseDTO> getVisitsByUser(@PathVariable Long userId) {
-        return visitRepository.findByUserId(userId).stream()
+        return visitQueryService.enrichWithDetails(visitRepository.findByUserId(userId).stream()
                 .map(VisitResponseDTO::fromVisit)
-                .map(this::enrichWithDetails)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     /**
@@ -144,70 +224,43 @@ public class VisitController {
      * Reçoit: { storeId, userId, shelfShare, comment, checkInLatitude, checkInLongitude }
      * Crée une visite COMPLETED avec la date actuelle.
      * Includes geofencing validation: warns if user is beyond GEOFENCE_RADIUS_METERS from the store.
+     * If storeId is omitted, the store is detected from the check-in position (closest within the geofence).
      */
     @PostMapping("/submit")
     public ResponseEntity<?> submitVisit(@RequestBody VisitSubmitDTO dto) {
-        // Trouver le Store
-        Store store = storeRepository.findById(dto.getStoreId())
-                .orElse(null);
-        if (store == null) {
+        boolean hasPosition = dto.getCheckInLatitude() != null && dto.getCheckInLongitude() != null;
+
+        // Détection automatique du magasin à partir de la position GPS
+        Long storeId = dto.getStoreId();
+        boolean storeDetected = false;
+        if (storeId == null && hasPosition) {
+            NearbyStoreDTO nearest = storeSpatialIndex.findNearest(
+                    dto.getCheckInLatitude(), dto.getCheckInLongitude(), GEOFENCE_RADIUS_METERS);
+            if (nearest != null) {
+                storeId = nearest.getStoreId();
+                storeDetected = true;
+            }
+        }
+        if (storeId == null) {
             return ResponseEntity.badRequest().build();
         }
 
-        // Trouver le User
-        User user = userRepository.findById(dto.getUserId())
-                .orElse(null);
-        if (user == null) {
+        // Magasin et User inconnus: 400
+        VisitSubmissionService.Submission submission = visitSubmissionService.submit(dto, storeId).orElse(null);
+        if (submission == null) {
             return ResponseEntity.badRequest().build();
         }
+        Visit savedVisit = submission.visit();
 
         // ── Geofencing validation ──
-        Double distanceMeters = null;
-        boolean outsideGeofence = false;
-        if (dto.getCheckInLatitude() != null && dto.getCheckInLongitude() != null
-                && store.getLatitude() != null && store.getLongitude() != null) {
-            distanceMeters = haversineDistance(
-                    dto.getCheckInLatitude(), dto.getCheckInLongitude(),
-                    store.getLatitude(), store.getLongitude());
-            outsideGeofence = distanceMeters > GEOFENCE_RADIUS_METERS;
-        }
-
-        // Créer la visite (we allow it even if outside geofence, but flag it)
-        Visit visit = new Visit();
-        visit.setStore(store);
-        visit.setUser(user);
-        LocalDateTime now = LocalDateTime.now();
-        visit.setVisitDate(now);
-        visit.setShelfShare(dto.getShelfShare());
-
-        // Append geofence warning to comment if outside radius
-        String finalComment = dto.getComment() != null ? dto.getComment() : "";
-        if (outsideGeofence && distanceMeters != null) {
-            finalComment += String.format("\n⚠️ Géorepérage: %.0f m du magasin (rayon autorisé: %.0f m)", distanceMeters, GEOFENCE_RADIUS_METERS);
+        Double distanceMeters = submission.geofence().distanceMeters();
+        boolean outsideGeofence = submission.geofence().outside();
+        NearbyStoreDTO nearestStore = null;
+        if (outsideGeofence) {
+            // Tell the client which store the promoter is actually standing in, if any
+            nearestStore = storeSpatialIndex.findNearest(
+                    dto.getCheckInLatitude(), dto.getCheckInLongitude(), GEOFENCE_RADIUS_METERS);
         }
-        visit.setComment(finalComment);
-        visit.setStatus(VisitStatus.COMPLETED);
-
-        // Lier une affectation si fournie
-        if (dto.getAssignmentId() != null) {
-            Assignment assignment = assignmentRepository.findById(dto.getAssignmentId())
-                    .orElse(null);
-            if (assignment != null) {
-                visit.setAssignment(assignment);
-                // Marquer les temps de check-in / check-out sur l'affectation
-                if (assignment.getCheckInTime() == null) {
-                    assignment.setCheckInTime(now);
-                }
-                assignment.setCheckOutTime(now);
-                assignmentRepository.save(assignment);
-            }
-        }
-
-        visit.setCheckInLatitude(dto.getCheckInLatitude());
-        visit.setCheckInLongitude(dto.getCheckInLongitude());
-
-        // Sauvegarder
-        Visit savedVisit = visitRepository.save(visit);
 
         // Build response with geofence info
         Map<String, Object> response = new HashMap<>();
@@ -217,10 +270,44 @@ public class VisitController {
             response.put("geofenceRadius", (int) GEOFENCE_RADIUS_METERS);
             response.put("outsideGeofence", outsideGeofence);
         }
+        response.put("storeDetected", storeDetected);
+        if (nearestStore != null) {
+            response.put("nearestStore", nearestStore);
+        }
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * POST /api/visits/submit/async - Same payload as /submit, persisted in the background
+     * Returns 202 with a trackingId to poll, 400 when the submission is invalid (unknown assignmentId
+     * included), or 429 when the submission queue is full.
+     */
+    @PostMapping("/submit/async")
+    public ResponseEntity<?> submitVisitAsync(@RequestBody VisitSubmitDTO dto) {
+        try {
+            return visitSubmissionQueue.enqueue(dto)
+                    .<ResponseEntity<?>>map(trackingId -> ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                            "trackingId", trackingId,
+                            "statusUrl", "/api/visits/submit/async/" + trackingId)))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                            .header(HttpHeaders.RETRY_AFTER, "5")
+                            .body(Map.of("error", "File de soumission pleine, réessayez dans quelques secondes")));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/visits/submit/async/{trackingId} - Status of an asynchronous submission
+     */
+    @GetMapping("/submit/async/{trackingId}")
+    public ResponseEntity<SubmissionStatusDTO> getSubmissionStatus(@PathVariable String trackingId) {
+        return visitSubmissionQueue.getStatus(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * POST /api/visits - Crée une nouvelle visite (rapport de Promoter)
      * Reçoit: { userId, storeId, shelfShare, comment }
@@ -228,37 +315,7 @@ public class VisitController {
      */
     @PostMapping
     public Visit createVisit(@RequestBody VisitRequest request) {
-        // Trouver le Store (lance exception si non trouvé)
-        Store store = storeRepository.findById(request.getStoreId())
-                .orElseThrow(() -> new NoSuchElementException("Store non trouvé avec l'ID: " + request.getStoreId()));
-
-        // Trouver le User (lance exception si non trouvé)
-        User user = userRepository.findById(request.getUserId())
-                .orElseThrow(() -> new NoSuchElementException("User non trouvé avec l'ID: " + request.getUserId()));
-
-        // Créer la visite
-        Visit visit = new Visit();
-        visit.setStore(store);
-        visit.setUser(user);
-        visit.setVisitDate(LocalDateTime.now());
-        visit.setShelfShare(request.getShelfShare());
-        visit.setComment(request.getComment());
-        visit.setStatus(VisitStatus.COMPLETED);
-
-        // Lier une affectation si fournie
-        if (request.getAssignmentId() != null) {
-            Assignment assignment = assignmentRepository.findById(request.getAssignmentId())
-                    .orElse(null);
-            if (assignment != null) {
-                visit.setAssignment(assignment);
-            }
-        }
-
-        visit.setCheckInLatitude(request.getCheckInLatitude());
-        visit.setCheckInLongitude(request.getCheckInLongitude());
-
-        // Sauvegarder et retourner
-        return visitRepository.save(visit);
+        return visitSubmissionService.create(request);
     }
 
     /**
@@ -271,24 +328,30 @@ public class VisitController {
     public ResponseEntity<Visit> updateVisitStatus(
             @PathVariable Long id,
             @RequestParam String status) {
-        
-        // Trouver la visite
-        Visit visit = visitRepository.findById(id)
-                .orElse(null);
-        
-        if (visit == null) {
-            return ResponseEntity.notFound().build();
-        }
-        
-        // Valider et mettre à jour le statut
+        VisitStatus newStatus;
         try {
-            VisitStatus newStatus = VisitStatus.valueOf(status.toUpperCase());
-            visit.setStatus(newStatus);
-            Visit updatedVisit = visitRepository.save(visit);
-            return ResponseEntity.ok(updatedVisit);
+            newStatus = VisitStatus.valueOf(status.toUpperCase());
         } catch (IllegalArgumentException e) {
             // Statut invalide
             return ResponseEntity.badRequest().build();
         }
+        return visitStatusService.updateStatus(id, newStatus)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * PATCH /api/visits/status - Valide ou rejette des visites en masse
+     * Reçoit: { status, ids: [...] } ou { status, from, to, storeId, userId }
+     * Applied with set-based UPDATEs; visits whose current status does not allow the
+     * transition are left untouched and counted in illegalTransition.
+     */
+    @PatchMapping("/status")
+    public ResponseEntity<?> updateVisitStatuses(@RequestBody VisitBulkStatusDTO request) {
+        try {
+            return ResponseEntity.ok(visitStatusService.updateStatuses(request));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
     }
 }
@@ -0,0 +1,19 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO {
+    private Long hits;
+    private Long misses;
+    private Double hitRatio;
+    private Long invalidations;
+    private Double avgLoadMillis;
+    private Double maxLoadMillis;
+    private Integer size;
+    private Long ttlMillis;
+}
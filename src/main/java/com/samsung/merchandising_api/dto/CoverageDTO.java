@@ -0,0 +1,20 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverageDTO {
+    private String dimension;
+    private LocalDate from;
+    private LocalDate to;
+    /** Relative standard error of every estimate (HyperLogLog, 4096 registers). */
+    private Double relativeStandardError;
+    private List<CoverageEntryDTO> entries;
+}
@@ -0,0 +1,18 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverageEntryDTO {
+    /** Region name or SFOS id; "*" for GLOBAL. */
+    private String key;
+    private String metric;
+    private Long estimate;
+    /** 95 % confidence interval around the estimate. */
+    private Long lowerBound;
+    private Long upperBound;
+}
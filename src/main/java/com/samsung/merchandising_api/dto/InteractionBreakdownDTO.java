@@ -0,0 +1,20 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InteractionBreakdownDTO {
+    private List<String> groupBy;
+    private LocalDate from;
+    private LocalDate to;
+    private Long total;
+    /** Sorted by count, largest first. */
+    private List<InteractionBreakdownRowDTO> rows;
+}
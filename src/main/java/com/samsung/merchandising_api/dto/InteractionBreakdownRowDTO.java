@@ -0,0 +1,20 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InteractionBreakdownRowDTO {
+    /** Group-by dimension → value (ids for PRODUCT / STORE, yyyy-MM-dd for DAY, "-" when unknown). */
+    private Map<String, String> keys;
+    /** Product / store names for the PRODUCT and STORE keys. */
+    private Map<String, String> labels;
+    private Long count;
+    /** count / total of the whole breakdown. */
+    private Double share;
+}
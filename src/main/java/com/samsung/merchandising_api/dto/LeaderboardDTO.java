@@ -0,0 +1,20 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardDTO {
+    private String period;
+    private String by;
+    private LocalDate periodStart;
+    /** Number of promoters / stores with sales in the period (ranked or not). */
+    private Integer participants;
+    private List<LeaderboardEntryDTO> entries;
+}
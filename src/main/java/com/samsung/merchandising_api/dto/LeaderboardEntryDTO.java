@@ -0,0 +1,17 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryDTO {
+    private Integer rank;
+    /** Promoter id or store id, depending on the leaderboard. */
+    private Long id;
+    private String name;
+    private Double salesAmount;
+    private Long quantity;
+}
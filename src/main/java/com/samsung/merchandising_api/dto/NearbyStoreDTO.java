@@ -0,0 +1,19 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyStoreDTO {
+    private Long storeId;
+    private String name;
+    private String type;
+    private String city;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    private Long distanceMeters;
+}
@@ -0,0 +1,20 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCatalogDeltaDTO {
+    /** Catalog version to send as ?since= next time. */
+    private Long version;
+    private Long since;
+    /** true when 'since' is unknown to the server: 'changed' is then the whole catalog and the client must replace it. */
+    private Boolean full;
+    private List<ProductDTO> changed;
+    private List<Long> removedIds;
+}
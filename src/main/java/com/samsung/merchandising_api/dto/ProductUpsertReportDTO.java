@@ -0,0 +1,21 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductUpsertReportDTO {
+    private int received;
+    private int created;
+    private int updated;
+    private int rejected;
+    private int chunks;
+    /** One result per request item, in request order. */
+    private List<ProductUpsertResultDTO> results;
+    private long tookMs;
+}
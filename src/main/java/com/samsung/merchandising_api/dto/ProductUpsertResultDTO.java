@@ -0,0 +1,24 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductUpsertResultDTO {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        REJECTED
+    }
+
+    /** Position of the item in the request (0-based). */
+    private int index;
+    private String sku;
+    private Status status;
+    private Long productId;
+    private String error;
+}
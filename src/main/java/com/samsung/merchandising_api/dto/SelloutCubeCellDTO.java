@@ -0,0 +1,17 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SelloutCubeCellDTO {
+    /** Group-by dimension → value (store id for STORE, yyyy-MM-dd for DAY). */
+    private Map<String, String> keys;
+    private Long quantity;
+    private Double amount;
+}
@@ -0,0 +1,27 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SelloutCubeDTO {
+    private List<String> groupBy;
+    private LocalDate from;
+    private LocalDate to;
+    /** Cube rows scanned (pre-aggregated history + appended writes). */
+    private Long rowsScanned;
+    private Long rowsMatched;
+    private Long totalQuantity;
+    private Double totalAmount;
+    /** Number of cells before the limit was applied. */
+    private Integer cellCount;
+    /** Sorted by amount, largest first. */
+    private List<SelloutCubeCellDTO> cells;
+    private Double tookMs;
+}
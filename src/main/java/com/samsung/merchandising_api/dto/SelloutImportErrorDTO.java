@@ -0,0 +1,14 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SelloutImportErrorDTO {
+    /** 1-based line number in the file, header included. */
+    private Long line;
+    private String reason;
+}
@@ -0,0 +1,21 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SelloutImportReportDTO {
+    private long linesRead;
+    private long imported;
+    private long rejected;
+    private int chunks;
+    /** First rejected lines (at most SelloutImportService.MAX_REPORTED_ERRORS). */
+    private List<SelloutImportErrorDTO> errors;
+    private boolean errorsTruncated;
+    private long tookMs;
+}
@@ -0,0 +1,19 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfShareDistributionDTO {
+    private String dimension;
+    private LocalDate from;
+    private LocalDate to;
+    /** Sorted by p50 ascending: the weakest stores / cities / regions first. */
+    private List<ShelfShareStatsDTO> entries;
+}
@@ -0,0 +1,19 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfShareStatsDTO {
+    /** Region, city or store id; "*" for GLOBAL. */
+    private String key;
+    /** Store name for the STORE dimension, otherwise the key. */
+    private String label;
+    private Long count;
+    private Double p10;
+    private Double p50;
+    private Double p90;
+}
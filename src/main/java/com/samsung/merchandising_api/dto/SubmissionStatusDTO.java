@@ -0,0 +1,26 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionStatusDTO {
+
+    public enum State {
+        QUEUED,
+        PERSISTED,
+        FAILED
+    }
+
+    private String trackingId;
+    private State state;
+    private Long visitId;
+    private String error;
+    private LocalDateTime receivedAt;
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,12 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class SyncBundleDTO {
+    private String deviceId;
+    private List<SyncOperationDTO> operations = new ArrayList<>();
+}
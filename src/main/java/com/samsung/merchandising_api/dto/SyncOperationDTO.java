@@ -0,0 +1,27 @@
+package com.samsung.merchandising_api.dto;
+
+import com.samsung.merchandising_api.model.SyncOperationType;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One offline operation replayed by the mobile app. Exactly one of visit / interaction / sellout
+ * is set, matching {@code type}. Interactions and sellouts point to their visit either by server
+ * id ({@code visitId}) or by the idempotency key of the VISIT operation that created it
+ * ({@code visitKey}), which may be in the same bundle or an earlier one.
+ */
+@Data
+public class SyncOperationDTO {
+    private String idempotencyKey;
+    private SyncOperationType type;
+    /** Time the action happened on the device (defaults to server time). */
+    private LocalDateTime clientTimestamp;
+
+    private Long visitId;
+    private String visitKey;
+
+    private VisitSubmitDTO visit;
+    private InteractionCreateDTO interaction;
+    private SelloutCreateDTO sellout;
+}
@@ -0,0 +1,17 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResponseDTO {
+    private int created;
+    private int duplicates;
+    private int rejected;
+    private List<SyncResultDTO> results;
+}
@@ -0,0 +1,24 @@
+package com.samsung.merchandising_api.dto;
+
+import com.samsung.merchandising_api.model.SyncOperationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncResultDTO {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        REJECTED
+    }
+
+    private String idempotencyKey;
+    private SyncOperationType type;
+    private Status status;
+    private Long entityId;
+    private String error;
+}
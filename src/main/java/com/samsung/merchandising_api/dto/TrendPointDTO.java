@@ -0,0 +1,21 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendPointDTO {
+    private LocalDateTime bucket;
+    /** Dimension value (region, city, store id, promoter id); null when not grouped. */
+    private String key;
+    private String label;
+
+    private Long completedVisits;
+    private Double totalSales;
+    private Double avgShelfShare;
+}
@@ -0,0 +1,22 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendsDTO {
+    private String granularity;
+    private String groupBy;
+    private LocalDate from;
+    private LocalDate to;
+    /** Visits changed after this instant may not be reflected yet. */
+    private LocalDateTime dataUpTo;
+    private List<TrendPointDTO> points;
+}
@@ -0,0 +1,22 @@
+package com.samsung.merchandising_api.dto;
+
+import com.samsung.merchandising_api.model.VisitStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk status change requested by a supervisor. Either {@code ids} or at least one
+ * filter (date range, store, user) must be provided.
+ */
+@Data
+public class VisitBulkStatusDTO {
+    private VisitStatus status;
+    private List<Long> ids;
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Long storeId;
+    private Long userId;
+}
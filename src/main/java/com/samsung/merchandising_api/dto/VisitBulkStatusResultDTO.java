@@ -0,0 +1,22 @@
+package com.samsung.merchandising_api.dto;
+
+import com.samsung.merchandising_api.model.VisitStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VisitBulkStatusResultDTO {
+    private VisitStatus status;
+    /** Visits matched by the ids or the filter */
+    private long matched;
+    private long updated;
+    /** Already in the target status */
+    private long unchanged;
+    /** Current status does not allow the transition (e.g. PLANNED -> VALIDATED) */
+    private long illegalTransition;
+    /** Ids that do not exist (ids mode only) */
+    private long notFound;
+}
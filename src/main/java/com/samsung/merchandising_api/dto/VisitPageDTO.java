@@ -0,0 +1,21 @@
+package com.samsung.merchandising_api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of visits. {@code nextCursor} is opaque to clients and must be
+ * sent back as-is to fetch the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VisitPageDTO {
+    private List<VisitSummaryDTO> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+}
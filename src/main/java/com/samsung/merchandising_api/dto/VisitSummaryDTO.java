@@ -0,0 +1,60 @@
+package com.samsung.merchandising_api.dto;
+
+import com.samsung.merchandising_api.model.Role;
+import com.samsung.merchandising_api.model.VisitStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slim, read-only view of a visit built directly from a JPQL constructor expression.
+ * Used by the paginated listing so no entity graph is ever loaded.
+ */
+@Data
+@NoArgsConstructor
+public class VisitSummaryDTO {
+    private Long id;
+    private LocalDateTime visitDate;
+    private VisitStatus status;
+    private Double salesAmount;
+    private Double shelfShare;
+    private Integer interactionCount;
+    private String comment;
+    private String photoUrl;
+
+    // Store information
+    private Long storeId;
+    private String storeName;
+    private String storeCity;
+
+    // User information
+    private Long userId;
+    private String userName;
+    private String userRole;
+
+    private Long assignmentId;
+
+    public VisitSummaryDTO(Long id, LocalDateTime visitDate, VisitStatus status,
+                           Double salesAmount, Double shelfShare, Integer interactionCount,
+                           String comment, String photoUrl,
+                           Long storeId, String storeName, String storeCity,
+                           Long userId, String userName, Role userRole,
+                           Long assignmentId) {
+        this.id = id;
+        this.visitDate = visitDate;
+        this.status = status;
+        this.salesAmount = salesAmount;
+        this.shelfShare = shelfShare;
+        this.interactionCount = interactionCount;
+        this.comment = comment;
+        this.photoUrl = photoUrl;
+        this.storeId = storeId;
+        this.storeName = storeName;
+        this.storeCity = storeCity;
+        this.userId = userId;
+        this.userName = userName;
+        this.userRole = userRole != null ? userRole.name() : null;
+        this.assignmentId = assignmentId;
+    }
+}
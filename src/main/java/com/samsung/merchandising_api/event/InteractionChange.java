@@ -0,0 +1,28 @@
+package com.samsung.merchandising_api.event;
+
+import com.samsung.merchandising_api.model.Interaction;
+import com.samsung.merchandising_api.model.Visit;
+
+import java.time.LocalDateTime;
+
+/**
+ * One customer interaction recorded or deleted, with the visit context (promoter, store) needed to
+ * attribute it without reloading the visit.
+ */
+public record InteractionChange(Long visitId, Long userId, Long storeId, Long productId,
+                                String gender, String color, LocalDateTime createdAt, boolean removed) {
+
+    public static InteractionChange of(Interaction interaction, boolean removed) {
+        Visit visit = interaction.getVisit();
+        return new InteractionChange(visit.getId(),
+                visit.getUser() != null ? visit.getUser().getId() : null,
+                visit.getStore() != null ? visit.getStore().getId() : null,
+                interaction.getProduct() != null ? interaction.getProduct().getId() : null,
+                interaction.getGender(), interaction.getColor(), interaction.getCreatedAt(), removed);
+    }
+
+    /** +1 when recorded, -1 when deleted. */
+    public int delta() {
+        return removed ? -1 : 1;
+    }
+}
@@ -0,0 +1,9 @@
+package com.samsung.merchandising_api.event;
+
+import java.util.List;
+
+/**
+ * Interactions were recorded on or deleted from visits. Published inside the writing transaction.
+ */
+public record InteractionsChangedEvent(List<InteractionChange> changes) {
+}
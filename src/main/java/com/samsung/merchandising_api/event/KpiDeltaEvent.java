@@ -0,0 +1,7 @@
+package com.samsung.merchandising_api.event;
+
+/**
+ * Change applied to the running KPI totals by one write. Published inside the writing transaction.
+ */
+public record KpiDeltaEvent(long completedVisits, double sales, double shelfShareSum, long shelfShareCount) {
+}
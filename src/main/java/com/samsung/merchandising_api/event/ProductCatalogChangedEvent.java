@@ -0,0 +1,8 @@
+package com.samsung.merchandising_api.event;
+
+/**
+ * Products were created, updated or deleted under catalog version {@code version}.
+ * Published inside the writing transaction.
+ */
+public record ProductCatalogChangedEvent(long version) {
+}
@@ -0,0 +1,24 @@
+package com.samsung.merchandising_api.event;
+
+import com.samsung.merchandising_api.model.VisitStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * One sellout line added or removed, with the visit context needed to attribute it
+ * (promoter, store, visit status) without reloading the visit.
+ */
+public record SelloutChange(Long selloutId, Long visitId, Long productId, Long userId, Long storeId,
+                            VisitStatus visitStatus, LocalDateTime visitDate,
+                            int quantity, double amount, LocalDateTime createdAt, boolean removed) {
+
+    /** Signed amount: negative when the line was removed. */
+    public double amountDelta() {
+        return removed ? -amount : amount;
+    }
+
+    /** Signed quantity: negative when the line was removed. */
+    public int quantityDelta() {
+        return removed ? -quantity : quantity;
+    }
+}
@@ -0,0 +1,9 @@
+package com.samsung.merchandising_api.event;
+
+import java.util.List;
+
+/**
+ * Sellout lines were added to or removed from visits. Published inside the writing transaction.
+ */
+public record SelloutChangedEvent(List<SelloutChange> changes) {
+}
@@ -0,0 +1,25 @@
+package com.samsung.merchandising_api.event;
+
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * The visit columns that read models (KPIs, live feed, analytics) care about,
+ * captured at the moment an event is published.
+ */
+public record VisitSnapshot(Long visitId, Long userId, Long storeId, LocalDateTime visitDate,
+                            VisitStatus status, Double shelfShare, Double salesAmount) {
+
+    public static VisitSnapshot of(Visit visit) {
+        return new VisitSnapshot(visit.getId(),
+                visit.getUser() != null ? visit.getUser().getId() : null,
+                visit.getStore() != null ? visit.getStore().getId() : null,
+                visit.getVisitDate(), visit.getStatus(), visit.getShelfShare(), visit.getSalesAmount());
+    }
+
+    public VisitSnapshot withStatus(VisitStatus newStatus) {
+        return new VisitSnapshot(visitId, userId, storeId, visitDate, newStatus, shelfShare, salesAmount);
+    }
+}
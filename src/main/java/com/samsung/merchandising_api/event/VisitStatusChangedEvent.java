@@ -0,0 +1,39 @@
+package com.samsung.merchandising_api.event;
+
+import com.samsung.merchandising_api.model.VisitStatus;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visits moved to {@code newStatus}. {@code moved} sums them per status they left, which is all
+ * the KPI totals need. {@code before} holds each visit as it was before the change when the visits
+ * are known one by one (single update, bulk by ids); it is empty for a bulk update by filter,
+ * which is aggregated in SQL.
+ */
+public record VisitStatusChangedEvent(List<VisitSnapshot> before, VisitStatus newStatus, List<Moved> moved) {
+
+    /** Visits that left {@code status}: count, sales and shelf share sums. */
+    public record Moved(VisitStatus status, long visits, double salesAmount, double shelfShareSum, long shelfShareCount) {
+    }
+
+    public VisitStatusChangedEvent(List<VisitSnapshot> before, VisitStatus newStatus) {
+        this(before, newStatus, totals(before));
+    }
+
+    private static List<Moved> totals(List<VisitSnapshot> before) {
+        Map<VisitStatus, Moved> byStatus = new EnumMap<>(VisitStatus.class);
+        for (VisitSnapshot visit : before) {
+            Moved moved = new Moved(visit.status(), 1,
+                    visit.salesAmount() != null ? visit.salesAmount() : 0,
+                    visit.shelfShare() != null ? visit.shelfShare() : 0,
+                    visit.shelfShare() != null ? 1 : 0);
+            byStatus.merge(visit.status(), moved, (a, b) -> new Moved(a.status(), a.visits() + b.visits(),
+                    a.salesAmount() + b.salesAmount(), a.shelfShareSum() + b.shelfShareSum(),
+                    a.shelfShareCount() + b.shelfShareCount()));
+        }
+        return new ArrayList<>(byStatus.values());
+    }
+}
@@ -0,0 +1,10 @@
+package com.samsung.merchandising_api.event;
+
+import java.util.List;
+
+/**
+ * One or more visits were created (submit, async drain, offline sync).
+ * Published inside the creating transaction.
+ */
+public record VisitSubmittedEvent(List<VisitSnapshot> visits) {
+}
@@ -1,7 +1,10 @@
 package com.samsung.merchandising_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -9,12 +12,30 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "assignments")
+@Table(name = "assignments", indexes = {
+        @Index(name = "idx_assignments_date_status", columnList = "date, status")
+})
+@NamedEntityGraph(name = Assignment.GRAPH_USER_STORE, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("store")
+})
+@NamedEntityGraph(name = Assignment.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("store"),
+        @NamedAttributeNode("tasks")
+})
 @Data
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Assignment {
 
+    /** user + store: paged listings (tasks are batch-loaded, never fetch-joined with LIMIT) */
+    public static final String GRAPH_USER_STORE = "Assignment.userStore";
+    /** user + store + tasks: single assignment mapped to AssignmentDTO */
+    public static final String GRAPH_DETAIL = "Assignment.detail";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "assignments_id_seq")
+    @SequenceGenerator(name = "assignments_id_seq", sequenceName = "assignments_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -34,15 +55,17 @@ public class Assignment {
      */
     private LocalDateTime checkOutTime;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "store_id", nullable = false)
     private Store store;
 
     @OneToMany(mappedBy = "assignment", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
+    @JsonManagedReference // Prevents infinite recursion in JSON
     private List<TaskItem> tasks = new ArrayList<>();
 }
 
@@ -0,0 +1,29 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change counter of a reference catalog sent to the mobile app. Every catalog write takes the
+ * next value under a row lock, so versions are committed in increasing order and a client that
+ * synced version N has seen every change numbered N or less. A single row keyed {@link #PRODUCTS}.
+ */
+@Entity
+@Table(name = "catalog_versions")
+@Data
+public class CatalogVersion {
+
+    public static final String PRODUCTS = "PRODUCTS";
+
+    @Id
+    @Column(length = 50)
+    private String id;
+
+    @Column(nullable = false)
+    private Long version = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
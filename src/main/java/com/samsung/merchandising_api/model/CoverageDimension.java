@@ -0,0 +1,10 @@
+package com.samsung.merchandising_api.model;
+
+/**
+ * Scope of a coverage sketch: the whole network, a promoter's region, or an SFOS team (manager id).
+ */
+public enum CoverageDimension {
+    GLOBAL,
+    REGION,
+    SFOS
+}
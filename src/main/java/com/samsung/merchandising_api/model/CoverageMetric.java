@@ -0,0 +1,10 @@
+package com.samsung.merchandising_api.model;
+
+/**
+ * What a coverage sketch counts distinct values of.
+ */
+public enum CoverageMetric {
+    STORES,
+    PROMOTERS,
+    PRODUCTS
+}
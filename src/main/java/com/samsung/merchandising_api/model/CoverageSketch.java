@@ -0,0 +1,60 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * HyperLogLog registers for one (day, dimension, key, metric). Sketches only ever grow and merge by
+ * register-wise max, so any number of days or writers can be combined without double counting.
+ */
+@Entity
+@Table(name = "coverage_sketches", indexes = {
+        @Index(name = "idx_coverage_dimension_day", columnList = "dimension, day")
+})
+@IdClass(CoverageSketch.Key.class)
+@Data
+public class CoverageSketch {
+
+    /** dimensionKey of the GLOBAL dimension. */
+    public static final String ALL = "*";
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private CoverageDimension dimension;
+
+    @Id
+    @Column(name = "dimension_key", length = 100)
+    private String dimensionKey;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private CoverageMetric metric;
+
+    @Column(nullable = false)
+    private byte[] registers;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private CoverageDimension dimension;
+        private String dimensionKey;
+        private CoverageMetric metric;
+    }
+}
@@ -0,0 +1,26 @@
+package com.samsung.merchandising_api.model;
+
+import java.util.List;
+
+/**
+ * Id sequences of the entity tables. Hibernate reserves {@link #ALLOCATION_SIZE} ids per
+ * {@code nextval} (pooled optimizer: value V covers V-49..V) so inserts can be batched.
+ * The sequences are the ones PostgreSQL created for the former serial / identity columns,
+ * re-stepped by {@code SequenceMigration}.
+ */
+public final class IdSequences {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    /** Tables whose id comes from {@code <table>_id_seq}. */
+    public static final List<String> TABLES = List.of(
+            "stores", "users", "products", "visits", "assignments",
+            "task_items", "sellouts", "interactions", "sync_operations");
+
+    private IdSequences() {
+    }
+
+    public static String sequenceOf(String table) {
+        return table + "_id_seq";
+    }
+}
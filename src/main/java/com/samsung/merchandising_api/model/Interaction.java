@@ -6,19 +6,26 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "interactions")
+@Table(name = "interactions", indexes = {
+        @Index(name = "idx_interactions_visit", columnList = "visit_id")
+})
+@NamedEntityGraph(name = Interaction.GRAPH_PRODUCT, attributeNodes = @NamedAttributeNode("product"))
 @Data
 public class Interaction {
 
+    /** product only: what InteractionDTO.fromEntity reads (the visit id comes from the FK, not a join) */
+    public static final String GRAPH_PRODUCT = "Interaction.product";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "interactions_id_seq")
+    @SequenceGenerator(name = "interactions_id_seq", sequenceName = "interactions_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "visit_id", nullable = false)
     private Visit visit;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
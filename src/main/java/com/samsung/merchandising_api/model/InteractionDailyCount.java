@@ -0,0 +1,69 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Number of interactions per (day, store, promoter region, product, gender, color), kept current by
+ * the interaction writes. Unknown values are stored as {@link #NONE} so every key column is non-null.
+ */
+@Entity
+@Table(name = "interaction_daily_counts", indexes = {
+        @Index(name = "idx_interaction_counts_day", columnList = "day")
+})
+@IdClass(InteractionDailyCount.Key.class)
+@Data
+public class InteractionDailyCount {
+
+    /** Key value for a missing region / gender / color; product id 0 means no product. */
+    public static final String NONE = "-";
+    public static final long NO_PRODUCT = 0L;
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "store_id")
+    private Long storeId;
+
+    @Id
+    @Column(length = 100)
+    private String region;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(length = 50)
+    private String gender;
+
+    @Id
+    @Column(length = 100)
+    private String color;
+
+    @Column(name = "interaction_count", nullable = false)
+    private Long interactionCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long storeId;
+        private String region;
+        private Long productId;
+        private String gender;
+        private String color;
+    }
+}
@@ -0,0 +1,72 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Daily roll-up of {@link KpiRollupHourly}: one promoter in one store for one calendar day.
+ * Recomputed from the hourly rows of the days touched by each rollup run.
+ */
+@Entity
+@Table(name = "kpi_rollup_daily", indexes = {
+        @Index(name = "idx_rollup_daily_region", columnList = "region, day"),
+        @Index(name = "idx_rollup_daily_city", columnList = "city, day")
+})
+@IdClass(KpiRollupDaily.Key.class)
+@Data
+public class KpiRollupDaily {
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "store_id")
+    private Long storeId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "store_name", length = 200)
+    private String storeName;
+
+    @Column(name = "user_name", length = 200)
+    private String userName;
+
+    @Column(length = 100)
+    private String city;
+
+    @Column(length = 100)
+    private String region;
+
+    @Column(name = "completed_visits", nullable = false)
+    private Long completedVisits;
+
+    @Column(name = "sales_sum", nullable = false)
+    private Double salesSum;
+
+    @Column(name = "shelf_share_sum", nullable = false)
+    private Double shelfShareSum;
+
+    @Column(name = "shelf_share_count", nullable = false)
+    private Long shelfShareCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long storeId;
+        private Long userId;
+    }
+}
@@ -0,0 +1,72 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * KPI totals of one promoter in one store for one hour of visit_date.
+ * Rows are written only by {@code KpiRollupService} (upserts keyed on the primary key);
+ * city / region / names are denormalized so trend queries never join back to the source tables.
+ */
+@Entity
+@Table(name = "kpi_rollup_hourly", indexes = {
+        @Index(name = "idx_rollup_hourly_region", columnList = "region, bucket_start"),
+        @Index(name = "idx_rollup_hourly_city", columnList = "city, bucket_start")
+})
+@IdClass(KpiRollupHourly.Key.class)
+@Data
+public class KpiRollupHourly {
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Column(name = "store_id")
+    private Long storeId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "store_name", length = 200)
+    private String storeName;
+
+    @Column(name = "user_name", length = 200)
+    private String userName;
+
+    @Column(length = 100)
+    private String city;
+
+    @Column(length = 100)
+    private String region;
+
+    @Column(name = "completed_visits", nullable = false)
+    private Long completedVisits;
+
+    @Column(name = "sales_sum", nullable = false)
+    private Double salesSum;
+
+    @Column(name = "shelf_share_sum", nullable = false)
+    private Double shelfShareSum;
+
+    @Column(name = "shelf_share_count", nullable = false)
+    private Long shelfShareCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private Long storeId;
+        private Long userId;
+    }
+}
@@ -0,0 +1,62 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Running KPI aggregates over COMPLETED visits, maintained by delta updates in the same
+ * transaction as each visit / sellout write and periodically reconciled from the source tables.
+ * <p>
+ * The global totals are striped over {@link #STRIPES} rows ({@link #GLOBAL}, {@code GLOBAL#1}, ...):
+ * each writer adds its delta to one stripe, so concurrent writers rarely wait on the same row lock,
+ * and readers sum the stripes.
+ */
+@Entity
+@Table(name = "kpi_totals")
+@Data
+public class KpiTotals {
+
+    public static final String GLOBAL = "GLOBAL";
+
+    public static final int STRIPES = 8;
+
+    /** Row id of stripe {@code n}; stripe 0 is the historical single {@link #GLOBAL} row. */
+    public static String stripeId(int n) {
+        return n == 0 ? GLOBAL : GLOBAL + "#" + n;
+    }
+
+    public static List<String> stripeIds() {
+        return IntStream.range(0, STRIPES).mapToObj(KpiTotals::stripeId).toList();
+    }
+
+    @Id
+    @Column(length = 50)
+    private String id;
+
+    @Column(name = "completed_visits", nullable = false)
+    private Long completedVisits = 0L;
+
+    @Column(name = "sales_sum", nullable = false)
+    private Double salesSum = 0.0;
+
+    @Column(name = "shelf_share_sum", nullable = false)
+    private Double shelfShareSum = 0.0;
+
+    /** Number of COMPLETED visits with a non-null shelf share (denominator of the average). */
+    @Column(name = "shelf_share_count", nullable = false)
+    private Long shelfShareCount = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
+    public Double getAvgShelfShare() {
+        return shelfShareCount == null || shelfShareCount == 0 ? 0.0 : shelfShareSum / shelfShareCount;
+    }
+}
@@ -1,15 +1,20 @@
 package com.samsung.merchandising_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_catalog_version", columnList = "catalog_version")
+})
 @Data
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_id_seq")
+    @SequenceGenerator(name = "products_id_seq", sequenceName = "products_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, length = 200)
@@ -36,4 +41,8 @@ public class Product {
 
     @Column
     private Integer stock = 0;
+
+    /** Catalog version of the last write to this product (ProductCatalog). */
+    @Column(name = "catalog_version")
+    private Long catalogVersion;
 }
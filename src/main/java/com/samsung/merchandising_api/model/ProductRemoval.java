@@ -0,0 +1,31 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tombstone of a deleted product, so catalog deltas can tell clients which ids to drop.
+ * Product ids come from a sequence and are never reused.
+ */
+@Entity
+@Table(name = "product_removals", indexes = {
+        @Index(name = "idx_product_removals_version", columnList = "catalog_version")
+})
+@Data
+public class ProductRemoval {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(length = 50)
+    private String sku;
+
+    @Column(name = "catalog_version", nullable = false)
+    private Long catalogVersion;
+
+    @Column(name = "removed_at")
+    private LocalDateTime removedAt;
+}
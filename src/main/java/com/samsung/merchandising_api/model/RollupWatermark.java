@@ -0,0 +1,30 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress marker of an incremental job: source rows changed after {@code watermark}
+ * have not been folded into the job's output yet.
+ */
+@Entity
+@Table(name = "rollup_watermarks")
+@Data
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime watermark;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    /** Rollup rows upserted by the last run. */
+    @Column(name = "last_run_rows")
+    private Long lastRunRows;
+}
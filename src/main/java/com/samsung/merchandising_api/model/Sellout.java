@@ -6,19 +6,27 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "sellouts")
+@Table(name = "sellouts", indexes = {
+        @Index(name = "idx_sellouts_created_at", columnList = "created_at"),
+        @Index(name = "idx_sellouts_visit", columnList = "visit_id")
+})
+@NamedEntityGraph(name = Sellout.GRAPH_PRODUCT, attributeNodes = @NamedAttributeNode("product"))
 @Data
 public class Sellout {
 
+    /** product only: what SelloutDTO.fromEntity reads (the visit id comes from the FK, not a join) */
+    public static final String GRAPH_PRODUCT = "Sellout.product";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sellouts_id_seq")
+    @SequenceGenerator(name = "sellouts_id_seq", sequenceName = "sellouts_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "visit_id", nullable = false)
     private Visit visit;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
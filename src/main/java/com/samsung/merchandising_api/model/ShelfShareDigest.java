@@ -0,0 +1,58 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Serialized t-digest of the shelf shares reported on one day for one (dimension, key).
+ * Digests of several days or keys merge into one without going back to {@code visits}.
+ */
+@Entity
+@Table(name = "shelf_share_digests", indexes = {
+        @Index(name = "idx_shelf_digest_dimension_day", columnList = "dimension, day")
+})
+@IdClass(ShelfShareDigest.Key.class)
+@Data
+public class ShelfShareDigest {
+
+    /** dimensionKey of the GLOBAL dimension. */
+    public static final String ALL = "*";
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private ShelfShareDimension dimension;
+
+    @Id
+    @Column(name = "dimension_key", length = 100)
+    private String dimensionKey;
+
+    @Column(nullable = false)
+    private byte[] digest;
+
+    /** Number of shelf-share values folded into the digest. */
+    @Column(name = "value_count", nullable = false)
+    private Long valueCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private ShelfShareDimension dimension;
+        private String dimensionKey;
+    }
+}
@@ -0,0 +1,11 @@
+package com.samsung.merchandising_api.model;
+
+/**
+ * Scope of a shelf-share digest: the whole network, a promoter's region, a store's city, or one store.
+ */
+public enum ShelfShareDimension {
+    GLOBAL,
+    REGION,
+    CITY,
+    STORE
+}
@@ -0,0 +1,38 @@
+package com.samsung.merchandising_api.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record of an offline operation already applied by /api/sync, keyed by the
+ * idempotency key generated on the device. Replaying the same key returns the
+ * original entity instead of creating a duplicate row.
+ */
+@Entity
+@Table(name = "sync_operations")
+@Data
+public class SyncOperation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sync_operations_id_seq")
+    @SequenceGenerator(name = "sync_operations_id_seq", sequenceName = "sync_operations_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, unique = true, length = 100)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false, length = 20)
+    private SyncOperationType type;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    @Column(name = "device_id", length = 100)
+    private String deviceId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
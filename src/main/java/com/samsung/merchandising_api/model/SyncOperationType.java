@@ -0,0 +1,7 @@
+package com.samsung.merchandising_api.model;
+
+public enum SyncOperationType {
+    VISIT,
+    INTERACTION,
+    SELLOUT
+}
@@ -1,5 +1,6 @@
 package com.samsung.merchandising_api.model;
 
+import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -9,7 +10,8 @@ import lombok.Data;
 public class TaskItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_items_id_seq")
+    @SequenceGenerator(name = "task_items_id_seq", sequenceName = "task_items_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, length = 255)
@@ -21,6 +23,7 @@ public class TaskItem {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assignment_id", nullable = false)
+    @JsonBackReference // Prevents infinite recursion in JSON
     private Assignment assignment;
 }
 
@@ -1,20 +1,27 @@
 package com.samsung.merchandising_api.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_region", columnList = "region"),
+        @Index(name = "idx_users_manager", columnList = "manager_id")
+})
 @Data
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "full_name", nullable = false, length = 100)
@@ -44,7 +51,9 @@ public class User {
     private User manager;
 
     // One-to-Many: SFOS -> List of PROMOTER subordinates
+    // Serialized with every visit / assignment that embeds its user: loaded 50 users at a time, not one by one
     @OneToMany(mappedBy = "manager", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JsonManagedReference // Prevents infinite recursion in JSON
     private List<User> subordinates = new ArrayList<>();
 }
@@ -1,19 +1,45 @@
 package com.samsung.merchandising_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "visits")
+@NamedEntityGraph(name = Visit.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("store"),
+        @NamedAttributeNode("assignment"),
+        @NamedAttributeNode("taskStatuses")
+})
+@NamedEntityGraph(name = Visit.GRAPH_RESPONSE, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("store"),
+        @NamedAttributeNode(value = "assignment", subgraph = "assignment.tasks")
+}, subgraphs = @NamedSubgraph(name = "assignment.tasks", attributeNodes = @NamedAttributeNode("tasks")))
+@Table(name = "visits", indexes = {
+        @Index(name = "idx_visits_date_id", columnList = "visit_date, id"),
+        @Index(name = "idx_visits_status_date", columnList = "status, visit_date"),
+        @Index(name = "idx_visits_store_date", columnList = "store_id, visit_date"),
+        @Index(name = "idx_visits_user_date", columnList = "user_id, visit_date"),
+        @Index(name = "idx_visits_updated_at", columnList = "updated_at")
+})
 @Data
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Visit {
 
+    /** everything serialized when the entity itself is returned as JSON, lists included */
+    public static final String GRAPH_DETAIL = "Visit.detail";
+    /** what VisitResponseDTO.fromVisit reads: user, store, assignment and its tasks */
+    public static final String GRAPH_RESPONSE = "Visit.response";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visits_id_seq")
+    @SequenceGenerator(name = "visits_id_seq", sequenceName = "visits_id_seq", allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "visit_date", nullable = false)
@@ -44,21 +70,32 @@ public class Visit {
     @Column(name = "photo_url", length = 500)
     private String photoUrl;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    /** Last write to the row; the KPI rollup job picks up changed visits from this column. */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "store_id", nullable = false)
     private Store store;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assignment_id")
     private Assignment assignment;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @CollectionTable(name = "visit_task_statuses", joinColumns = @JoinColumn(name = "visit_id"))
     @Column(name = "status")
     @Enumerated(EnumType.STRING)
     private List<TaskItemStatus> taskStatuses = new ArrayList<>();
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
 }
@@ -1,8 +1,27 @@
 package com.samsung.merchandising_api.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum VisitStatus {
     PLANNED,
     COMPLETED,
     VALIDATED,
-    REJECTED
+    REJECTED;
+
+    /**
+     * Statuses a supervisor may move a visit out of to reach this status.
+     * Empty for statuses that are not supervisor decisions (PLANNED, COMPLETED).
+     */
+    public Set<VisitStatus> allowedSources() {
+        return switch (this) {
+            case VALIDATED -> EnumSet.of(COMPLETED, REJECTED);
+            case REJECTED -> EnumSet.of(COMPLETED, VALIDATED);
+            default -> EnumSet.noneOf(VisitStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(VisitStatus target) {
+        return target.allowedSources().contains(this);
+    }
 }
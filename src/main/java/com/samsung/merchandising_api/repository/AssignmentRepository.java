@@ -6,25 +6,40 @@ import com.samsung.merchandising_api.model.Store;
 import com.samsung.merchandising_api.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AssignmentRepository extends JpaRepository<Assignment, Long> {
 
+    // Paged finders fetch user + store only; tasks are batch-loaded (@BatchSize) to keep LIMIT in SQL
+    @EntityGraph(Assignment.GRAPH_USER_STORE)
     Page<Assignment> findByDate(LocalDate date, Pageable pageable);
 
+    @EntityGraph(Assignment.GRAPH_USER_STORE)
     Page<Assignment> findByUserAndDate(User user, LocalDate date, Pageable pageable);
 
+    @EntityGraph(Assignment.GRAPH_USER_STORE)
     Page<Assignment> findByStoreAndDate(Store store, LocalDate date, Pageable pageable);
 
+    @Override
+    @EntityGraph(Assignment.GRAPH_USER_STORE)
+    Page<Assignment> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(Assignment.GRAPH_DETAIL)
+    Optional<Assignment> findById(Long id);
+
     List<Assignment> findByUserAndDate(User user, LocalDate date);
 
     long countByDateAndStatus(LocalDate date, AssignmentStatus status);
 
+    @EntityGraph(Assignment.GRAPH_DETAIL)
     List<Assignment> findByUserIdInAndDate(List<Long> userIds, LocalDate date);
 }
 
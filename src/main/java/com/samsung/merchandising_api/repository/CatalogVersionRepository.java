@@ -0,0 +1,19 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.CatalogVersion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CatalogVersion c WHERE c.id = :id")
+    Optional<CatalogVersion> findForUpdate(@Param("id") String id);
+}
@@ -0,0 +1,36 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.CoverageDimension;
+import com.samsung.merchandising_api.model.CoverageMetric;
+import com.samsung.merchandising_api.model.CoverageSketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CoverageSketchRepository extends JpaRepository<CoverageSketch, CoverageSketch.Key> {
+
+    // Read-merge-write of one sketch: the row lock keeps concurrent flushes from dropping registers
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CoverageSketch s WHERE s.day = :day AND s.dimension = :dimension " +
+            "AND s.dimensionKey = :dimensionKey AND s.metric = :metric")
+    Optional<CoverageSketch> findForUpdate(@Param("day") LocalDate day,
+                                           @Param("dimension") CoverageDimension dimension,
+                                           @Param("dimensionKey") String dimensionKey,
+                                           @Param("metric") CoverageMetric metric);
+
+    @Query("SELECT s FROM CoverageSketch s WHERE s.dimension = :dimension " +
+            "AND (:dimensionKey IS NULL OR s.dimensionKey = :dimensionKey) " +
+            "AND s.day >= :from AND s.day <= :to")
+    List<CoverageSketch> findRange(@Param("dimension") CoverageDimension dimension,
+                                   @Param("dimensionKey") String dimensionKey,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+}
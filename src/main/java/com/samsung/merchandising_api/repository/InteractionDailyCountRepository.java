@@ -0,0 +1,9 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.InteractionDailyCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InteractionDailyCountRepository extends JpaRepository<InteractionDailyCount, InteractionDailyCount.Key> {
+}
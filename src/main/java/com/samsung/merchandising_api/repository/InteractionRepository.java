@@ -1,17 +1,29 @@
 package com.samsung.merchandising_api.repository;
 
+import com.samsung.merchandising_api.dto.InteractionDTO;
 import com.samsung.merchandising_api.model.Interaction;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface InteractionRepository extends JpaRepository<Interaction, Long> {
 
+    @EntityGraph(Interaction.GRAPH_PRODUCT)
     List<Interaction> findByVisitId(Long visitId);
 
+    // Batch projection for a page of visits: no Visit is loaded, only the product columns the DTO needs
+    @Query("SELECT new com.samsung.merchandising_api.dto.InteractionDTO(" +
+            "i.id, i.visit.id, p.id, p.name, p.sku, i.gender, i.color, i.createdAt) " +
+            "FROM Interaction i LEFT JOIN i.product p " +
+            "WHERE i.visit.id IN :visitIds ORDER BY i.visit.id, i.id")
+    List<InteractionDTO> findDtosByVisitIdIn(@Param("visitIds") Collection<Long> visitIds);
+
     @Query("SELECT COUNT(i) FROM Interaction i WHERE i.visit.id = :visitId")
     Long countByVisitId(Long visitId);
 
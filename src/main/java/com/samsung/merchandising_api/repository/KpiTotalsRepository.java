@@ -0,0 +1,42 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.KpiTotals;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface KpiTotalsRepository extends JpaRepository<KpiTotals, String> {
+
+    // Atomic delta: concurrent writers never overwrite each other's contribution
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE KpiTotals k SET k.completedVisits = k.completedVisits + :visits, " +
+            "k.salesSum = k.salesSum + :sales, " +
+            "k.shelfShareSum = k.shelfShareSum + :shelfShareSum, " +
+            "k.shelfShareCount = k.shelfShareCount + :shelfShareCount, " +
+            "k.updatedAt = :now WHERE k.id = :id")
+    int applyDelta(@Param("id") String id,
+                   @Param("visits") long visits,
+                   @Param("sales") double sales,
+                   @Param("shelfShareSum") double shelfShareSum,
+                   @Param("shelfShareCount") long shelfShareCount,
+                   @Param("now") LocalDateTime now);
+
+    // Drift found by the reconciliation, applied as a delta so that writes committed meanwhile are kept
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE KpiTotals k SET k.completedVisits = k.completedVisits + :visits, " +
+            "k.salesSum = k.salesSum + :sales, " +
+            "k.shelfShareSum = k.shelfShareSum + :shelfShareSum, " +
+            "k.shelfShareCount = k.shelfShareCount + :shelfShareCount, " +
+            "k.updatedAt = :now, k.reconciledAt = :now WHERE k.id = :id")
+    int applyCorrection(@Param("id") String id,
+                        @Param("visits") long visits,
+                        @Param("sales") double sales,
+                        @Param("shelfShareSum") double shelfShareSum,
+                        @Param("shelfShareCount") long shelfShareCount,
+                        @Param("now") LocalDateTime now);
+}
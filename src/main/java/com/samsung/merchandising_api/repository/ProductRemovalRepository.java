@@ -0,0 +1,13 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.ProductRemoval;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductRemovalRepository extends JpaRepository<ProductRemoval, Long> {
+
+    List<ProductRemoval> findByCatalogVersionGreaterThan(Long version);
+}
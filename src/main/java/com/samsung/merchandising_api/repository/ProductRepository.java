@@ -7,4 +7,8 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     java.util.Optional<Product> findBySku(String sku);
+
+    java.util.List<Product> findByCatalogVersionGreaterThan(Long version);
+
+    java.util.List<Product> findBySkuIn(java.util.Collection<String> skus);
 }
@@ -1,17 +1,30 @@
 package com.samsung.merchandising_api.repository;
 
+import com.samsung.merchandising_api.dto.SelloutDTO;
 import com.samsung.merchandising_api.model.Sellout;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SelloutRepository extends JpaRepository<Sellout, Long> {
 
+    @EntityGraph(Sellout.GRAPH_PRODUCT)
     List<Sellout> findByVisitId(Long visitId);
 
+    // Batch projection for a page of visits: no Visit is loaded, only the product columns the DTO needs
+    @Query("SELECT new com.samsung.merchandising_api.dto.SelloutDTO(" +
+            "s.id, s.visit.id, p.id, p.name, p.sku, s.quantity, s.amount, s.createdAt) " +
+            "FROM Sellout s JOIN s.product p " +
+            "WHERE s.visit.id IN :visitIds ORDER BY s.visit.id, s.id")
+    List<SelloutDTO> findDtosByVisitIdIn(@Param("visitIds") Collection<Long> visitIds);
+
     @Query("SELECT COALESCE(SUM(s.amount), 0) FROM Sellout s WHERE s.visit.id = :visitId")
     Double sumAmountByVisitId(Long visitId);
 
@@ -20,4 +33,14 @@ public interface SelloutRepository extends JpaRepository<Sellout, Long> {
 
     @Query("SELECT COALESCE(SUM(s.amount), 0) FROM Sellout s")
     Double sumTotalAmount();
+
+    // Sellout ids of the list that exist in the current transaction's snapshot
+    @Query("SELECT s.id FROM Sellout s WHERE s.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Leaderboard warm-up: [userId, storeId, day, sum(amount), sum(quantity)] since the given instant
+    @Query("SELECT v.user.id, v.store.id, CAST(s.createdAt AS LocalDate), SUM(s.amount), SUM(s.quantity) " +
+            "FROM Sellout s JOIN s.visit v WHERE s.createdAt >= :from " +
+            "GROUP BY v.user.id, v.store.id, CAST(s.createdAt AS LocalDate)")
+    List<Object[]> sumByUserStoreAndDaySince(@Param("from") LocalDateTime from);
 }
@@ -0,0 +1,33 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.ShelfShareDigest;
+import com.samsung.merchandising_api.model.ShelfShareDimension;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ShelfShareDigestRepository extends JpaRepository<ShelfShareDigest, ShelfShareDigest.Key> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM ShelfShareDigest d WHERE d.day = :day AND d.dimension = :dimension " +
+            "AND d.dimensionKey = :dimensionKey")
+    Optional<ShelfShareDigest> findForUpdate(@Param("day") LocalDate day,
+                                             @Param("dimension") ShelfShareDimension dimension,
+                                             @Param("dimensionKey") String dimensionKey);
+
+    @Query("SELECT d FROM ShelfShareDigest d WHERE d.dimension = :dimension " +
+            "AND (:dimensionKey IS NULL OR d.dimensionKey = :dimensionKey) " +
+            "AND d.day >= :from AND d.day <= :to")
+    List<ShelfShareDigest> findRange(@Param("dimension") ShelfShareDimension dimension,
+                                     @Param("dimensionKey") String dimensionKey,
+                                     @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+}
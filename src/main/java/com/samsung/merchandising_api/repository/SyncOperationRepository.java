@@ -0,0 +1,14 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.SyncOperation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SyncOperationRepository extends JpaRepository<SyncOperation, Long> {
+
+    List<SyncOperation> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+}
@@ -1,28 +1,78 @@
 package com.samsung.merchandising_api.repository;
 
+import com.samsung.merchandising_api.dto.VisitSummaryDTO;
+import com.samsung.merchandising_api.event.VisitSnapshot;
 import com.samsung.merchandising_api.model.Visit;
 import com.samsung.merchandising_api.model.VisitStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface VisitRepository extends JpaRepository<Visit, Long> {
+public interface VisitRepository extends JpaRepository<Visit, Long>, JpaSpecificationExecutor<Visit>, VisitRepositoryCustom {
 
+    // Associations are LAZY: every finder that hands entities to a mapper or to Jackson
+    // declares the fetch plan it needs, so each call is a single SELECT (plus batch loads).
+    // Entity lists go to Jackson as they are, assignment and task statuses included: no user + store only graph.
+    @EntityGraph(Visit.GRAPH_DETAIL)
     List<Visit> findByStatus(VisitStatus status);
 
+    @EntityGraph(Visit.GRAPH_RESPONSE)
     List<Visit> findByUserId(Long userId);
 
+    @EntityGraph(Visit.GRAPH_DETAIL)
     List<Visit> findByStoreId(Long storeId);
 
+    @EntityGraph(Visit.GRAPH_DETAIL)
     List<Visit> findByVisitDateBetween(LocalDateTime start, LocalDateTime end);
 
+    // Visit with everything its JSON representation contains
+    @EntityGraph(Visit.GRAPH_DETAIL)
+    @Query("SELECT v FROM Visit v WHERE v.id = :id")
+    Optional<Visit> findDetailedById(@Param("id") Long id);
+
+    @Query("SELECT v.id FROM Visit v WHERE v.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
     // Récupérer toutes les visites triées par date (plus récentes en premier)
-    @Query(value = "SELECT * FROM visits ORDER BY visit_date DESC", nativeQuery = true)
-    List<Visit> findAllByVisitDateDescNative();
+    @EntityGraph(Visit.GRAPH_RESPONSE)
+    @Query("SELECT v FROM Visit v ORDER BY v.visitDate DESC")
+    List<Visit> findAllByVisitDateDesc();
+
+    // Forward-only scroll for exports: rows are pulled from a server-side cursor 500 at a time.
+    // Must be consumed inside a read-only transaction and closed by the caller.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.samsung.merchandising_api.dto.VisitSummaryDTO(" +
+            "v.id, v.visitDate, v.status, v.salesAmount, v.shelfShare, v.interactionCount, v.comment, v.photoUrl, " +
+            "s.id, s.name, s.city, u.id, u.fullName, u.role, v.assignment.id) " +
+            "FROM Visit v JOIN v.store s JOIN v.user u " +
+            "WHERE (:userId IS NULL OR u.id = :userId) " +
+            "AND (:storeId IS NULL OR s.id = :storeId) " +
+            "AND (:status IS NULL OR v.status = :status) " +
+            "AND (:from IS NULL OR v.visitDate >= :from) " +
+            "AND (:to IS NULL OR v.visitDate < :to) " +
+            "ORDER BY v.visitDate, v.id")
+    Stream<VisitSummaryDTO> streamSummaries(@Param("userId") Long userId,
+                                            @Param("storeId") Long storeId,
+                                            @Param("status") VisitStatus status,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
 
     // KPI Queries
     @Query("SELECT COUNT(v) FROM Visit v WHERE v.status = 'COMPLETED'")
@@ -33,4 +83,34 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
 
     @Query("SELECT COALESCE(AVG(v.shelfShare), 0) FROM Visit v WHERE v.status = 'COMPLETED'")
     Double avgShelfShare();
+
+    // Full recompute of the running KPI aggregates (reconciliation only):
+    // [count, sum(sales), sum(shelfShare), count(shelfShare)]
+    @Query("SELECT COUNT(v), COALESCE(SUM(v.salesAmount), 0), COALESCE(SUM(v.shelfShare), 0), COUNT(v.shelfShare) " +
+            "FROM Visit v WHERE v.status = 'COMPLETED'")
+    List<Object[]> aggregateCompletedVisits();
+
+    // Attribution context (promoter, store, status) for writes that only know visit ids
+    @Query("SELECT new com.samsung.merchandising_api.event.VisitSnapshot(v.id, v.user.id, v.store.id, " +
+            "v.visitDate, v.status, v.shelfShare, v.salesAmount) FROM Visit v WHERE v.id IN :ids")
+    List<VisitSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** Atomic increment of the denormalized sellout total: concurrent writers add up instead of overwriting. */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Visit v SET v.salesAmount = COALESCE(v.salesAmount, 0) + :delta, v.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE v.id = :visitId")
+    int addToSalesAmount(@Param("visitId") Long visitId, @Param("delta") double delta);
+
+    /** Atomic increment of the denormalized interaction counter (negative when interactions are deleted). */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Visit v SET v.interactionCount = COALESCE(v.interactionCount, 0) + :delta, " +
+            "v.updatedAt = CURRENT_TIMESTAMP WHERE v.id = :visitId")
+    int addToInteractionCount(@Param("visitId") Long visitId, @Param("delta") int delta);
+
+    /** Repair path: recompute the total from the visit's sellout lines. */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Visit v SET v.salesAmount = " +
+            "(SELECT COALESCE(SUM(s.amount), 0) FROM Sellout s WHERE s.visit.id = v.id), " +
+            "v.updatedAt = CURRENT_TIMESTAMP WHERE v.id = :visitId")
+    int recomputeSalesAmount(@Param("visitId") Long visitId);
 }
@@ -0,0 +1,24 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.dto.VisitSummaryDTO;
+import com.samsung.merchandising_api.model.Visit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface VisitRepositoryCustom {
+
+    /**
+     * Dynamic search projected straight into {@link VisitSummaryDTO}, newest first.
+     * Returns a Slice: one extra row is fetched to know if there is a next page, no COUNT(*) is run.
+     */
+    Slice<VisitSummaryDTO> searchSummaries(Specification<Visit> spec, Pageable pageable);
+
+    /**
+     * First {@code limit} visits matching {@code spec}, newest first, projected into {@link VisitSummaryDTO}.
+     * Keyset pages pass {@link VisitSpecifications#keysetAfter} in {@code spec}; no OFFSET is used.
+     */
+    List<VisitSummaryDTO> findSummaryPage(Specification<Visit> spec, int limit);
+}
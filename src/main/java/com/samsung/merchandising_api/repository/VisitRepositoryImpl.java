@@ -0,0 +1,68 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.dto.VisitSummaryDTO;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+class VisitRepositoryImpl implements VisitRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<VisitSummaryDTO> searchSummaries(Specification<Visit> spec, Pageable pageable) {
+        List<VisitSummaryDTO> rows = summaryQuery(spec)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public List<VisitSummaryDTO> findSummaryPage(Specification<Visit> spec, int limit) {
+        return summaryQuery(spec).setMaxResults(limit).getResultList();
+    }
+
+    /** Summaries matching {@code spec} ordered by (visitDate DESC, id DESC): only the predicates given are rendered. */
+    private TypedQuery<VisitSummaryDTO> summaryQuery(Specification<Visit> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<VisitSummaryDTO> query = cb.createQuery(VisitSummaryDTO.class);
+        Root<Visit> root = query.from(Visit.class);
+        Join<Visit, Store> store = VisitSpecifications.store(root);
+        Join<Visit, User> user = VisitSpecifications.user(root);
+
+        query.select(cb.construct(VisitSummaryDTO.class,
+                root.get("id"), root.get("visitDate"), root.get("status"),
+                root.get("salesAmount"), root.get("shelfShare"), root.get("interactionCount"),
+                root.get("comment"), root.get("photoUrl"),
+                store.get("id"), store.get("name"), store.get("city"),
+                user.get("id"), user.get("fullName"), user.get("role"),
+                root.get("assignment").get("id")));
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(cb.desc(root.get("visitDate")), cb.desc(root.get("id")));
+        return entityManager.createQuery(query);
+    }
+}
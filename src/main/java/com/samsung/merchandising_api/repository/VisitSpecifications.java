@@ -0,0 +1,91 @@
+package com.samsung.merchandising_api.repository;
+
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Composable filters for visit search. Each factory returns null when its argument is null,
+ * which Spring Data treats as "no predicate", so callers can chain every filter unconditionally.
+ * Joins to store / user are shared between predicates (and with the projection in
+ * {@link VisitRepositoryImpl}) so a search never joins the same table twice.
+ */
+public final class VisitSpecifications {
+
+    private VisitSpecifications() {
+    }
+
+    public static Specification<Visit> visitDateFrom(LocalDateTime from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("visitDate"), from);
+    }
+
+    public static Specification<Visit> visitDateBefore(LocalDateTime to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThan(root.get("visitDate"), to);
+    }
+
+    public static Specification<Visit> hasStatus(VisitStatus status) {
+        return status == null ? null : (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Visit> byUser(Long userId) {
+        return userId == null ? null : (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    public static Specification<Visit> byStore(Long storeId) {
+        return storeId == null ? null : (root, query, cb) -> cb.equal(root.get("store").get("id"), storeId);
+    }
+
+    /**
+     * Keyset position: visits strictly after (cursorDate, cursorId) in (visitDate DESC, id DESC) order.
+     * The leading {@code visitDate <= cursorDate} is implied by the OR but is what lets the planner
+     * start a range scan of idx_visits_date_id at the cursor; the OR alone is not sargable.
+     */
+    public static Specification<Visit> keysetAfter(LocalDateTime cursorDate, Long cursorId) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("visitDate"), cursorDate),
+                cb.or(cb.lessThan(root.get("visitDate"), cursorDate),
+                        cb.and(cb.equal(root.get("visitDate"), cursorDate), cb.lessThan(root.get("id"), cursorId))));
+    }
+
+    public static Specification<Visit> inCity(String city) {
+        return city == null ? null : (root, query, cb) -> cb.equal(store(root).get("city"), city);
+    }
+
+    public static Specification<Visit> hasStoreType(String storeType) {
+        return storeType == null ? null : (root, query, cb) -> cb.equal(store(root).get("type"), storeType);
+    }
+
+    public static Specification<Visit> inRegion(String region) {
+        return region == null ? null : (root, query, cb) -> cb.equal(user(root).get("region"), region);
+    }
+
+    /** Visits made by the promoters managed by the given SFOS. */
+    public static Specification<Visit> bySfosTeam(Long sfosId) {
+        return sfosId == null ? null : (root, query, cb) -> cb.equal(user(root).get("manager").get("id"), sfosId);
+    }
+
+    static Join<Visit, Store> store(Root<Visit> root) {
+        return join(root, "store");
+    }
+
+    static Join<Visit, User> user(Root<Visit> root) {
+        return join(root, "user");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Join<Visit, T> join(Root<Visit> root, String attribute) {
+        for (Join<Visit, ?> existing : root.getJoins()) {
+            if (existing.getAttribute().getName().equals(attribute) && existing.getJoinType() == JoinType.INNER) {
+                return (Join<Visit, T>) existing;
+            }
+        }
+        return root.join(attribute, JoinType.INNER);
+    }
+}
@@ -0,0 +1,259 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.CoverageDTO;
+import com.samsung.merchandising_api.dto.CoverageEntryDTO;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import com.samsung.merchandising_api.model.CoverageDimension;
+import com.samsung.merchandising_api.model.CoverageMetric;
+import com.samsung.merchandising_api.model.CoverageSketch;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.CoverageSketchRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct stores visited, promoters active and products sold, per day and per GLOBAL / REGION /
+ * SFOS scope, kept as HyperLogLog sketches.
+ * <p>
+ * Committed writes are added to in-memory sketches right away ({@link SketchBuffer}); a scheduled
+ * flush merges them into {@code coverage_sketches} under a row lock. Because merging is a
+ * register-wise max, a flush that is retried or overlaps another node never double counts.
+ * Queries merge the stored days of the range plus whatever is still pending, so any date range
+ * costs one indexed read and no COUNT(DISTINCT). Sketches only grow: a visit rejected later still
+ * counts as coverage.
+ */
+@Service
+public class CoverageService {
+
+    private static final Logger log = LoggerFactory.getLogger(CoverageService.class);
+
+    private static final long MAX_RANGE_DAYS = 366;
+    private static final double Z_95 = 1.96;
+
+    private static final String BACKFILL_VISITS =
+            "SELECT CAST(v.visit_date AS DATE) AS day, v.store_id, v.user_id, u.region, u.manager_id " +
+            "FROM visits v JOIN users u ON u.id = v.user_id " +
+            "WHERE v.visit_date >= ? AND v.status <> 'PLANNED' ORDER BY v.visit_date";
+    private static final String BACKFILL_SELLOUTS =
+            "SELECT CAST(s.created_at AS DATE) AS day, s.product_id, u.region, u.manager_id " +
+            "FROM sellouts s JOIN visits v ON v.id = s.visit_id JOIN users u ON u.id = v.user_id " +
+            "WHERE s.created_at >= ? ORDER BY s.created_at";
+
+    private record SketchKey(LocalDate day, CoverageDimension dimension, String key, CoverageMetric metric) {
+    }
+
+    private record UserScope(String region, Long managerId) {
+    }
+
+    private final Map<Long, UserScope> userScopes = new ConcurrentHashMap<>();
+
+    private final CoverageSketchRepository sketchRepository;
+    private final UserRepository userRepository;
+    private final SketchBuffer<SketchKey, HyperLogLog> sketches;
+    private final int backfillDays;
+
+    public CoverageService(CoverageSketchRepository sketchRepository,
+                           UserRepository userRepository,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.coverage.backfill-days:90}") int backfillDays) {
+        this.sketchRepository = sketchRepository;
+        this.userRepository = userRepository;
+        this.sketches = new SketchBuffer<>("Coverage", HyperLogLog::new, HyperLogLog::merge, this::write,
+                jdbcTemplate, transactionManager);
+        this.backfillDays = backfillDays;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVisitSubmitted(VisitSubmittedEvent event) {
+        Map<Long, UserScope> scopes = scopesOf(event.visits().stream().map(VisitSnapshot::userId).toList());
+        for (VisitSnapshot visit : event.visits()) {
+            if (visit.status() == VisitStatus.PLANNED || visit.visitDate() == null || visit.userId() == null) {
+                continue;
+            }
+            UserScope scope = scopes.get(visit.userId());
+            LocalDate day = visit.visitDate().toLocalDate();
+            add(day, scope, CoverageMetric.STORES, visit.storeId());
+            add(day, scope, CoverageMetric.PROMOTERS, visit.userId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSelloutChanged(SelloutChangedEvent event) {
+        Map<Long, UserScope> scopes = scopesOf(event.changes().stream().map(SelloutChange::userId).toList());
+        for (SelloutChange change : event.changes()) {
+            LocalDateTime at = change.createdAt() != null ? change.createdAt() : change.visitDate();
+            if (change.removed() || at == null || change.userId() == null) {
+                continue;
+            }
+            add(at.toLocalDate(), scopes.get(change.userId()), CoverageMetric.PRODUCTS, change.productId());
+        }
+    }
+
+    /** Merge pending sketches into the table; on failure they are put back for the next run. */
+    @Scheduled(fixedDelayString = "${app.coverage.flush-interval-ms:30000}")
+    public void flush() {
+        sketches.flush();
+    }
+
+    /**
+     * Rebuild the last {@code app.coverage.backfill-days} days from the source tables when no
+     * sketch exists yet. Rows are streamed in date order from a read-only cursor; each finished
+     * day is flushed in its own transaction, so a day that is written stays written whatever
+     * happens to the rest of the scan.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (backfillDays <= 0 || sketchRepository.count() > 0) {
+            return;
+        }
+        Date since = Date.valueOf(LocalDate.now().minusDays(backfillDays));
+        sketches.backfill(BACKFILL_VISITS, since, rs -> {
+            LocalDate day = rs.getDate("day").toLocalDate();
+            UserScope scope = new UserScope(rs.getString("region"), (Long) rs.getObject("manager_id"));
+            add(day, scope, CoverageMetric.STORES, rs.getLong("store_id"));
+            add(day, scope, CoverageMetric.PROMOTERS, rs.getLong("user_id"));
+        });
+        sketches.backfill(BACKFILL_SELLOUTS, since, rs -> {
+            UserScope scope = new UserScope(rs.getString("region"), (Long) rs.getObject("manager_id"));
+            add(rs.getDate("day").toLocalDate(), scope, CoverageMetric.PRODUCTS, rs.getLong("product_id"));
+        });
+        log.info("Coverage sketches backfilled for the last {} days", backfillDays);
+    }
+
+    /**
+     * Distinct counts over [from, to) for every key of {@code dimension} (or only {@code key}).
+     * Each estimate comes with its 95 % interval: estimate × (1 ± 1.96 × 1.04 / √4096).
+     */
+    @Transactional(readOnly = true)
+    public CoverageDTO getCoverage(CoverageDimension dimension, String key, LocalDate from, LocalDate to) {
+        if (to == null) {
+            to = LocalDate.now().plusDays(1);
+        }
+        if (from == null) {
+            from = to.minusDays(30);
+        }
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (days <= 0) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (days > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range too large (max " + MAX_RANGE_DAYS + " days)");
+        }
+        String dimensionKey = dimension == CoverageDimension.GLOBAL ? CoverageSketch.ALL
+                : (key != null && !key.isBlank() ? key : null);
+
+        Map<String, Map<CoverageMetric, HyperLogLog>> merged = new TreeMap<>();
+        LocalDate rangeFrom = from;
+        LocalDate rangeTo = to;
+        sketches.read(() -> {
+            for (CoverageSketch sketch : sketchRepository.findRange(dimension, dimensionKey, rangeFrom, rangeTo.minusDays(1))) {
+                merged.computeIfAbsent(sketch.getDimensionKey(), k -> new HashMap<>())
+                        .computeIfAbsent(sketch.getMetric(), m -> new HyperLogLog())
+                        .merge(HyperLogLog.fromBytes(sketch.getRegisters()));
+            }
+        }, (sk, hll) -> {
+            if (sk.dimension() == dimension && !sk.day().isBefore(rangeFrom) && sk.day().isBefore(rangeTo)
+                    && (dimensionKey == null || dimensionKey.equals(sk.key()))) {
+                merged.computeIfAbsent(sk.key(), k -> new HashMap<>())
+                        .computeIfAbsent(sk.metric(), m -> new HyperLogLog())
+                        .merge(hll);
+            }
+        });
+
+        List<CoverageEntryDTO> entries = new ArrayList<>();
+        merged.forEach((k, byMetric) -> byMetric.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    long estimate = e.getValue().estimate();
+                    double margin = Z_95 * HyperLogLog.RELATIVE_STANDARD_ERROR * estimate;
+                    entries.add(new CoverageEntryDTO(k, e.getKey().name(), estimate,
+                            Math.max(0, (long) Math.floor(estimate - margin)), (long) Math.ceil(estimate + margin)));
+                }));
+        return new CoverageDTO(dimension.name(), from, to, HyperLogLog.RELATIVE_STANDARD_ERROR, entries);
+    }
+
+    private void add(LocalDate day, UserScope scope, CoverageMetric metric, Long value) {
+        if (value == null) {
+            return;
+        }
+        sketch(new SketchKey(day, CoverageDimension.GLOBAL, CoverageSketch.ALL, metric), value);
+        if (scope != null && scope.region() != null && !scope.region().isBlank()) {
+            sketch(new SketchKey(day, CoverageDimension.REGION, scope.region(), metric), value);
+        }
+        if (scope != null && scope.managerId() != null) {
+            sketch(new SketchKey(day, CoverageDimension.SFOS, scope.managerId().toString(), metric), value);
+        }
+    }
+
+    private void sketch(SketchKey key, long value) {
+        sketches.update(key, hll -> hll.add(value));
+    }
+
+    private void write(SketchKey key, HyperLogLog hll) {
+        CoverageSketch row = sketchRepository.findForUpdate(key.day(), key.dimension(), key.key(), key.metric())
+                .orElseGet(() -> {
+                    CoverageSketch created = new CoverageSketch();
+                    created.setDay(key.day());
+                    created.setDimension(key.dimension());
+                    created.setDimensionKey(key.key());
+                    created.setMetric(key.metric());
+                    return created;
+                });
+        HyperLogLog stored = row.getRegisters() != null ? HyperLogLog.fromBytes(row.getRegisters()) : new HyperLogLog();
+        synchronized (hll) {
+            stored.merge(hll);
+        }
+        row.setRegisters(stored.toBytes());
+        row.setUpdatedAt(LocalDateTime.now());
+        sketchRepository.save(row);
+    }
+
+    /** Region and SFOS of each promoter, loaded once per user. */
+    private Map<Long, UserScope> scopesOf(Collection<Long> userIds) {
+        Set<Long> missing = new HashSet<>();
+        for (Long id : userIds) {
+            if (id != null && !userScopes.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findAllById(missing)) {
+                userScopes.put(user.getId(), new UserScope(user.getRegion(),
+                        user.getManager() != null ? user.getManager().getId() : null));
+            }
+        }
+        Map<Long, UserScope> scopes = new HashMap<>();
+        userIds.stream().filter(Objects::nonNull).forEach(id -> scopes.put(id, userScopes.get(id)));
+        return scopes;
+    }
+}
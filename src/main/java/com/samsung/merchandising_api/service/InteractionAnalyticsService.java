@@ -0,0 +1,295 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.InteractionBreakdownDTO;
+import com.samsung.merchandising_api.dto.InteractionBreakdownRowDTO;
+import com.samsung.merchandising_api.event.InteractionChange;
+import com.samsung.merchandising_api.event.InteractionsChangedEvent;
+import com.samsung.merchandising_api.model.InteractionDailyCount;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.RollupWatermarkRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Customer demographics (gender, color, product) per store, promoter region and day, answered from
+ * {@code interaction_daily_counts} only.
+ * <p>
+ * Every interaction write publishes an {@link InteractionsChangedEvent}; this listener runs inside
+ * the writer's transaction and applies the +1 / -1 deltas with one batched
+ * {@code INSERT ... ON CONFLICT DO UPDATE}, so the counters commit or roll back with the rows.
+ * Breakdowns group the counters with a single GROUP BY whose cost depends on the number of
+ * distinct keys in the range, not on the number of interactions.
+ */
+@Service
+public class InteractionAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(InteractionAnalyticsService.class);
+
+    private static final long MAX_RANGE_DAYS = 366;
+
+    private static final String UPSERT_COUNT =
+            "INSERT INTO interaction_daily_counts (day, store_id, region, product_id, gender, color, interaction_count, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, now()) " +
+            "ON CONFLICT (day, store_id, region, product_id, gender, color) DO UPDATE SET " +
+            "interaction_count = interaction_daily_counts.interaction_count + EXCLUDED.interaction_count, updated_at = now()";
+
+    private static final String BACKFILL =
+            "INSERT INTO interaction_daily_counts (day, store_id, region, product_id, gender, color, interaction_count, updated_at) " +
+            "SELECT CAST(i.created_at AS DATE), v.store_id, COALESCE(NULLIF(u.region, ''), '-'), COALESCE(i.product_id, 0), " +
+            "COALESCE(NULLIF(i.gender, ''), '-'), COALESCE(NULLIF(i.color, ''), '-'), COUNT(*), now() " +
+            "FROM interactions i JOIN visits v ON v.id = i.visit_id JOIN users u ON u.id = v.user_id " +
+            "WHERE i.created_at IS NOT NULL " +
+            "GROUP BY 1, 2, 3, 4, 5, 6 " +
+            "ON CONFLICT (day, store_id, region, product_id, gender, color) DO UPDATE SET " +
+            "interaction_count = EXCLUDED.interaction_count, updated_at = now()";
+
+    /** Holds off interaction writes (and their counter deltas) while the backfill counts the table. */
+    private static final String LOCK_INTERACTIONS = "LOCK TABLE interactions IN SHARE MODE";
+
+    /** {@code rollup_watermarks} row written in the backfill transaction, once the counters are complete. */
+    static final String BACKFILL_MARKER = "interaction_daily_counts";
+
+    private static final String INSERT_MARKER =
+            "INSERT INTO rollup_watermarks (name, watermark, last_run_at, last_run_rows) VALUES (?, now(), now(), ?) " +
+            "ON CONFLICT (name) DO NOTHING";
+
+    public enum Dimension {
+        GENDER("c.gender"),
+        COLOR("c.color"),
+        PRODUCT("c.product_id"),
+        STORE("c.store_id"),
+        REGION("c.region"),
+        DAY("c.day");
+
+        final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+    }
+
+    private record CountKey(LocalDate day, long storeId, String region, long productId, String gender, String color) {
+    }
+
+    private final Map<Long, String> userRegions = new ConcurrentHashMap<>();
+
+    private final RollupWatermarkRepository watermarkRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final StoreRepository storeRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public InteractionAnalyticsService(RollupWatermarkRepository watermarkRepository,
+                                       UserRepository userRepository,
+                                       ProductRepository productRepository,
+                                       StoreRepository storeRepository,
+                                       JdbcTemplate jdbcTemplate) {
+        this.watermarkRepository = watermarkRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.storeRepository = storeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Synchronous on purpose: the counters must commit atomically with the interactions
+    @EventListener
+    public void onInteractionsChanged(InteractionsChangedEvent event) {
+        Map<Long, String> regions = regionsOf(event.changes().stream().map(InteractionChange::userId).toList());
+        Map<CountKey, Integer> deltas = new LinkedHashMap<>();
+        for (InteractionChange change : event.changes()) {
+            if (change.storeId() == null || change.createdAt() == null) {
+                continue;
+            }
+            CountKey key = new CountKey(change.createdAt().toLocalDate(), change.storeId(),
+                    orNone(regions.get(change.userId())),
+                    change.productId() != null ? change.productId() : InteractionDailyCount.NO_PRODUCT,
+                    orNone(change.gender()), orNone(change.color()));
+            deltas.merge(key, change.delta(), Integer::sum);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> args.add(new Object[]{Date.valueOf(key.day()), key.storeId(), key.region(),
+                key.productId(), key.gender(), key.color(), delta}));
+        jdbcTemplate.batchUpdate(UPSERT_COUNT, args, new int[]{Types.DATE, Types.BIGINT, Types.VARCHAR,
+                Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT});
+    }
+
+    /**
+     * Build the counters from the interactions table until a backfill has completed once, as recorded
+     * by its {@link #BACKFILL_MARKER} row. Counter rows alone prove nothing: live deltas may have
+     * written some before, or a previous backfill may have failed.
+     * <p>
+     * The SHARE lock keeps interaction writes out until the transaction ends, so the counts read are
+     * exact; they overwrite whatever live deltas already put in the same rows, and a backfill run
+     * concurrently by another instance writes the same values and the same marker.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (watermarkRepository.existsById(BACKFILL_MARKER)) {
+            return;
+        }
+        jdbcTemplate.execute(LOCK_INTERACTIONS);
+        int rows = jdbcTemplate.update(BACKFILL);
+        jdbcTemplate.update(INSERT_MARKER, BACKFILL_MARKER, rows);
+        log.info("Interaction counters backfilled: {} (day, store, region, product, gender, color) rows", rows);
+    }
+
+    /**
+     * Interaction counts over [from, to) grouped by {@code groupBy} (none = grand total), filtered by
+     * the non-null arguments. Defaults to the last 30 days.
+     */
+    @Transactional(readOnly = true)
+    public InteractionBreakdownDTO getBreakdown(List<Dimension> groupBy, LocalDate from, LocalDate to,
+                                                Long storeId, String region, Long productId,
+                                                String gender, String color) {
+        if (to == null) {
+            to = LocalDate.now().plusDays(1);
+        }
+        if (from == null) {
+            from = to.minusDays(30);
+        }
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (days <= 0) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (days > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range too large (max " + MAX_RANGE_DAYS + " days)");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (Dimension dimension : groupBy) {
+            sql.append(dimension.column).append(", ");
+        }
+        sql.append("SUM(c.interaction_count) FROM interaction_daily_counts c WHERE c.day >= ? AND c.day < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Date.valueOf(from));
+        args.add(Date.valueOf(to));
+        if (storeId != null) {
+            sql.append(" AND c.store_id = ?");
+            args.add(storeId);
+        }
+        if (region != null && !region.isBlank()) {
+            sql.append(" AND c.region = ?");
+            args.add(region);
+        }
+        if (productId != null) {
+            sql.append(" AND c.product_id = ?");
+            args.add(productId);
+        }
+        if (gender != null && !gender.isBlank()) {
+            sql.append(" AND c.gender = ?");
+            args.add(gender);
+        }
+        if (color != null && !color.isBlank()) {
+            sql.append(" AND c.color = ?");
+            args.add(color);
+        }
+        if (!groupBy.isEmpty()) {
+            sql.append(" GROUP BY ");
+            for (int i = 1; i <= groupBy.size(); i++) {
+                sql.append(i == 1 ? "" : ", ").append(i);
+            }
+        }
+        sql.append(" HAVING SUM(c.interaction_count) > 0 ORDER BY ").append(groupBy.size() + 1).append(" DESC");
+
+        List<Map<String, String>> keys = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            Map<String, String> rowKeys = new LinkedHashMap<>();
+            for (int i = 0; i < groupBy.size(); i++) {
+                rowKeys.put(groupBy.get(i).name(), rs.getString(i + 1));
+            }
+            keys.add(rowKeys);
+            counts.add(rs.getLong(groupBy.size() + 1));
+        }, args.toArray());
+
+        Map<String, String> productNames = groupBy.contains(Dimension.PRODUCT) ? productNames(keys) : Map.of();
+        Map<String, String> storeNames = groupBy.contains(Dimension.STORE) ? storeNames(keys) : Map.of();
+        long total = counts.stream().mapToLong(Long::longValue).sum();
+        List<InteractionBreakdownRowDTO> rows = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Map<String, String> rowKeys = keys.get(i);
+            Map<String, String> labels = new LinkedHashMap<>();
+            if (productNames.containsKey(rowKeys.get(Dimension.PRODUCT.name()))) {
+                labels.put(Dimension.PRODUCT.name(), productNames.get(rowKeys.get(Dimension.PRODUCT.name())));
+            }
+            if (storeNames.containsKey(rowKeys.get(Dimension.STORE.name()))) {
+                labels.put(Dimension.STORE.name(), storeNames.get(rowKeys.get(Dimension.STORE.name())));
+            }
+            rows.add(new InteractionBreakdownRowDTO(rowKeys, labels, counts.get(i),
+                    total == 0 ? 0.0 : Math.round(counts.get(i) * 10000.0 / total) / 10000.0));
+        }
+        return new InteractionBreakdownDTO(groupBy.stream().map(Enum::name).toList(), from, to, total, rows);
+    }
+
+    private Map<String, String> productNames(List<Map<String, String>> keys) {
+        Set<Long> ids = idsOf(keys, Dimension.PRODUCT);
+        return ids.isEmpty() ? Map.of() : productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(p -> p.getId().toString(), Product::getName));
+    }
+
+    private Map<String, String> storeNames(List<Map<String, String>> keys) {
+        Set<Long> ids = idsOf(keys, Dimension.STORE);
+        return ids.isEmpty() ? Map.of() : storeRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(s -> s.getId().toString(), Store::getName));
+    }
+
+    private static Set<Long> idsOf(List<Map<String, String>> keys, Dimension dimension) {
+        return keys.stream()
+                .map(k -> Long.valueOf(k.get(dimension.name())))
+                .filter(id -> id != InteractionDailyCount.NO_PRODUCT)
+                .collect(Collectors.toSet());
+    }
+
+    /** Region of each promoter, loaded once per user. */
+    private Map<Long, String> regionsOf(Collection<Long> userIds) {
+        Set<Long> missing = new HashSet<>();
+        for (Long id : userIds) {
+            if (id != null && !userRegions.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findAllById(missing)) {
+                userRegions.put(user.getId(), orNone(user.getRegion()));
+            }
+        }
+        Map<Long, String> regions = new HashMap<>();
+        userIds.stream().filter(Objects::nonNull).forEach(id -> regions.put(id, userRegions.get(id)));
+        return regions;
+    }
+
+    private static String orNone(String value) {
+        return value == null || value.isBlank() ? InteractionDailyCount.NONE : value;
+    }
+}
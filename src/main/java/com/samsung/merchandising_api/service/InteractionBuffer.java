@@ -0,0 +1,197 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.InteractionCreateDTO;
+import com.samsung.merchandising_api.event.InteractionChange;
+import com.samsung.merchandising_api.event.InteractionsChangedEvent;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for high-frequency interaction taps (/api/visits/{visitId}/interactions/async).
+ * <p>
+ * A tap is appended to a lock-free queue and acknowledged at once; the only statement on the
+ * request path is an existence check the first time a visit is seen. Every
+ * {@code app.interactions.buffer.flush-interval-ms} the queue is drained and written in one
+ * transaction: a JDBC batch insert of all rows, then a single
+ * {@code interaction_count = interaction_count + n} UPDATE per visit, in visit id order. Visits
+ * or products deleted in the meantime are dropped / nulled at flush. A failed batch is retried row by row, like the
+ * asynchronous visit queue. Taps still buffered at shutdown are flushed first.
+ */
+@Component
+public class InteractionBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(InteractionBuffer.class);
+
+    private static final String INSERT_INTERACTION =
+            "INSERT INTO interactions (id, visit_id, product_id, gender, color, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ADD_INTERACTION_COUNT =
+            "UPDATE visits SET interaction_count = COALESCE(interaction_count, 0) + ?, updated_at = now() WHERE id = ?";
+    private static final int MAX_KNOWN_VISITS = 100_000;
+
+    private record Tap(long visitId, Long productId, String gender, String color, LocalDateTime createdAt) {
+    }
+
+    private final Queue<Tap> taps = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    /** Visits already checked on the request path; cleared when it grows past MAX_KNOWN_VISITS. */
+    private final Set<Long> knownVisits = ConcurrentHashMap.newKeySet();
+
+    private final VisitRepository visitRepository;
+    private final ProductRepository productRepository;
+    private final SequenceIdAllocator idAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int capacity;
+    private final int batchSize;
+
+    public InteractionBuffer(VisitRepository visitRepository,
+                             ProductRepository productRepository,
+                             SequenceIdAllocator idAllocator,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${app.interactions.buffer.capacity:20000}") int capacity,
+                             @Value("${app.interactions.buffer.batch-size:1000}") int batchSize) {
+        this.visitRepository = visitRepository;
+        this.productRepository = productRepository;
+        this.idAllocator = idAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isKnownVisit(Long visitId) {
+        if (knownVisits.contains(visitId)) {
+            return true;
+        }
+        if (!visitRepository.existsById(visitId)) {
+            return false;
+        }
+        if (knownVisits.size() >= MAX_KNOWN_VISITS) {
+            knownVisits.clear();
+        }
+        knownVisits.add(visitId);
+        return true;
+    }
+
+    /** @return false when the buffer is full (backpressure) */
+    public boolean offer(Long visitId, InteractionCreateDTO dto) {
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            return false;
+        }
+        taps.offer(new Tap(visitId, dto.getProductId(), dto.getGender(), dto.getColor(), LocalDateTime.now()));
+        return true;
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.interactions.buffer.flush-interval-ms:500}")
+    public void flush() {
+        List<Tap> batch = new ArrayList<>(batchSize);
+        Tap tap;
+        while ((tap = taps.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(tap);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing {} buffered interactions before shutdown", depth.get());
+        flush();
+    }
+
+    private void write(List<Tap> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> insert(batch));
+        } catch (RuntimeException ex) {
+            if (batch.size() > 1) {
+                log.warn("Batch of {} interactions failed, retrying one by one: {}", batch.size(), ex.getMessage());
+                for (Tap tap : batch) {
+                    write(List.of(tap));
+                }
+            } else {
+                log.error("Interaction for visit {} could not be persisted", batch.get(0).visitId(), ex);
+            }
+        }
+    }
+
+    private void insert(List<Tap> batch) {
+        Set<Long> visitIds = batch.stream().map(Tap::visitId).collect(Collectors.toSet());
+        Map<Long, VisitSnapshot> visits = visitRepository.findSnapshotsByIdIn(visitIds).stream()
+                .collect(Collectors.toMap(VisitSnapshot::visitId, v -> v));
+        Set<Long> productIds = batch.stream().map(Tap::productId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> existingProducts = productIds.isEmpty() ? Set.of() : productRepository.findAllById(productIds).stream()
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+
+        List<Tap> valid = batch.stream().filter(t -> visits.containsKey(t.visitId())).toList();
+        if (valid.size() < batch.size()) {
+            log.warn("Dropped {} buffered interactions of deleted visits", batch.size() - valid.size());
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        List<Long> ids = idAllocator.nextIds("interactions", valid.size());
+        List<Object[]> rows = new ArrayList<>(valid.size());
+        // Sorted by visit id: concurrent writers take the visit row locks in the same order
+        Map<Long, Integer> counts = new TreeMap<>();
+        List<InteractionChange> changes = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            Tap t = valid.get(i);
+            Long productId = t.productId() != null && existingProducts.contains(t.productId()) ? t.productId() : null;
+            rows.add(new Object[]{ids.get(i), t.visitId(), productId, t.gender(), t.color(), Timestamp.valueOf(t.createdAt())});
+            counts.merge(t.visitId(), 1, Integer::sum);
+            VisitSnapshot visit = visits.get(t.visitId());
+            changes.add(new InteractionChange(t.visitId(), visit.userId(), visit.storeId(), productId,
+                    t.gender(), t.color(), t.createdAt(), false));
+        }
+        jdbcTemplate.batchUpdate(INSERT_INTERACTION, rows,
+                new int[]{Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP});
+        jdbcTemplate.batchUpdate(ADD_INTERACTION_COUNT, counts.entrySet().stream()
+                        .map(e -> new Object[]{e.getValue(), e.getKey()})
+                        .collect(Collectors.toList()),
+                new int[]{Types.INTEGER, Types.BIGINT});
+        eventPublisher.publishEvent(new InteractionsChangedEvent(changes));
+    }
+}
@@ -0,0 +1,126 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.InteractionCreateDTO;
+import com.samsung.merchandising_api.dto.InteractionDTO;
+import com.samsung.merchandising_api.event.InteractionChange;
+import com.samsung.merchandising_api.event.InteractionsChangedEvent;
+import com.samsung.merchandising_api.model.Interaction;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.repository.InteractionRepository;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Synchronous interaction writes of a visit (/api/visits/{visitId}/interactions); taps go through
+ * {@link InteractionBuffer} instead.
+ * <p>
+ * Every write adjusts the visit's {@code interactionCount} with an atomic delta and publishes an
+ * {@link InteractionsChangedEvent} in the same transaction, so the demographics counters follow the
+ * committed rows.
+ */
+@Service
+public class InteractionService {
+
+    private final InteractionRepository interactionRepository;
+    private final VisitRepository visitRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InteractionService(InteractionRepository interactionRepository,
+                              VisitRepository visitRepository,
+                              ProductRepository productRepository,
+                              ApplicationEventPublisher eventPublisher) {
+        this.interactionRepository = interactionRepository;
+        this.visitRepository = visitRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /** Add one interaction to the visit (an unknown product is left empty). Empty when the visit does not exist. */
+    @Transactional
+    public Optional<InteractionDTO> addInteraction(Long visitId, InteractionCreateDTO dto) {
+        Visit visit = visitRepository.findById(visitId).orElse(null);
+        if (visit == null) {
+            return Optional.empty();
+        }
+        Product product = dto.getProductId() != null ? productRepository.findById(dto.getProductId()).orElse(null) : null;
+        Interaction saved = interactionRepository.save(newInteraction(visit, product, dto));
+
+        // Increment the interaction count on the Visit in place
+        visitRepository.addToInteractionCount(visitId, 1);
+        eventPublisher.publishEvent(new InteractionsChangedEvent(List.of(InteractionChange.of(saved, false))));
+        return Optional.of(InteractionDTO.fromEntity(saved));
+    }
+
+    /** Add several interactions to the visit; products are loaded in one query. Empty when the visit does not exist. */
+    @Transactional
+    public Optional<List<InteractionDTO>> addInteractions(Long visitId, List<InteractionCreateDTO> dtos) {
+        Visit visit = visitRepository.findById(visitId).orElse(null);
+        if (visit == null) {
+            return Optional.empty();
+        }
+        Set<Long> productIds = dtos.stream()
+                .map(InteractionCreateDTO::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = productIds.isEmpty() ? Map.of() : productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<InteractionDTO> results = new ArrayList<>();
+        List<InteractionChange> changes = new ArrayList<>();
+        for (InteractionCreateDTO dto : dtos) {
+            Product product = dto.getProductId() != null ? products.get(dto.getProductId()) : null;
+            Interaction saved = interactionRepository.save(newInteraction(visit, product, dto));
+            results.add(InteractionDTO.fromEntity(saved));
+            changes.add(InteractionChange.of(saved, false));
+        }
+
+        // One increment of the interaction count for the whole batch
+        if (!results.isEmpty()) {
+            visitRepository.addToInteractionCount(visitId, results.size());
+            eventPublisher.publishEvent(new InteractionsChangedEvent(changes));
+        }
+        return Optional.of(results);
+    }
+
+    /** Delete an interaction of the visit; false when there is no such interaction on this visit. */
+    @Transactional
+    public boolean deleteInteraction(Long visitId, Long interactionId) {
+        Interaction interaction = interactionRepository.findById(interactionId).orElse(null);
+        if (interaction == null || !interaction.getVisit().getId().equals(visitId)) {
+            return false;
+        }
+
+        InteractionChange removed = InteractionChange.of(interaction, true);
+        interactionRepository.delete(interaction);
+
+        // Decrement the interaction count
+        visitRepository.addToInteractionCount(visitId, -1);
+        eventPublisher.publishEvent(new InteractionsChangedEvent(List.of(removed)));
+        return true;
+    }
+
+    private static Interaction newInteraction(Visit visit, Product product, InteractionCreateDTO dto) {
+        Interaction interaction = new Interaction();
+        interaction.setVisit(visit);
+        interaction.setProduct(product);
+        interaction.setGender(dto.getGender());
+        interaction.setColor(dto.getColor());
+        interaction.setCreatedAt(LocalDateTime.now());
+        return interaction;
+    }
+}
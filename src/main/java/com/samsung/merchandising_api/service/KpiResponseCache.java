@@ -0,0 +1,114 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.CacheStatsDTO;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.event.VisitStatusChangedEvent;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache for the polled KPI responses (dashboard summary, visit stats).
+ * <p>
+ * Entries are dropped as soon as a visit / sellout write commits, and expire after a short TTL as a
+ * safety net for changes that publish no event (assignments, reconciliation, day rollover).
+ * Invalidation bumps a generation number instead of racing with in-flight loads: a value loaded
+ * before the bump is stored with the old generation and is never served. Concurrent misses on the
+ * same key wait for a single load.
+ */
+@Component
+public class KpiResponseCache {
+
+    public static final String DASHBOARD_SUMMARY = "dashboard-summary";
+    public static final String VISIT_STATS = "visit-stats";
+
+    private record Entry(Object value, long generation, long expiresAtNanos) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAccumulator maxLoadNanos = new LongAccumulator(Math::max, 0);
+
+    public KpiResponseCache(@Value("${app.dashboard.cache.ttl-ms:10000}") long ttlMillis) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        Entry entry = entries.get(key);
+        if (isFresh(entry)) {
+            hits.increment();
+            return (T) entry.value();
+        }
+        // compute() serializes loads of the same key; whoever waited re-checks freshness first
+        return (T) entries.compute(key, (k, current) -> {
+            if (isFresh(current)) {
+                hits.increment();
+                return current;
+            }
+            misses.increment();
+            long gen = generation.get();
+            long start = System.nanoTime();
+            T value = loader.get();
+            long elapsed = System.nanoTime() - start;
+            loadNanos.add(elapsed);
+            maxLoadNanos.accumulate(elapsed);
+            return new Entry(value, gen, System.nanoTime() + ttlNanos);
+        }).value();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        invalidations.increment();
+    }
+
+    // After commit: invalidating earlier would let a concurrent reader cache the pre-commit totals
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVisitSubmitted(VisitSubmittedEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVisitStatusChanged(VisitStatusChangedEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSelloutChanged(SelloutChangedEvent event) {
+        invalidateAll();
+    }
+
+    public CacheStatsDTO getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return new CacheStatsDTO(
+                hitCount,
+                missCount,
+                requests == 0 ? 0.0 : (double) hitCount / requests,
+                invalidations.sum(),
+                missCount == 0 ? 0.0 : loadNanos.sum() / 1_000_000.0 / missCount,
+                maxLoadNanos.get() / 1_000_000.0,
+                entries.size(),
+                ttlNanos / 1_000_000L);
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry != null && entry.generation() == generation.get() && System.nanoTime() - entry.expiresAtNanos() < 0;
+    }
+}
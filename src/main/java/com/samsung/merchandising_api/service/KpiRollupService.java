@@ -0,0 +1,238 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.TrendPointDTO;
+import com.samsung.merchandising_api.dto.TrendsDTO;
+import com.samsung.merchandising_api.model.RollupWatermark;
+import com.samsung.merchandising_api.repository.RollupWatermarkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hourly and daily KPI rollups per (store, promoter), and the trend queries served from them.
+ * <p>
+ * A scheduled job reads only the visits whose {@code updated_at} moved past the stored watermark,
+ * derives the (hour, store, promoter) buckets they fall in, and recomputes those buckets from
+ * {@code visits} with one INSERT ... ON CONFLICT statement; touched days are then re-summed from
+ * the hourly rows. Recomputing a whole bucket makes a run idempotent, so each run re-reads a short
+ * overlap before the watermark to catch transactions that committed late. The first run (no
+ * watermark yet) backfills every bucket.
+ */
+@Service
+public class KpiRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(KpiRollupService.class);
+
+    static final String WATERMARK = "kpi_rollups";
+
+    private static final long MAX_HOURLY_RANGE_DAYS = 31;
+    private static final long MAX_RANGE_DAYS = 3 * 366;
+
+    public enum Granularity {
+        HOUR("hour"), DAY("day"), WEEK("week"), MONTH("month");
+
+        private final String dateTrunc;
+
+        Granularity(String dateTrunc) {
+            this.dateTrunc = dateTrunc;
+        }
+    }
+
+    /** Trend grouping; expressions are fixed SQL over the rollup columns, never user input. */
+    public enum Dimension {
+        NONE(null, null),
+        REGION("t.region", "t.region"),
+        CITY("t.city", "t.city"),
+        STORE("CAST(t.store_id AS VARCHAR)", "MAX(t.store_name)"),
+        PROMOTER("CAST(t.user_id AS VARCHAR)", "MAX(t.user_name)");
+
+        private final String keyExpr;
+        private final String labelExpr;
+
+        Dimension(String keyExpr, String labelExpr) {
+            this.keyExpr = keyExpr;
+            this.labelExpr = labelExpr;
+        }
+    }
+
+    private static final String COMPLETED = "FILTER (WHERE v.status = 'COMPLETED')";
+
+    // %s: predicate on visits d selecting the changed rows
+    private static final String UPSERT_HOURLY =
+            "WITH dirty AS (SELECT DISTINCT date_trunc('hour', d.visit_date) AS bucket, d.store_id, d.user_id " +
+            "FROM visits d WHERE %s) " +
+            "INSERT INTO kpi_rollup_hourly (bucket_start, store_id, user_id, store_name, user_name, city, region, " +
+            "completed_visits, sales_sum, shelf_share_sum, shelf_share_count, updated_at) " +
+            "SELECT dirty.bucket, dirty.store_id, dirty.user_id, s.name, u.full_name, s.city, u.region, " +
+            "COUNT(v.id) " + COMPLETED + ", " +
+            "COALESCE(SUM(v.sales_amount) " + COMPLETED + ", 0), " +
+            "COALESCE(SUM(v.shelf_share) " + COMPLETED + ", 0), " +
+            "COUNT(v.shelf_share) " + COMPLETED + ", now() " +
+            "FROM dirty " +
+            "JOIN stores s ON s.id = dirty.store_id " +
+            "JOIN users u ON u.id = dirty.user_id " +
+            "JOIN visits v ON v.store_id = dirty.store_id AND v.user_id = dirty.user_id " +
+            "AND v.visit_date >= dirty.bucket AND v.visit_date < dirty.bucket + INTERVAL '1 hour' " +
+            "GROUP BY dirty.bucket, dirty.store_id, dirty.user_id, s.name, u.full_name, s.city, u.region " +
+            "ON CONFLICT (bucket_start, store_id, user_id) DO UPDATE SET " +
+            "store_name = EXCLUDED.store_name, user_name = EXCLUDED.user_name, " +
+            "city = EXCLUDED.city, region = EXCLUDED.region, " +
+            "completed_visits = EXCLUDED.completed_visits, sales_sum = EXCLUDED.sales_sum, " +
+            "shelf_share_sum = EXCLUDED.shelf_share_sum, shelf_share_count = EXCLUDED.shelf_share_count, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String UPSERT_DAILY =
+            "WITH dirty AS (SELECT DISTINCT CAST(d.visit_date AS DATE) AS day, d.store_id, d.user_id " +
+            "FROM visits d WHERE %s) " +
+            "INSERT INTO kpi_rollup_daily (day, store_id, user_id, store_name, user_name, city, region, " +
+            "completed_visits, sales_sum, shelf_share_sum, shelf_share_count, updated_at) " +
+            "SELECT dirty.day, dirty.store_id, dirty.user_id, MAX(h.store_name), MAX(h.user_name), " +
+            "MAX(h.city), MAX(h.region), SUM(h.completed_visits), SUM(h.sales_sum), " +
+            "SUM(h.shelf_share_sum), SUM(h.shelf_share_count), now() " +
+            "FROM dirty " +
+            "JOIN kpi_rollup_hourly h ON h.store_id = dirty.store_id AND h.user_id = dirty.user_id " +
+            "AND h.bucket_start >= dirty.day AND h.bucket_start < dirty.day + INTERVAL '1 day' " +
+            "GROUP BY dirty.day, dirty.store_id, dirty.user_id " +
+            "ON CONFLICT (day, store_id, user_id) DO UPDATE SET " +
+            "store_name = EXCLUDED.store_name, user_name = EXCLUDED.user_name, " +
+            "city = EXCLUDED.city, region = EXCLUDED.region, " +
+            "completed_visits = EXCLUDED.completed_visits, sales_sum = EXCLUDED.sales_sum, " +
+            "shelf_share_sum = EXCLUDED.shelf_share_sum, shelf_share_count = EXCLUDED.shelf_share_count, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String CHANGED_SINCE = "d.updated_at > ? AND d.updated_at <= ?";
+    private static final String ALL_UP_TO = "(d.updated_at IS NULL OR d.updated_at <= ?)";
+
+    private final RollupWatermarkRepository watermarkRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final long overlapSeconds;
+
+    public KpiRollupService(RollupWatermarkRepository watermarkRepository,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${app.rollups.overlap-seconds:120}") long overlapSeconds) {
+        this.watermarkRepository = watermarkRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.overlapSeconds = overlapSeconds;
+    }
+
+    /**
+     * Fold visits changed since the last run into the rollups, then advance the watermark.
+     * Everything happens in one transaction: a failed run leaves the watermark where it was.
+     */
+    @Scheduled(fixedDelayString = "${app.rollups.interval-ms:60000}",
+            initialDelayString = "${app.rollups.initial-delay-ms:30000}")
+    @Transactional
+    public void refresh() {
+        LocalDateTime upTo = LocalDateTime.now();
+        RollupWatermark mark = watermarkRepository.findById(WATERMARK).orElse(null);
+
+        int hourly;
+        int daily;
+        if (mark == null) {
+            Timestamp to = Timestamp.valueOf(upTo);
+            hourly = jdbcTemplate.update(String.format(UPSERT_HOURLY, ALL_UP_TO), to);
+            daily = jdbcTemplate.update(String.format(UPSERT_DAILY, ALL_UP_TO), to);
+            mark = new RollupWatermark();
+            mark.setName(WATERMARK);
+            log.info("KPI rollups backfilled: {} hourly and {} daily rows", hourly, daily);
+        } else {
+            Timestamp from = Timestamp.valueOf(mark.getWatermark().minusSeconds(overlapSeconds));
+            Timestamp to = Timestamp.valueOf(upTo);
+            hourly = jdbcTemplate.update(String.format(UPSERT_HOURLY, CHANGED_SINCE), from, to);
+            daily = jdbcTemplate.update(String.format(UPSERT_DAILY, CHANGED_SINCE), from, to);
+        }
+        mark.setWatermark(upTo);
+        mark.setLastRunAt(LocalDateTime.now());
+        mark.setLastRunRows((long) hourly + daily);
+        watermarkRepository.save(mark);
+    }
+
+    /**
+     * Trend series over [from, to) read from the rollup tables only.
+     * HOUR reads kpi_rollup_hourly; DAY / WEEK / MONTH read kpi_rollup_daily.
+     */
+    @Transactional(readOnly = true)
+    public TrendsDTO getTrends(Granularity granularity, Dimension groupBy, LocalDate from, LocalDate to,
+                               String region, String city, Long storeId, Long userId) {
+        if (to == null) {
+            to = LocalDate.now().plusDays(1);
+        }
+        if (from == null) {
+            from = to.minusDays(granularity == Granularity.HOUR ? 2 : 30);
+        }
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (days <= 0) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        long maxDays = granularity == Granularity.HOUR ? MAX_HOURLY_RANGE_DAYS : MAX_RANGE_DAYS;
+        if (days > maxDays) {
+            throw new IllegalArgumentException("Range too large for " + granularity + " (max " + maxDays + " days)");
+        }
+
+        boolean hourly = granularity == Granularity.HOUR;
+        String column = hourly ? "t.bucket_start" : "t.day";
+        String bucket = "date_trunc('" + granularity.dateTrunc + "', " + column + ")";
+        StringBuilder sql = new StringBuilder("SELECT ").append(bucket).append(" AS bucket, ");
+        if (groupBy.keyExpr != null) {
+            sql.append(groupBy.keyExpr).append(" AS dim_key, ").append(groupBy.labelExpr).append(" AS dim_label, ");
+        } else {
+            sql.append("NULL AS dim_key, NULL AS dim_label, ");
+        }
+        sql.append("SUM(t.completed_visits), SUM(t.sales_sum), SUM(t.shelf_share_sum), SUM(t.shelf_share_count) ")
+                .append("FROM ").append(hourly ? "kpi_rollup_hourly" : "kpi_rollup_daily").append(" t ")
+                .append("WHERE ").append(column).append(" >= ? AND ").append(column).append(" < ?");
+        List<Object> args = new ArrayList<>();
+        if (hourly) {
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+            args.add(Timestamp.valueOf(to.atStartOfDay()));
+        } else {
+            args.add(Date.valueOf(from));
+            args.add(Date.valueOf(to));
+        }
+        if (region != null && !region.isBlank()) {
+            sql.append(" AND t.region = ?");
+            args.add(region);
+        }
+        if (city != null && !city.isBlank()) {
+            sql.append(" AND t.city = ?");
+            args.add(city);
+        }
+        if (storeId != null) {
+            sql.append(" AND t.store_id = ?");
+            args.add(storeId);
+        }
+        if (userId != null) {
+            sql.append(" AND t.user_id = ?");
+            args.add(userId);
+        }
+        sql.append(groupBy.keyExpr != null ? " GROUP BY 1, 2 ORDER BY 1, 2" : " GROUP BY 1 ORDER BY 1");
+
+        List<TrendPointDTO> points = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            long shelfShareCount = rs.getLong(7);
+            return new TrendPointDTO(
+                    rs.getTimestamp(1).toLocalDateTime(),
+                    rs.getString(2),
+                    rs.getString(3),
+                    rs.getLong(4),
+                    rs.getDouble(5),
+                    shelfShareCount == 0 ? 0.0 : rs.getDouble(6) / shelfShareCount);
+        }, args.toArray());
+
+        LocalDateTime dataUpTo = watermarkRepository.findById(WATERMARK)
+                .map(RollupWatermark::getWatermark)
+                .orElse(null);
+        return new TrendsDTO(granularity.name(), groupBy.name(), from, to, dataUpTo, points);
+    }
+}
@@ -0,0 +1,211 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.event.KpiDeltaEvent;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitStatusChangedEvent;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import com.samsung.merchandising_api.model.KpiTotals;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.KpiTotalsRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Running KPI totals over COMPLETED visits (count, sales, shelf share).
+ * <p>
+ * Writers publish visit / sellout events; the listeners here run synchronously in the writer's
+ * transaction and apply one atomic delta UPDATE on a random stripe of {@code kpi_totals}, so the
+ * totals commit or roll back together with the change that caused them and concurrent writers
+ * rarely contend on the same row. Reading the summary sums the {@link KpiTotals#STRIPES} rows
+ * instead of three full scans of {@code visits}. Each applied delta is re-published as a
+ * {@link KpiDeltaEvent} for live consumers. A scheduled reconciliation recomputes the
+ * totals from the source tables and applies the difference as one more delta to correct any drift.
+ */
+@Service
+public class KpiService {
+
+    private static final Logger log = LoggerFactory.getLogger(KpiService.class);
+
+    private static final String CREATE_STRIPE =
+            "INSERT INTO kpi_totals (id, completed_visits, sales_sum, shelf_share_sum, shelf_share_count, updated_at) " +
+            "VALUES (?, 0, 0, 0, 0, now()) ON CONFLICT (id) DO NOTHING";
+
+    private final KpiTotalsRepository kpiTotalsRepository;
+    private final VisitRepository visitRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
+
+    public KpiService(KpiTotalsRepository kpiTotalsRepository, VisitRepository visitRepository,
+                      ApplicationEventPublisher eventPublisher, JdbcTemplate jdbcTemplate,
+                      PlatformTransactionManager transactionManager) {
+        this.kpiTotalsRepository = kpiTotalsRepository;
+        this.visitRepository = visitRepository;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // One snapshot for both the source aggregate and the stripes, so their difference is exact drift
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+    }
+
+    /** Current totals (sum of the stripes); rebuilt from the source tables if the rows do not exist yet. */
+    public KpiTotals getTotals() {
+        List<KpiTotals> stripes = kpiTotalsRepository.findAllById(KpiTotals.stripeIds());
+        if (stripes.size() < KpiTotals.STRIPES) {
+            reconcile();
+            stripes = kpiTotalsRepository.findAllById(KpiTotals.stripeIds());
+        }
+        return sum(stripes);
+    }
+
+    @EventListener
+    public void onVisitSubmitted(VisitSubmittedEvent event) {
+        Delta delta = new Delta();
+        for (VisitSnapshot visit : event.visits()) {
+            if (visit.status() == VisitStatus.COMPLETED) {
+                delta.add(visit, 1);
+            }
+        }
+        apply(delta);
+    }
+
+    @EventListener
+    public void onVisitStatusChanged(VisitStatusChangedEvent event) {
+        Delta delta = new Delta();
+        boolean nowCompleted = event.newStatus() == VisitStatus.COMPLETED;
+        for (VisitStatusChangedEvent.Moved moved : event.moved()) {
+            boolean wasCompleted = moved.status() == VisitStatus.COMPLETED;
+            if (wasCompleted && !nowCompleted) {
+                delta.add(moved, -1);
+            } else if (!wasCompleted && nowCompleted) {
+                delta.add(moved, 1);
+            }
+        }
+        apply(delta);
+    }
+
+    @EventListener
+    public void onSelloutChanged(SelloutChangedEvent event) {
+        Delta delta = new Delta();
+        for (SelloutChange change : event.changes()) {
+            if (change.visitStatus() == VisitStatus.COMPLETED) {
+                delta.sales += change.amountDelta();
+            }
+        }
+        apply(delta);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Recompute the totals from {@code visits}. The aggregate and the stripes are read in one
+     * REPEATABLE READ snapshot without locking anything; their difference is then added to stripe 0
+     * as a delta, so writers committing during the scan are neither blocked nor overwritten.
+     */
+    @Scheduled(fixedDelayString = "${app.kpi.reconcile-interval-ms:900000}",
+            initialDelayString = "${app.kpi.reconcile-interval-ms:900000}")
+    public KpiTotals reconcile() {
+        transactionTemplate.executeWithoutResult(tx -> jdbcTemplate.batchUpdate(CREATE_STRIPE,
+                KpiTotals.stripeIds().stream().map(id -> new Object[]{id}).toList()));
+
+        Delta drift = snapshotTransaction.execute(tx -> {
+            KpiTotals current = sum(kpiTotalsRepository.findAllById(KpiTotals.stripeIds()));
+            Object[] row = visitRepository.aggregateCompletedVisits().get(0);
+            Delta d = new Delta();
+            d.visits = ((Number) row[0]).longValue() - current.getCompletedVisits();
+            d.sales = ((Number) row[1]).doubleValue() - current.getSalesSum();
+            d.shelfShareSum = ((Number) row[2]).doubleValue() - current.getShelfShareSum();
+            d.shelfShareCount = ((Number) row[3]).longValue() - current.getShelfShareCount();
+            return d;
+        });
+
+        if (drift.visits != 0 || Math.abs(drift.sales) > 0.005 || drift.shelfShareCount != 0) {
+            log.info("KPI drift corrected: visits {}, sales {}, shelfShareCount {}",
+                    drift.visits, drift.sales, drift.shelfShareCount);
+        }
+        transactionTemplate.executeWithoutResult(tx -> kpiTotalsRepository.applyCorrection(KpiTotals.stripeId(0),
+                drift.visits, drift.sales, drift.shelfShareSum, drift.shelfShareCount, LocalDateTime.now()));
+        return sum(kpiTotalsRepository.findAllById(KpiTotals.stripeIds()));
+    }
+
+    private void apply(Delta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        // 0 rows updated means the stripe is not built yet: the next reconciliation will include this change
+        String stripe = KpiTotals.stripeId(ThreadLocalRandom.current().nextInt(KpiTotals.STRIPES));
+        kpiTotalsRepository.applyDelta(stripe, delta.visits, delta.sales,
+                delta.shelfShareSum, delta.shelfShareCount, LocalDateTime.now());
+        eventPublisher.publishEvent(new KpiDeltaEvent(delta.visits, delta.sales,
+                delta.shelfShareSum, delta.shelfShareCount));
+    }
+
+    private static KpiTotals sum(List<KpiTotals> stripes) {
+        KpiTotals total = new KpiTotals();
+        total.setId(KpiTotals.GLOBAL);
+        for (KpiTotals stripe : stripes) {
+            total.setCompletedVisits(total.getCompletedVisits() + stripe.getCompletedVisits());
+            total.setSalesSum(total.getSalesSum() + stripe.getSalesSum());
+            total.setShelfShareSum(total.getShelfShareSum() + stripe.getShelfShareSum());
+            total.setShelfShareCount(total.getShelfShareCount() + stripe.getShelfShareCount());
+            total.setUpdatedAt(latest(total.getUpdatedAt(), stripe.getUpdatedAt()));
+            total.setReconciledAt(latest(total.getReconciledAt(), stripe.getReconciledAt()));
+        }
+        return total;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+
+    private static final class Delta {
+        long visits;
+        double sales;
+        double shelfShareSum;
+        long shelfShareCount;
+
+        void add(VisitSnapshot visit, int sign) {
+            visits += sign;
+            if (visit.salesAmount() != null) {
+                sales += sign * visit.salesAmount();
+            }
+            if (visit.shelfShare() != null) {
+                shelfShareSum += sign * visit.shelfShare();
+                shelfShareCount += sign;
+            }
+        }
+
+        void add(VisitStatusChangedEvent.Moved moved, int sign) {
+            visits += sign * moved.visits();
+            sales += sign * moved.salesAmount();
+            shelfShareSum += sign * moved.shelfShareSum();
+            shelfShareCount += sign * moved.shelfShareCount();
+        }
+
+        boolean isEmpty() {
+            return visits == 0 && sales == 0 && shelfShareSum == 0 && shelfShareCount == 0;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.samsung.merchandising_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samsung.merchandising_api.event.KpiDeltaEvent;
+import com.samsung.merchandising_api.event.VisitStatusChangedEvent;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fan-out of committed visit / KPI events to the supervisors' SSE connections (/api/dashboard/live).
+ * <p>
+ * Publishing never touches a socket: each message is serialized once and offered to every
+ * connection's bounded buffer. A small sender pool drains the buffers, with at most one sender per
+ * connection at a time so writes to an emitter stay ordered. A connection whose buffer is full has
+ * fallen behind and is closed; the client's EventSource reconnects and reloads the summary.
+ * Request threads are released as soon as the emitter is returned.
+ * <p>
+ * {@code emitter.send} is a blocking socket write, so a client that stops reading pins a sender.
+ * Each send is stamped with its start time; a watchdog closes connections whose current send is
+ * older than {@code app.live-feed.send-timeout-ms}, and the servlet container's write timeout
+ * ({@code server.tomcat.connection-timeout}, set to the same value) makes the stuck write itself
+ * fail, which gives the sender back to the other connections.
+ */
+@Component
+public class LiveFeedBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveFeedBroadcaster.class);
+
+    public static final String VISIT_SUBMITTED = "visit-submitted";
+    public static final String VISIT_STATUS_CHANGED = "visit-status-changed";
+    public static final String KPI_DELTA = "kpi-delta";
+
+    /** Pre-serialized event; a null name is an SSE comment (heartbeat). */
+    private record Message(long id, String name, String json) {
+    }
+
+    private final class Connection {
+        final long id;
+        final SseEmitter emitter;
+        final BlockingQueue<Message> buffer;
+        final AtomicBoolean draining = new AtomicBoolean();
+        /** System.nanoTime() at the start of the send in progress, 0 when idle. */
+        volatile long sendStartedAt;
+
+        Connection(long id, SseEmitter emitter) {
+            this.id = id;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private final Map<Long, Connection> connections = new ConcurrentHashMap<>();
+    private final AtomicLong connectionIds = new AtomicLong();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder published = new LongAdder();
+
+    private final ObjectMapper objectMapper;
+    private final ExecutorService senders;
+    private final ExecutorService closer;
+    private final int bufferSize;
+    private final int maxConnections;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+
+    public LiveFeedBroadcaster(ObjectMapper objectMapper,
+                               @Value("${app.live-feed.sender-threads:4}") int senderThreads,
+                               @Value("${app.live-feed.buffer-size:256}") int bufferSize,
+                               @Value("${app.live-feed.max-connections:5000}") int maxConnections,
+                               @Value("${app.live-feed.timeout-ms:1800000}") long timeoutMillis,
+                               @Value("${app.live-feed.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxConnections = maxConnections;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "live-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Completing an emitter waits for its write lock, which a stuck send holds: keep that off the senders
+        this.closer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-feed-closer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open a connection; {@code initialPayload} is sent first as {@code initialEvent}.
+     * Empty when the node already holds {@code app.live-feed.max-connections} connections.
+     */
+    public Optional<SseEmitter> subscribe(String initialEvent, Object initialPayload) {
+        if (connections.size() >= maxConnections) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(connectionIds.incrementAndGet(), emitter);
+        emitter.onCompletion(() -> connections.remove(connection.id));
+        emitter.onTimeout(() -> connections.remove(connection.id));
+        emitter.onError(ex -> connections.remove(connection.id));
+        connections.put(connection.id, connection);
+        if (initialEvent != null) {
+            offer(connection, message(initialEvent, initialPayload));
+        }
+        return Optional.of(emitter);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVisitSubmitted(VisitSubmittedEvent event) {
+        broadcast(VISIT_SUBMITTED, event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVisitStatusChanged(VisitStatusChangedEvent event) {
+        broadcast(VISIT_STATUS_CHANGED, event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKpiDelta(KpiDeltaEvent event) {
+        broadcast(KPI_DELTA, event);
+    }
+
+    /** Keeps idle connections open through proxies and flushes out dead ones. */
+    @Scheduled(fixedDelayString = "${app.live-feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (!connections.isEmpty()) {
+            Message ping = new Message(0, null, "ping");
+            connections.values().forEach(connection -> offer(connection, ping));
+        }
+    }
+
+    /** Closes connections whose current send has been blocked longer than the send timeout. */
+    @Scheduled(fixedDelayString = "${app.live-feed.watchdog-interval-ms:1000}")
+    public void closeStuckConnections() {
+        long now = System.nanoTime();
+        for (Connection connection : connections.values()) {
+            long started = connection.sendStartedAt;
+            if (started != 0 && now - started > sendTimeoutNanos) {
+                dropped.increment();
+                log.info("Live feed connection {} dropped: send blocked for more than {} ms", connection.id,
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                close(connection, new IOException("Send timeout"));
+            }
+        }
+    }
+
+    public void broadcast(String name, Object payload) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        Message message = message(name, payload);
+        if (message == null) {
+            return;
+        }
+        published.increment();
+        connections.values().forEach(connection -> offer(connection, message));
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(connection -> connection.emitter.complete());
+        connections.clear();
+        senders.shutdownNow();
+        closer.shutdownNow();
+    }
+
+    private Message message(String name, Object payload) {
+        try {
+            return new Message(eventIds.incrementAndGet(), name, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException ex) {
+            log.error("Live feed event {} could not be serialized", name, ex);
+            return null;
+        }
+    }
+
+    private void offer(Connection connection, Message message) {
+        if (message == null) {
+            return;
+        }
+        if (!connection.buffer.offer(message)) {
+            dropped.increment();
+            log.info("Live feed connection {} dropped: {} events behind", connection.id, bufferSize);
+            close(connection, new IOException("Slow consumer"));
+            return;
+        }
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    private void drain(Connection connection) {
+        do {
+            Message message;
+            while ((message = connection.buffer.poll()) != null) {
+                if (!connections.containsKey(connection.id)) {
+                    return;
+                }
+                connection.sendStartedAt = System.nanoTime();
+                try {
+                    connection.emitter.send(message.name() == null
+                            ? SseEmitter.event().comment(message.json())
+                            : SseEmitter.event().id(Long.toString(message.id())).name(message.name())
+                                    .data(message.json(), MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException ex) {
+                    close(connection, ex);
+                    return;
+                } finally {
+                    connection.sendStartedAt = 0;
+                }
+            }
+            connection.draining.set(false);
+            // A message offered between the last poll and the reset would otherwise wait for the next one
+        } while (!connection.buffer.isEmpty() && connection.draining.compareAndSet(false, true));
+    }
+
+    private void close(Connection connection, Throwable cause) {
+        if (connections.remove(connection.id) != null) {
+            connection.buffer.clear();
+            // The emitter's lock may be held by a sender stuck writing to this client: never wait for it here
+            closer.execute(() -> connection.emitter.completeWithError(cause));
+        }
+    }
+}
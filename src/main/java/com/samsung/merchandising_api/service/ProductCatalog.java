@@ -0,0 +1,194 @@
+package com.samsung.merchandising_api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samsung.merchandising_api.dto.ProductCatalogDeltaDTO;
+import com.samsung.merchandising_api.dto.ProductDTO;
+import com.samsung.merchandising_api.event.ProductCatalogChangedEvent;
+import com.samsung.merchandising_api.model.CatalogVersion;
+import com.samsung.merchandising_api.model.ProductRemoval;
+import com.samsung.merchandising_api.repository.CatalogVersionRepository;
+import com.samsung.merchandising_api.repository.ProductRemovalRepository;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Versioned product catalog for the mobile app (GET /api/products).
+ * <p>
+ * Every product write takes the next catalog version under a row lock on {@code catalog_versions}
+ * and stamps it on the rows it touches; deletions leave a tombstone in {@code product_removals}.
+ * Versions therefore commit in increasing order, which is what makes {@code ?since=N} deltas exact.
+ * <p>
+ * The full catalog is kept serialized in memory, both as JSON and gzipped, tagged with the version
+ * it was built at. A request costs one primary-key read of the current version: when it matches
+ * the cached snapshot the bytes are served as-is (or 304 on a matching ETag), otherwise the snapshot
+ * is rebuilt once. Writes made by another instance are picked up the same way.
+ */
+@Service
+public class ProductCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private static final String CREATE_VERSION_ROW =
+            "INSERT INTO catalog_versions (id, version, updated_at) VALUES (?, 0, now()) ON CONFLICT (id) DO NOTHING";
+    private static final String STAMP_UNVERSIONED =
+            "UPDATE products SET catalog_version = ? WHERE catalog_version IS NULL";
+
+    /** Full catalog serialized at {@code version}. */
+    public record Snapshot(long version, String etag, byte[] json, byte[] gzip) {
+    }
+
+    private volatile Snapshot snapshot;
+
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final ProductRepository productRepository;
+    private final ProductRemovalRepository productRemovalRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ProductCatalog(CatalogVersionRepository catalogVersionRepository,
+                          ProductRepository productRepository,
+                          ProductRemovalRepository productRemovalRepository,
+                          JdbcTemplate jdbcTemplate,
+                          ObjectMapper objectMapper,
+                          ApplicationEventPublisher eventPublisher,
+                          PlatformTransactionManager transactionManager) {
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.productRepository = productRepository;
+        this.productRemovalRepository = productRemovalRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /** Give products written before versioning existed a version, so the first delta sync sees them. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void stampUnversionedProducts() {
+        CatalogVersion row = lockVersionRow();
+        long next = row.getVersion() + 1;
+        int stamped = jdbcTemplate.update(STAMP_UNVERSIONED, next);
+        if (stamped > 0) {
+            row.setVersion(next);
+            row.setUpdatedAt(LocalDateTime.now());
+            log.info("Product catalog: {} unversioned products stamped with version {}", stamped, next);
+        }
+    }
+
+    /**
+     * Next catalog version, for a write in the caller's transaction. The version row stays locked
+     * until that transaction ends, so concurrent catalog writes are serialized.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long nextVersion() {
+        CatalogVersion row = lockVersionRow();
+        long next = row.getVersion() + 1;
+        row.setVersion(next);
+        row.setUpdatedAt(LocalDateTime.now());
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(next));
+        return next;
+    }
+
+    public long currentVersion() {
+        return catalogVersionRepository.findById(CatalogVersion.PRODUCTS).map(CatalogVersion::getVersion).orElse(0L);
+    }
+
+    public Snapshot snapshot() {
+        long version = currentVersion();
+        Snapshot current = snapshot;
+        if (current != null && current.version() >= version) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.version() < version) {
+                current = build();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Products changed and removed after {@code since}. A version the server never issued (a reset
+     * database, a bad parameter) gets the whole catalog with {@code full = true}.
+     */
+    @Transactional(readOnly = true)
+    public ProductCatalogDeltaDTO delta(long since) {
+        // Version first: rows committed in between are sent now and again next time, never missed
+        long version = currentVersion();
+        if (since < 0 || since > version) {
+            return new ProductCatalogDeltaDTO(version, since, true, allProducts(), List.of());
+        }
+        List<ProductDTO> changed = productRepository.findByCatalogVersionGreaterThan(since).stream()
+                .map(ProductDTO::fromProduct)
+                .collect(Collectors.toList());
+        List<Long> removedIds = productRemovalRepository.findByCatalogVersionGreaterThan(since).stream()
+                .map(ProductRemoval::getProductId)
+                .collect(Collectors.toList());
+        return new ProductCatalogDeltaDTO(version, since, false, changed, removedIds);
+    }
+
+    private Snapshot build() {
+        long start = System.currentTimeMillis();
+        Snapshot built = readOnlyTransaction.execute(tx -> {
+            long version = currentVersion();
+            List<ProductDTO> products = allProducts();
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(products);
+                return new Snapshot(version, "W/\"" + version + "\"", json, gzip(json));
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Product catalog could not be serialized", ex);
+            }
+        });
+        log.info("Product catalog snapshot v{} built: {} bytes, {} gzipped ({} ms)", built.version(),
+                built.json().length, built.gzip().length, System.currentTimeMillis() - start);
+        return built;
+    }
+
+    private List<ProductDTO> allProducts() {
+        return productRepository.findAll(Sort.by("id")).stream()
+                .map(ProductDTO::fromProduct)
+                .collect(Collectors.toList());
+    }
+
+    private CatalogVersion lockVersionRow() {
+        return catalogVersionRepository.findForUpdate(CatalogVersion.PRODUCTS).orElseGet(() -> {
+            jdbcTemplate.update(CREATE_VERSION_ROW, CatalogVersion.PRODUCTS);
+            return catalogVersionRepository.findForUpdate(CatalogVersion.PRODUCTS).orElseThrow();
+        });
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(data.length / 4, 64));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,220 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.ProductDTO;
+import com.samsung.merchandising_api.dto.ProductUpsertReportDTO;
+import com.samsung.merchandising_api.dto.ProductUpsertResultDTO;
+import com.samsung.merchandising_api.dto.ProductUpsertResultDTO.Status;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.ProductType;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk upsert of products by SKU (POST /api/products/bulk?mode=upsert), for catalog refreshes.
+ * <p>
+ * Items are validated up front (SKU present and unique in the request, type name, column lengths),
+ * then written in chunks of {@code app.products.bulk.chunk-size}, each in its own transaction:
+ * one {@code sku IN (...)} query finds the existing products, new SKUs are created and existing
+ * ones updated with the non-null fields of the item, and the whole chunk is flushed as JDBC batches
+ * (pooled sequence ids) under a single catalog version, then detached from the persistence context
+ * so its size stays bounded by the chunk. A bad item is reported and skipped; a chunk
+ * that fails to commit is reported item by item and the import goes on.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private record Item(int index, String sku, ProductDTO dto, ProductType type) {
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ProductImportService(ProductRepository productRepository,
+                                ProductCatalog productCatalog,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.products.bulk.chunk-size:1000}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.productCatalog = productCatalog;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public ProductUpsertReportDTO upsert(List<ProductDTO> dtos) {
+        long start = System.currentTimeMillis();
+        ProductUpsertResultDTO[] results = new ProductUpsertResultDTO[dtos.size()];
+        List<Item> items = new ArrayList<>(dtos.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            ProductDTO dto = dtos.get(i);
+            String sku = dto != null && dto.getSku() != null ? dto.getSku().trim() : null;
+            String error = validate(dto, sku);
+            if (error == null && !seen.add(sku)) {
+                error = "SKU en double dans la requête: " + sku;
+            }
+            if (error != null) {
+                results[i] = rejected(i, sku, error);
+                continue;
+            }
+            items.add(new Item(i, sku, dto, dto.getType() != null ? ProductType.valueOf(dto.getType().trim()) : null));
+        }
+
+        int chunks = 0;
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<Item> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            chunks++;
+            try {
+                List<ProductUpsertResultDTO> written = transactionTemplate.execute(tx -> writeChunk(chunk));
+                if (written != null) {
+                    written.forEach(result -> results[result.getIndex()] = result);
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Product upsert chunk {} failed: {}", chunks, ex.getMessage());
+                for (Item item : chunk) {
+                    results[item.index()] = rejected(item.index(), item.sku(), "Lot rejeté: " + ex.getMessage());
+                }
+            }
+        }
+
+        Map<Status, Long> counts = Arrays.stream(results)
+                .collect(Collectors.groupingBy(ProductUpsertResultDTO::getStatus, Collectors.counting()));
+        long took = System.currentTimeMillis() - start;
+        log.info("Product upsert: {} items, {} created, {} updated, {} rejected in {} chunks ({} ms)", dtos.size(),
+                counts.getOrDefault(Status.CREATED, 0L), counts.getOrDefault(Status.UPDATED, 0L),
+                counts.getOrDefault(Status.REJECTED, 0L), chunks, took);
+        return new ProductUpsertReportDTO(dtos.size(),
+                counts.getOrDefault(Status.CREATED, 0L).intValue(),
+                counts.getOrDefault(Status.UPDATED, 0L).intValue(),
+                counts.getOrDefault(Status.REJECTED, 0L).intValue(),
+                chunks, Arrays.asList(results), took);
+    }
+
+    private List<ProductUpsertResultDTO> writeChunk(List<Item> chunk) {
+        Map<String, Product> existing = productRepository.findBySkuIn(chunk.stream().map(Item::sku).toList()).stream()
+                .collect(Collectors.toMap(Product::getSku, Function.identity()));
+        List<ProductUpsertResultDTO> results = new ArrayList<>(chunk.size());
+        List<Product> toSave = new ArrayList<>(chunk.size());
+        List<Item> saved = new ArrayList<>(chunk.size());
+        Long version = null;
+        for (Item item : chunk) {
+            Product product = existing.get(item.sku());
+            if (product == null && (item.dto().getName() == null || item.dto().getName().isBlank())) {
+                results.add(rejected(item.index(), item.sku(), "Nom obligatoire pour un nouveau produit"));
+                continue;
+            }
+            if (product == null && item.type() == null) {
+                results.add(rejected(item.index(), item.sku(), "Type obligatoire pour un nouveau produit"));
+                continue;
+            }
+            if (version == null) {
+                version = productCatalog.nextVersion();
+            }
+            boolean created = product == null;
+            if (created) {
+                product = new Product();
+                product.setSku(item.sku());
+            }
+            apply(item, product);
+            product.setCatalogVersion(version);
+            toSave.add(product);
+            saved.add(item);
+        }
+        // New rows go out as batched INSERTs; the updated ones are flushed as batched UPDATEs
+        productRepository.saveAll(toSave);
+        productRepository.flush();
+        // The written products are not read again: keep the persistence context to one chunk
+        entityManager.clear();
+        for (int n = 0; n < saved.size(); n++) {
+            Item item = saved.get(n);
+            Status status = existing.containsKey(item.sku()) ? Status.UPDATED : Status.CREATED;
+            results.add(new ProductUpsertResultDTO(item.index(), item.sku(), status, toSave.get(n).getId(), null));
+        }
+        return results;
+    }
+
+    /** Non-null fields of the item replace the stored ones. */
+    private static void apply(Item item, Product product) {
+        ProductDTO dto = item.dto();
+        if (dto.getName() != null && !dto.getName().isBlank()) {
+            product.setName(dto.getName());
+        }
+        if (dto.getDescription() != null) {
+            product.setDescription(dto.getDescription());
+        }
+        if (item.type() != null) {
+            product.setType(item.type());
+        }
+        if (dto.getSubCategory() != null) {
+            product.setSubCategory(dto.getSubCategory());
+        }
+        if (dto.getPrice() != null) {
+            product.setPrice(dto.getPrice());
+        }
+        if (dto.getImageUrl() != null) {
+            product.setImageUrl(dto.getImageUrl());
+        }
+        if (dto.getStock() != null) {
+            product.setStock(dto.getStock());
+        } else if (product.getStock() == null) {
+            product.setStock(0);
+        }
+    }
+
+    /** Checks that need no database access; null when the item is acceptable. */
+    private static String validate(ProductDTO dto, String sku) {
+        if (dto == null) {
+            return "Élément vide";
+        }
+        if (sku == null || sku.isEmpty()) {
+            return "SKU obligatoire";
+        }
+        if (sku.length() > 50) {
+            return "SKU trop long (50 caractères max)";
+        }
+        if (dto.getName() != null && dto.getName().length() > 200) {
+            return "Nom trop long (200 caractères max)";
+        }
+        if (dto.getDescription() != null && dto.getDescription().length() > 1000) {
+            return "Description trop longue (1000 caractères max)";
+        }
+        if (dto.getSubCategory() != null && dto.getSubCategory().length() > 100) {
+            return "Sous-catégorie trop longue (100 caractères max)";
+        }
+        if (dto.getImageUrl() != null && dto.getImageUrl().length() > 500) {
+            return "URL d'image trop longue (500 caractères max)";
+        }
+        if (dto.getType() != null) {
+            try {
+                ProductType.valueOf(dto.getType().trim());
+            } catch (IllegalArgumentException ex) {
+                return "Type invalide: " + dto.getType();
+            }
+        }
+        return null;
+    }
+
+    private static ProductUpsertResultDTO rejected(int index, String sku, String error) {
+        return new ProductUpsertResultDTO(index, sku, Status.REJECTED, null, error);
+    }
+}
@@ -0,0 +1,925 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.ProductCatalogDeltaDTO;
+import com.samsung.merchandising_api.dto.ProductDTO;
+import com.samsung.merchandising_api.dto.ProductSearchResultDTO;
+import com.samsung.merchandising_api.event.ProductCatalogChangedEvent;
+import com.samsung.merchandising_api.model.ProductType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search over product name, SKU and sub-category (/api/products/search).
+ * <p>
+ * Text is lower-cased, stripped of accents and split into alphanumeric tokens; a SKU is also
+ * indexed without its separators ("SM-A546B" → "sm", "a546b", "sma546b"). Postings are sorted
+ * arrays of document slots under two kinds of keys: the leading characters of every token, per
+ * field (autocomplete; up to 12 for names and sub-categories, 4 for SKUs, whose long prefixes are
+ * nearly all unique), and every trigram of every token (substring). The tokens of a query are
+ * intersected (AND).
+ * <p>
+ * Ranking: exact SKU first, then per token a prefix match (name &gt; SKU &gt; sub-category) ahead of
+ * a substring match, then shorter names. A full build hands out slots by increasing name length, so
+ * within that ordered range a posting lists the shorter names first. Candidates are walked lazily,
+ * in three passes that split them by score tier: names starting with every token, then products
+ * matching every token by some field prefix, then products matching a token only as a substring.
+ * Each pass walks its shortest posting (the rarest trigram for substrings), the others filtering
+ * through galloping cursors; it knows the best score it can produce and stops walking the ordered
+ * range at the first candidate that could not make the page even with that score. The text is only read to confirm a match the postings cannot prove. Name
+ * lengths and types are kept in primitive arrays by slot.
+ * <p>
+ * The index follows the catalog versions (ProductCatalog): after each product write commits, only
+ * the products changed or removed since the indexed version are re-indexed. A periodic check picks
+ * up writes made by other instances. Changed products get a new slot after the ordered range; the
+ * same check re-numbers the slots once that unordered tail grows past an eighth of the catalog.
+ * <p>
+ * Slots, postings and id maps form one immutable {@link Snapshot} published through a single
+ * volatile field: a search reads the field once and sees a consistent index, never a posting that
+ * refers to a slot its arrays do not have yet. An update copies the slot arrays and records its
+ * changed postings in a small overlay on top of the previous maps, folded into new maps once it
+ * grows, so it costs the size of the change rather than of the catalog key set.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final int[] NO_DOCS = new int[0];
+
+    /** Posting key prefixes of the name, SKU and sub-category fields, in ranking order. */
+    private static final String[] FIELD_TAGS = {"n:", "s:", "c:"};
+    private static final int[] MAX_PREFIX = {12, 4, 12};
+    private static final String TRIGRAM = "t:";
+
+    private static final int EXACT_SKU = Integer.MAX_VALUE;
+    private static final int[] PREFIX_SCORES = {40, 35, 30};
+    private static final int[] SUBSTRING_SCORES = {20, 15, 10};
+
+    /** One indexed product; tokens are normalized, one array per field. */
+    private record Doc(ProductDTO product, String compactSku, String[][] fields) {
+
+        Set<String> keys() {
+            Set<String> keys = new HashSet<>();
+            for (int f = 0; f < fields.length; f++) {
+                for (String token : fields[f]) {
+                    for (int n = 1; n <= Math.min(token.length(), MAX_PREFIX[f]); n++) {
+                        keys.add(FIELD_TAGS[f] + token.substring(0, n));
+                    }
+                    for (int i = 0; i + 3 <= token.length(); i++) {
+                        keys.add(TRIGRAM + token.substring(i, i + 3));
+                    }
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * Documents by slot, with the ranking inputs in primitive arrays. Only written while being built,
+     * before the snapshot holding it is published; updates work on a copy.
+     */
+    private record Slots(Doc[] docs, int[] nameLengths, byte[] types) {
+
+        static Slots ofCapacity(int capacity) {
+            return new Slots(new Doc[capacity], new int[capacity], new byte[capacity]);
+        }
+
+        /** Copy with room for at least {@code size} slots. */
+        Slots copy(int size) {
+            int capacity = docs.length;
+            while (capacity < size) {
+                capacity *= 2;
+            }
+            return new Slots(Arrays.copyOf(docs, capacity), Arrays.copyOf(nameLengths, capacity),
+                    Arrays.copyOf(types, capacity));
+        }
+
+        void set(int slot, Doc doc) {
+            docs[slot] = doc;
+            nameLengths[slot] = doc == null ? 0 : nameLength(doc.product());
+            types[slot] = doc == null ? 0 : typeCode(doc.product().getType());
+        }
+
+        boolean isLive(int slot, boolean[] allowedTypes) {
+            return slot < docs.length && docs[slot] != null && (allowedTypes == null || allowedTypes[types[slot]]);
+        }
+    }
+
+    /**
+     * Immutable map: a base plus an overlay of the keys changed since (null value = removed). Each
+     * update copies the overlay only; once it reaches an eighth of the base both are folded into a
+     * new base.
+     */
+    private static final class LayeredMap<K, V> {
+        private static final int MIN_OVERLAY = 1024;
+
+        private final Map<K, V> base;
+        private final Map<K, V> overlay;
+
+        private LayeredMap(Map<K, V> base, Map<K, V> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+        }
+
+        static <K, V> LayeredMap<K, V> of(Map<K, V> base) {
+            return new LayeredMap<>(base, Map.of());
+        }
+
+        V get(K key) {
+            if (!overlay.isEmpty()) {
+                V value = overlay.get(key);
+                if (value != null || overlay.containsKey(key)) {
+                    return value;
+                }
+            }
+            return base.get(key);
+        }
+
+        /** This map with {@code changes} applied; a null value removes the key. */
+        LayeredMap<K, V> with(Map<K, V> changes) {
+            if (changes.isEmpty()) {
+                return this;
+            }
+            Map<K, V> next = new HashMap<>(overlay);
+            next.putAll(changes);
+            if (next.size() < Math.max(MIN_OVERLAY, base.size() / 8)) {
+                return new LayeredMap<>(base, next);
+            }
+            Map<K, V> folded = new HashMap<>(base);
+            next.forEach((key, value) -> {
+                if (value == null) {
+                    folded.remove(key);
+                } else {
+                    folded.put(key, value);
+                }
+            });
+            return of(folded);
+        }
+
+        int size() {
+            int size = base.size();
+            for (Map.Entry<K, V> entry : overlay.entrySet()) {
+                boolean inBase = base.containsKey(entry.getKey());
+                if (entry.getValue() == null && inBase) {
+                    size--;
+                } else if (entry.getValue() != null && !inBase) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Everything a search reads, published at once. Slots below {@code orderedSlots} are in name
+     * length order. Postings map field prefix / trigram keys to sorted slots; slotsBySku holds the
+     * compact SKUs, for the exact SKU match.
+     */
+    private record Snapshot(long version, Slots slots, int orderedSlots, int nextSlot,
+                            LayeredMap<String, int[]> postings,
+                            LayeredMap<Long, Integer> slotsById, LayeredMap<String, Integer> slotsBySku) {
+
+        static final Snapshot EMPTY = new Snapshot(-1, Slots.ofCapacity(1024), 0, 0,
+                LayeredMap.of(Map.of()), LayeredMap.of(Map.of()), LayeredMap.of(Map.of()));
+
+        int[] posting(String key) {
+            int[] slots = postings.get(key);
+            return slots != null ? slots : NO_DOCS;
+        }
+    }
+
+    /** Candidates of one search pass, by score tier. */
+    private enum Pass {
+        /** Every token starts a word of the name. */
+        NAME,
+        /** Every token starts a word of some field, not all of the name. */
+        PREFIX,
+        /** Some token only occurs inside a word. */
+        SUBSTRING
+    }
+
+    /** Postings of one query token. */
+    private static final class TokenLists {
+        final String token;
+        /** name, SKU, sub-category */
+        final int[][] prefixes;
+        /** false when the token is longer than the field's indexed prefixes: the posting then only narrows it down */
+        final boolean[] exactPrefix;
+        /** Best prefix score the postings allow, 0 when no field has the prefix. */
+        final int bestPrefix;
+        /** Same, leaving out the name. */
+        final int bestOtherPrefix;
+        /** Postings of every trigram of the token; none when it is too short. */
+        final int[][] trigrams;
+
+        TokenLists(String token, Snapshot index) {
+            this.token = token;
+            this.prefixes = new int[FIELD_TAGS.length][];
+            this.exactPrefix = new boolean[FIELD_TAGS.length];
+            int best = 0;
+            int bestOther = 0;
+            for (int f = 0; f < FIELD_TAGS.length; f++) {
+                exactPrefix[f] = token.length() <= MAX_PREFIX[f];
+                prefixes[f] = index.posting(
+                        FIELD_TAGS[f] + (exactPrefix[f] ? token : token.substring(0, MAX_PREFIX[f])));
+                if (best == 0 && prefixes[f].length > 0) {
+                    best = PREFIX_SCORES[f];
+                }
+                if (f > 0 && bestOther == 0 && prefixes[f].length > 0) {
+                    bestOther = PREFIX_SCORES[f];
+                }
+            }
+            this.bestPrefix = best;
+            this.bestOtherPrefix = bestOther;
+            this.trigrams = new int[Math.max(0, token.length() - 2)][];
+            for (int i = 0; i < trigrams.length; i++) {
+                trigrams[i] = index.posting(TRIGRAM + token.substring(i, i + 3));
+            }
+        }
+
+        boolean isShort() {
+            return token.length() < 3;
+        }
+
+        /** Best score a product can get for this token; 0 when none can match it. */
+        int best() {
+            return bestPrefix > 0 ? bestPrefix : isShort() ? 0 : SUBSTRING_SCORES[0];
+        }
+
+        int prefixCount() {
+            return prefixes[0].length + prefixes[1].length + prefixes[2].length;
+        }
+    }
+
+    /** Slots of one or more sorted postings, in increasing order and each once. */
+    private static final class Candidates {
+        final int[][] lists;
+        final int[] positions;
+
+        Candidates(int[]... lists) {
+            this.lists = lists;
+            this.positions = new int[lists.length];
+        }
+
+        /** Next slot, -1 when exhausted. */
+        int next() {
+            int min = Integer.MAX_VALUE;
+            for (int l = 0; l < lists.length; l++) {
+                if (positions[l] < lists[l].length) {
+                    min = Math.min(min, lists[l][positions[l]]);
+                }
+            }
+            if (min == Integer.MAX_VALUE) {
+                return -1;
+            }
+            for (int l = 0; l < lists.length; l++) {
+                if (positions[l] < lists[l].length && lists[l][positions[l]] == min) {
+                    positions[l]++;
+                }
+            }
+            return min;
+        }
+
+        /** Continue from the first slot not below {@code slot}. */
+        void skipTo(int slot) {
+            for (int l = 0; l < lists.length; l++) {
+                int found = Arrays.binarySearch(lists[l], positions[l], lists[l].length, slot);
+                positions[l] = found >= 0 ? found : -found - 1;
+            }
+        }
+    }
+
+    /** Membership test over a sorted posting for slots visited in increasing order (galloping search). */
+    private static final class Cursor {
+        final int[] slots;
+        int i;
+
+        Cursor(int[] slots) {
+            this.slots = slots;
+        }
+
+        boolean contains(int slot) {
+            if (i < slots.length && slots[i] < slot) {
+                int low = i;
+                int step = 1;
+                int high = i + 1;
+                while (high < slots.length && slots[high] < slot) {
+                    low = high;
+                    step <<= 1;
+                    high = low + step;
+                }
+                // slots[low] < slot <= slots[high]: first index not below slot in (low, high]
+                low++;
+                high = Math.min(high, slots.length);
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (slots[mid] < slot) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                i = low;
+            }
+            return i < slots.length && slots[i] == slot;
+        }
+    }
+
+    /** Best hits by (score desc, name length asc, slot asc). */
+    private static final class TopHits {
+        final int limit;
+        final int[] slots;
+        final int[] scores;
+        final int[] lengths;
+        int size;
+
+        TopHits(int limit) {
+            this.limit = limit;
+            this.slots = new int[limit];
+            this.scores = new int[limit];
+            this.lengths = new int[limit];
+        }
+
+        boolean accepts(int score, int length, int slot) {
+            return size < limit || ranksBefore(score, length, slot, limit - 1);
+        }
+
+        void offer(int slot, int score, int length) {
+            if (!accepts(score, length, slot)) {
+                return;
+            }
+            int pos = Math.min(size, limit - 1);
+            while (pos > 0 && ranksBefore(score, length, slot, pos - 1)) {
+                slots[pos] = slots[pos - 1];
+                scores[pos] = scores[pos - 1];
+                lengths[pos] = lengths[pos - 1];
+                pos--;
+            }
+            slots[pos] = slot;
+            scores[pos] = score;
+            lengths[pos] = length;
+            size = Math.min(size + 1, limit);
+        }
+
+        private boolean ranksBefore(int score, int length, int slot, int hit) {
+            if (scores[hit] != score) {
+                return scores[hit] < score;
+            }
+            return lengths[hit] != length ? lengths[hit] > length : slots[hit] > slot;
+        }
+    }
+
+    /** Growable int array. */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        int[] toSortedDistinct() {
+            int[] sorted = toArray();
+            Arrays.sort(sorted);
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+
+    private volatile Snapshot index = Snapshot.EMPTY;
+
+    private final ProductCatalog productCatalog;
+
+    public ProductSearchIndex(ProductCatalog productCatalog) {
+        this.productCatalog = productCatalog;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        if (event.version() > index.version()) {
+            refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.products.search.refresh-interval-ms:30000}")
+    public void refreshIfStale() {
+        long indexedVersion = index.version();
+        if (indexedVersion >= 0 && productCatalog.currentVersion() > indexedVersion) {
+            refresh();
+        }
+        compactIfFragmented();
+    }
+
+    /** Re-number the slots by name length once the unordered tail has grown past an eighth of the catalog. */
+    public synchronized void compactIfFragmented() {
+        Snapshot current = index;
+        int tail = current.nextSlot() - current.orderedSlots();
+        if (current.version() < 0 || tail <= Math.max(1024, current.orderedSlots() / 8)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<ProductDTO> products = new ArrayList<>(current.slotsById().size());
+        Doc[] docs = current.slots().docs();
+        for (int slot = 0; slot < current.nextSlot(); slot++) {
+            if (docs[slot] != null) {
+                products.add(docs[slot].product());
+            }
+        }
+        index = rebuild(current.version(), products);
+        log.info("Product search index v{} compacted: {} slots for {} products ({} ms)", current.version(),
+                current.nextSlot(), products.size(), System.currentTimeMillis() - start);
+    }
+
+    /** Apply the catalog delta since the indexed version (the whole catalog the first time). */
+    public synchronized void refresh() {
+        index(productCatalog.delta(index.version()));
+    }
+
+    /** Index a catalog delta (from {@link ProductCatalog#delta}) and publish the result. */
+    public synchronized void index(ProductCatalogDeltaDTO delta) {
+        long start = System.currentTimeMillis();
+        Snapshot next = delta.getFull()
+                ? rebuild(delta.getVersion(), delta.getChanged())
+                : apply(index, delta.getVersion(), delta.getChanged(), delta.getRemovedIds());
+        index = next;
+        if (delta.getFull() || delta.getChanged().size() + delta.getRemovedIds().size() > 100) {
+            log.info("Product search index v{}: {} products indexed, {} removed, {} keys ({} ms)", next.version(),
+                    delta.getChanged().size(), delta.getRemovedIds().size(), next.postings().size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Products matching every token of {@code query}, best first.
+     * @param types product types to keep (null or empty = all)
+     */
+    public ProductSearchResultDTO search(String query, Set<String> types, int limit) {
+        long start = System.nanoTime();
+        String[] tokens = tokensOf(query);
+        if (tokens.length == 0) {
+            throw new IllegalArgumentException("Le paramètre 'q' doit contenir au moins une lettre ou un chiffre");
+        }
+        boolean[] allowedTypes = allowedTypes(types);
+        Snapshot index = this.index;
+        Slots slots = index.slots();
+        TokenLists[] lists = new TokenLists[tokens.length];
+        for (int t = 0; t < tokens.length; t++) {
+            lists[t] = new TokenLists(tokens[t], index);
+        }
+        Integer exactSku = index.slotsBySku().get(String.join("", tokens));
+        int exactSlot = exactSku != null && slots.isLive(exactSku, allowedTypes) ? exactSku : -1;
+
+        TopHits hits = new TopHits(limit);
+        if (exactSlot >= 0) {
+            hits.offer(exactSlot, EXACT_SKU, 0);
+        }
+        nameMatches(lists, index, allowedTypes, exactSlot, hits);
+        prefixMatches(lists, index, allowedTypes, exactSlot, hits);
+        substringMatches(lists, index, allowedTypes, exactSlot, hits);
+        List<ProductDTO> products = new ArrayList<>(hits.size);
+        for (int i = 0; i < hits.size; i++) {
+            products.add(slots.docs()[hits.slots[i]].product());
+        }
+        return new ProductSearchResultDTO(query, (System.nanoTime() - start) / 1000, products);
+    }
+
+    /** Products whose name starts with every token, walked along the shortest name posting. */
+    private static void nameMatches(TokenLists[] lists, Snapshot index, boolean[] allowedTypes,
+                                    int exactSlot, TopHits hits) {
+        int[] driver = null;
+        for (TokenLists list : lists) {
+            if (driver == null || list.prefixes[0].length < driver.length) {
+                driver = list.prefixes[0];
+            }
+        }
+        if (driver.length == 0) {
+            return;
+        }
+        List<Cursor> filters = new ArrayList<>(lists.length);
+        for (TokenLists list : lists) {
+            if (list.prefixes[0] != driver) {
+                filters.add(new Cursor(list.prefixes[0]));
+            }
+        }
+        collect(new Candidates(driver), filters.toArray(new Cursor[0]), Pass.NAME,
+                PREFIX_SCORES[0] * lists.length, lists, index, allowedTypes, exactSlot, hits);
+    }
+
+    /**
+     * Products matching every token by a field prefix, not all in the name, walked along the token
+     * with the shortest prefix postings.
+     */
+    private static void prefixMatches(TokenLists[] lists, Snapshot index, boolean[] allowedTypes,
+                                      int exactSlot, TopHits hits) {
+        TokenLists driver = null;
+        int best = 0;
+        for (TokenLists list : lists) {
+            if (list.bestPrefix == 0) {
+                return;
+            }
+            best += list.bestPrefix;
+            if (driver == null || list.prefixCount() < driver.prefixCount()) {
+                driver = list;
+            }
+        }
+        // One token matched outside the name, the others at their best
+        int upper = 0;
+        for (TokenLists list : lists) {
+            if (list.bestOtherPrefix > 0) {
+                upper = Math.max(upper, best - list.bestPrefix + list.bestOtherPrefix);
+            }
+        }
+        if (upper == 0) {
+            return;
+        }
+        collect(new Candidates(driver.prefixes), new Cursor[0], Pass.PREFIX, upper, lists, index, allowedTypes,
+                exactSlot, hits);
+    }
+
+    /**
+     * Products matching at least one token only as a substring. Every trigram of every long token
+     * must then be present: the rarest trigram posting is walked, the others filter.
+     */
+    private static void substringMatches(TokenLists[] lists, Snapshot index, boolean[] allowedTypes,
+                                         int exactSlot, TopHits hits) {
+        int best = 0;
+        for (TokenLists list : lists) {
+            if (list.best() == 0) {
+                return;
+            }
+            best += list.best();
+        }
+        // One long token scored as a substring, the others at their best
+        int upper = 0;
+        int[] driver = null;
+        List<int[]> trigrams = new ArrayList<>();
+        for (TokenLists list : lists) {
+            if (!list.isShort()) {
+                upper = Math.max(upper, best - list.best() + SUBSTRING_SCORES[0]);
+                for (int[] posting : list.trigrams) {
+                    trigrams.add(posting);
+                    if (driver == null || posting.length < driver.length) {
+                        driver = posting;
+                    }
+                }
+            }
+        }
+        if (driver == null) {
+            return;
+        }
+        List<Cursor> filters = new ArrayList<>(trigrams.size());
+        for (int[] posting : trigrams) {
+            if (posting != driver) {
+                filters.add(new Cursor(posting));
+            }
+        }
+        collect(new Candidates(driver), filters.toArray(new Cursor[0]), Pass.SUBSTRING, upper, lists, index,
+                allowedTypes, exactSlot, hits);
+    }
+
+    /**
+     * Scores the candidates of one pass into {@code hits}. A candidate that could not make the page
+     * even with {@code upper}, the best score of the pass, is skipped; in the ordered range every
+     * later candidate has a name at least as long, so the walk jumps straight to the unordered tail.
+     */
+    private static void collect(Candidates candidates, Cursor[] filters, Pass pass, int upper,
+                                TokenLists[] lists, Snapshot index, boolean[] allowedTypes, int exactSlot,
+                                TopHits hits) {
+        Slots slots = index.slots();
+        int[] lengths = slots.nameLengths();
+        Cursor[][] cursors = new Cursor[lists.length][];
+        for (int t = 0; t < lists.length; t++) {
+            cursors[t] = new Cursor[FIELD_TAGS.length];
+            for (int f = 0; f < FIELD_TAGS.length; f++) {
+                cursors[t][f] = new Cursor(lists[t].prefixes[f]);
+            }
+        }
+        for (int slot = candidates.next(); slot >= 0; slot = candidates.next()) {
+            if (slot == exactSlot || !slots.isLive(slot, allowedTypes)) {
+                continue;
+            }
+            int length = lengths[slot];
+            if (!hits.accepts(upper, length, slot)) {
+                if (slot < index.orderedSlots()) {
+                    candidates.skipTo(index.orderedSlots());
+                }
+                continue;
+            }
+            if (!containsAll(filters, slot)) {
+                continue;
+            }
+            int bound = scoreBound(lists, cursors, slot, pass);
+            if (bound != 0 && hits.accepts(Math.abs(bound), length, slot)) {
+                int score = bound > 0 ? bound : score(slots.docs()[slot], lists, cursors, slot);
+                if (score > 0) {
+                    hits.offer(slot, score, length);
+                }
+            }
+        }
+    }
+
+    private static boolean containsAll(Cursor[] cursors, int slot) {
+        for (Cursor cursor : cursors) {
+            if (!cursor.contains(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score from the postings alone: positive when exact, negative (the best the text could
+     * confirm) when a token still has to be checked against the text, 0 when it cannot match or
+     * belongs to another pass.
+     */
+    private static int scoreBound(TokenLists[] lists, Cursor[][] cursors, int slot, Pass pass) {
+        int total = 0;
+        boolean exact = true;
+        boolean everyName = true;
+        boolean everyPrefix = true;
+        for (int t = 0; t < lists.length; t++) {
+            TokenLists list = lists[t];
+            int score = 0;
+            for (int f = 0; f < FIELD_TAGS.length && score == 0; f++) {
+                if (cursors[t][f].contains(slot)) {
+                    score = PREFIX_SCORES[f];
+                    exact &= list.exactPrefix[f];
+                    everyName &= f == 0;
+                }
+            }
+            if (score == 0) {
+                if (pass != Pass.SUBSTRING || list.isShort()) {
+                    return 0;
+                }
+                score = SUBSTRING_SCORES[0];
+                exact = false;
+                everyName = false;
+                everyPrefix = false;
+            }
+            total += score;
+        }
+        boolean inPass = switch (pass) {
+            case NAME -> everyName;
+            case PREFIX -> everyPrefix && !everyName;
+            case SUBSTRING -> !everyPrefix;
+        };
+        if (!inPass) {
+            return 0;
+        }
+        return exact ? total : -total;
+    }
+
+    /** 0 when a token does not actually occur (trigram false positive). */
+    private static int score(Doc doc, TokenLists[] lists, Cursor[][] cursors, int slot) {
+        int total = 0;
+        for (int t = 0; t < lists.length; t++) {
+            TokenLists list = lists[t];
+            int score = 0;
+            for (int f = 0; f < FIELD_TAGS.length && score == 0; f++) {
+                if (cursors[t][f].contains(slot) && (list.exactPrefix[f] || startsWith(doc.fields()[f], list.token))) {
+                    score = PREFIX_SCORES[f];
+                }
+            }
+            for (int f = 0; f < FIELD_TAGS.length && score == 0 && !list.isShort(); f++) {
+                if (contains(doc.fields()[f], list.token)) {
+                    score = SUBSTRING_SCORES[f];
+                }
+            }
+            if (score == 0) {
+                return 0;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    /**
+     * Whole catalog: slots are handed out by increasing name length, and in slot order, so every
+     * posting is built already sorted.
+     */
+    private static Snapshot rebuild(long version, List<ProductDTO> products) {
+        List<ProductDTO> ordered = new ArrayList<>(products);
+        ordered.sort(Comparator.comparingInt(ProductSearchIndex::nameLength).thenComparing(ProductDTO::getId));
+        Slots built = Slots.ofCapacity(Math.max(1024, Integer.highestOneBit(Math.max(ordered.size(), 1)) * 2));
+        Map<String, IntList> lists = new HashMap<>();
+        Map<Long, Integer> ids = new HashMap<>();
+        Map<String, Integer> skus = new HashMap<>();
+        for (int slot = 0; slot < ordered.size(); slot++) {
+            Doc doc = docOf(ordered.get(slot));
+            built.set(slot, doc);
+            ids.put(doc.product().getId(), slot);
+            skus.put(doc.compactSku(), slot);
+            for (String key : doc.keys()) {
+                lists.computeIfAbsent(key, k -> new IntList()).add(slot);
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, list) -> postings.put(key, list.toArray()));
+        return new Snapshot(version, built, ordered.size(), ordered.size(),
+                LayeredMap.of(postings), LayeredMap.of(ids), LayeredMap.of(skus));
+    }
+
+    /** Changed / removed products only, on copies of {@code current}: each touched posting is merged once. */
+    private static Snapshot apply(Snapshot current, long version, List<ProductDTO> changed, List<Long> removedIds) {
+        Slots slots = current.slots().copy(current.nextSlot() + changed.size());
+        int nextSlot = current.nextSlot();
+        // Changes to the id maps, read through before the current snapshot (null = removed)
+        Map<Long, Integer> ids = new HashMap<>();
+        Map<String, Integer> skus = new HashMap<>();
+        Map<String, IntList> added = new HashMap<>();
+        Map<String, IntList> removed = new HashMap<>();
+        for (Long id : removedIds) {
+            Integer slot = lookup(ids, current.slotsById(), id);
+            if (slot != null) {
+                unindex(slots, slot, removed, skus, current.slotsBySku());
+                slots.set(slot, null);
+                ids.put(id, null);
+            }
+        }
+        for (ProductDTO product : changed) {
+            Integer existing = lookup(ids, current.slotsById(), product.getId());
+            if (existing != null) {
+                // Re-indexed at the end: the name length may have changed, the ordered range must stay sorted
+                unindex(slots, existing, removed, skus, current.slotsBySku());
+                slots.set(existing, null);
+            }
+            int slot = nextSlot++;
+            Doc doc = docOf(product);
+            slots.set(slot, doc);
+            for (String key : doc.keys()) {
+                added.computeIfAbsent(key, k -> new IntList()).add(slot);
+            }
+            ids.put(product.getId(), slot);
+            skus.put(doc.compactSku(), slot);
+        }
+        Set<String> touched = new HashSet<>(added.keySet());
+        touched.addAll(removed.keySet());
+        Map<String, int[]> postings = new HashMap<>(touched.size() * 2);
+        for (String key : touched) {
+            IntList add = added.get(key);
+            IntList remove = removed.get(key);
+            int[] merged = merge(current.posting(key),
+                    add != null ? add.toSortedDistinct() : NO_DOCS,
+                    remove != null ? remove.toSortedDistinct() : NO_DOCS);
+            postings.put(key, merged.length == 0 ? null : merged);
+        }
+        return new Snapshot(version, slots, current.orderedSlots(), nextSlot, current.postings().with(postings),
+                current.slotsById().with(ids), current.slotsBySku().with(skus));
+    }
+
+    private static void unindex(Slots slots, int slot, Map<String, IntList> removed,
+                                Map<String, Integer> skus, LayeredMap<String, Integer> currentSkus) {
+        Doc doc = slots.docs()[slot];
+        if (doc == null) {
+            return;
+        }
+        for (String key : doc.keys()) {
+            removed.computeIfAbsent(key, k -> new IntList()).add(slot);
+        }
+        // The SKU may already belong to another product of the same delta
+        Integer owner = lookup(skus, currentSkus, doc.compactSku());
+        if (owner != null && owner == slot) {
+            skus.put(doc.compactSku(), null);
+        }
+    }
+
+    private static <K> Integer lookup(Map<K, Integer> changes, LayeredMap<K, Integer> current, K key) {
+        return changes.containsKey(key) ? changes.get(key) : current.get(key);
+    }
+
+    private static Doc docOf(ProductDTO product) {
+        String[] skuTokens = tokensOf(product.getSku());
+        String compactSku = String.join("", skuTokens);
+        if (skuTokens.length > 1) {
+            skuTokens = Arrays.copyOf(skuTokens, skuTokens.length + 1);
+            skuTokens[skuTokens.length - 1] = compactSku;
+        }
+        return new Doc(product, compactSku,
+                new String[][]{tokensOf(product.getName()), skuTokens, tokensOf(product.getSubCategory())});
+    }
+
+    static String[] tokensOf(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        String normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static int nameLength(ProductDTO product) {
+        return product.getName() == null ? 0 : product.getName().length();
+    }
+
+    /** 1 + ordinal of the product type, 0 when absent. */
+    private static byte typeCode(String type) {
+        if (type == null) {
+            return 0;
+        }
+        try {
+            return (byte) (ProductType.valueOf(type).ordinal() + 1);
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        }
+    }
+
+    /** Null when every type is allowed; throws on an unknown type name. */
+    private static boolean[] allowedTypes(Set<String> types) {
+        if (types == null || types.isEmpty()) {
+            return null;
+        }
+        boolean[] allowed = new boolean[ProductType.values().length + 1];
+        for (String type : types) {
+            allowed[ProductType.valueOf(type).ordinal() + 1] = true;
+        }
+        return allowed;
+    }
+
+    private static boolean startsWith(String[] tokens, String prefix) {
+        for (String token : tokens) {
+            if (token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String[] tokens, String part) {
+        for (String token : tokens) {
+            if (token.contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** (current - remove - add) + add, all sorted: one linear pass, written straight into the result. */
+    static int[] merge(int[] current, int[] add, int[] remove) {
+        int[] result = new int[current.length + add.length];
+        int n = 0;
+        int a = 0;
+        int r = 0;
+        for (int slot : current) {
+            while (r < remove.length && remove[r] < slot) {
+                r++;
+            }
+            if (r < remove.length && remove[r] == slot) {
+                continue;
+            }
+            while (a < add.length && add[a] <= slot) {
+                result[n++] = add[a++];
+            }
+            if (n == 0 || result[n - 1] != slot) {
+                result[n++] = slot;
+            }
+        }
+        while (a < add.length) {
+            result[n++] = add[a++];
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
@@ -2,10 +2,13 @@ package com.samsung.merchandising_api.service;
 
 import com.samsung.merchandising_api.dto.ProductDTO;
 import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.ProductRemoval;
 import com.samsung.merchandising_api.model.ProductType;
+import com.samsung.merchandising_api.repository.ProductRemovalRepository;
 import com.samsung.merchandising_api.repository.ProductRepository;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -14,9 +17,15 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductRemovalRepository productRemovalRepository;
+    private final ProductCatalog productCatalog;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          ProductRemovalRepository productRemovalRepository,
+                          ProductCatalog productCatalog) {
         this.productRepository = productRepository;
+        this.productRemovalRepository = productRemovalRepository;
+        this.productCatalog = productCatalog;
     }
 
     public List<ProductDTO> getAllProducts() {
@@ -30,6 +39,7 @@ public class ProductService {
                 .map(ProductDTO::fromProduct);
     }
 
+    @org.springframework.transaction.annotation.Transactional
     public ProductDTO createProduct(ProductDTO dto) {
         Product product = new Product();
         product.setName(dto.getName());
@@ -44,11 +54,35 @@ public class ProductService {
         product.setPrice(dto.getPrice());
         product.setImageUrl(dto.getImageUrl());
         product.setStock(dto.getStock() != null ? dto.getStock() : 0);
+        product.setCatalogVersion(productCatalog.nextVersion());
 
         Product saved = productRepository.save(product);
         return ProductDTO.fromProduct(saved);
     }
 
+    /**
+     * Delete a product and leave a tombstone for catalog deltas
+     * @return false when the product does not exist
+     */
+    @org.springframework.transaction.annotation.Transactional
+    public boolean deleteProduct(Long id) {
+        Product product = productRepository.findById(id).orElse(null);
+        if (product == null) {
+            return false;
+        }
+        ProductRemoval removal = new ProductRemoval();
+        removal.setProductId(product.getId());
+        removal.setSku(product.getSku());
+        removal.setCatalogVersion(productCatalog.nextVersion());
+        removal.setRemovedAt(LocalDateTime.now());
+
+        productRepository.delete(product);
+        // Fail here rather than at commit when sellouts / interactions still reference the product
+        productRepository.flush();
+        productRemovalRepository.save(removal);
+        return true;
+    }
+
     /**
      * Bulk create products
      * Validates SKU uniqueness
@@ -56,10 +90,14 @@ public class ProductService {
     @org.springframework.transaction.annotation.Transactional
     public List<ProductDTO> createProductsBulk(List<ProductDTO> dtos) {
         List<Product> productsToSave = new java.util.ArrayList<>();
-        
+        long version = productCatalog.nextVersion();
+        // Validate SKU uniqueness with one IN query for the whole request
+        java.util.Set<String> taken = productRepository.findBySkuIn(dtos.stream().map(ProductDTO::getSku).toList()).stream()
+                .map(Product::getSku)
+                .collect(Collectors.toSet());
+
         for (ProductDTO dto : dtos) {
-            // Validate SKU uniqueness
-            if (productRepository.findBySku(dto.getSku()).isPresent()) {
+            if (taken.contains(dto.getSku())) {
                 throw new IllegalArgumentException("SKU already exists: " + dto.getSku());
             }
 
@@ -76,6 +114,7 @@ public class ProductService {
             product.setPrice(dto.getPrice());
             product.setImageUrl(dto.getImageUrl());
             product.setStock(dto.getStock() != null ? dto.getStock() : 0);
+            product.setCatalogVersion(version);
 
             productsToSave.add(product);
         }
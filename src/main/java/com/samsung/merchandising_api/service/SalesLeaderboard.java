@@ -0,0 +1,312 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.LeaderboardDTO;
+import com.samsung.merchandising_api.dto.LeaderboardEntryDTO;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.repository.SelloutRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Live sellout rankings of promoters and stores for today, this week and this month.
+ * <p>
+ * Each (period, dimension) board keeps running totals per id plus a {@link TreeSet} ordered by
+ * amount, updated in O(log n) from committed sellout adds / deletes. After every update the first
+ * {@link #MAX_K} entries are copied to an immutable list, so reads take no lock and touch no table.
+ * Sales are attributed to the period of the sellout's {@code createdAt}; a board resets itself when
+ * its period rolls over. Totals for the current month (and week) are loaded once at startup from a
+ * REPEATABLE READ snapshot; changes delivered during the warm-up are held back and, before that
+ * snapshot ends, sorted out by whether their line is visible in it ({@link SelloutSnapshotReplay}).
+ */
+@Component
+public class SalesLeaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesLeaderboard.class);
+
+    public static final int MAX_K = 100;
+
+    public enum Period {
+        TODAY, WEEK, MONTH;
+
+        LocalDate startOf(LocalDate day) {
+            return switch (this) {
+                case TODAY -> day;
+                case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> day.withDayOfMonth(1);
+            };
+        }
+    }
+
+    public enum Dimension {
+        PROMOTER, STORE
+    }
+
+    private record Ranked(long id, double amount, long quantity) {
+    }
+
+    private static final Comparator<Ranked> BY_AMOUNT_DESC = Comparator.comparingDouble(Ranked::amount).reversed()
+            .thenComparingLong(Ranked::id);
+
+    private static final class Board {
+        final Period period;
+        LocalDate periodStart;
+        final Map<Long, Ranked> totals = new HashMap<>();
+        final TreeSet<Ranked> ranking = new TreeSet<>(BY_AMOUNT_DESC);
+        volatile List<Ranked> top = List.of();
+        volatile int participants;
+
+        Board(Period period, LocalDate today) {
+            this.period = period;
+            this.periodStart = period.startOf(today);
+        }
+
+        /** Caller holds the board's monitor. */
+        void rollTo(LocalDate today) {
+            LocalDate start = period.startOf(today);
+            if (!start.equals(periodStart)) {
+                periodStart = start;
+                totals.clear();
+                ranking.clear();
+                publish();
+            }
+        }
+
+        /** Caller holds the board's monitor. */
+        void add(LocalDate day, long id, double amount, long quantity) {
+            if (!period.startOf(day).equals(periodStart)) {
+                return;
+            }
+            Ranked previous = totals.get(id);
+            if (previous != null) {
+                ranking.remove(previous);
+                amount += previous.amount();
+                quantity += previous.quantity();
+            }
+            if (Math.abs(amount) < 0.005 && quantity == 0) {
+                totals.remove(id);
+            } else {
+                Ranked updated = new Ranked(id, amount, quantity);
+                totals.put(id, updated);
+                ranking.add(updated);
+            }
+        }
+
+        /** Caller holds the board's monitor. */
+        void clear() {
+            totals.clear();
+            ranking.clear();
+        }
+
+        /** Caller holds the board's monitor. */
+        void publish() {
+            List<Ranked> head = new ArrayList<>(Math.min(MAX_K, ranking.size()));
+            Iterator<Ranked> it = ranking.iterator();
+            while (it.hasNext() && head.size() < MAX_K) {
+                head.add(it.next());
+            }
+            top = List.copyOf(head);
+            participants = totals.size();
+        }
+    }
+
+    private final Map<Dimension, Map<Period, Board>> boards = new EnumMap<>(Dimension.class);
+    private final Map<Long, String> userNames = new ConcurrentHashMap<>();
+    private final Map<Long, String> storeNames = new ConcurrentHashMap<>();
+    /** Guards the warm-up state below; never held during database access. */
+    private final Object warmUpLock = new Object();
+    /** Changes committed during the warm-up; null before and after it. */
+    private List<SelloutChange> pendingChanges;
+    private boolean warmedUp;
+
+    private final SelloutRepository selloutRepository;
+    private final UserRepository userRepository;
+    private final StoreRepository storeRepository;
+    private final TransactionTemplate snapshotTransaction;
+
+    public SalesLeaderboard(SelloutRepository selloutRepository,
+                            UserRepository userRepository,
+                            StoreRepository storeRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.selloutRepository = selloutRepository;
+        this.userRepository = userRepository;
+        this.storeRepository = storeRepository;
+        // The totals and the visibility check of the changes held back must see the same snapshot
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        LocalDate today = LocalDate.now();
+        for (Dimension dimension : Dimension.values()) {
+            Map<Period, Board> byPeriod = new EnumMap<>(Period.class);
+            for (Period period : Period.values()) {
+                byPeriod.put(period, new Board(period, today));
+            }
+            boards.put(dimension, byPeriod);
+        }
+    }
+
+    /**
+     * One grouped query over the sellouts of the current month and week, then, in the same
+     * snapshot, the visibility check of the changes held back meanwhile. Both are applied last.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = Period.MONTH.startOf(today).isBefore(Period.WEEK.startOf(today))
+                ? Period.MONTH.startOf(today) : Period.WEEK.startOf(today);
+        List<SelloutChange> replay = new ArrayList<>();
+        List<Object[]> rows;
+        try {
+            rows = snapshotTransaction.execute(tx -> {
+                synchronized (warmUpLock) {
+                    pendingChanges = new ArrayList<>();
+                }
+                // First statement of the transaction: it takes the snapshot
+                List<Object[]> totals = selloutRepository.sumByUserStoreAndDaySince(from.atStartOfDay());
+                List<SelloutChange> held;
+                synchronized (warmUpLock) {
+                    held = pendingChanges;
+                    pendingChanges = null;
+                    // From here on changes go to the boards; they are delivered after commits that follow the snapshot
+                    warmedUp = true;
+                }
+                replay.addAll(SelloutSnapshotReplay.changesToReplay(held, selloutRepository::findExistingIds));
+                return totals;
+            });
+        } catch (RuntimeException ex) {
+            synchronized (warmUpLock) {
+                pendingChanges = null;
+                warmedUp = false;
+            }
+            // Drop what was applied since warmedUp was set: the next warm-up starts from empty boards
+            forEachBoard(today, target -> target.board().clear());
+            throw ex;
+        }
+        forEachBoard(today, target -> {
+            for (Object[] row : rows) {
+                Long id = (Long) (target.dimension() == Dimension.PROMOTER ? row[0] : row[1]);
+                target.board().add((LocalDate) row[2], id, ((Number) row[3]).doubleValue(), ((Number) row[4]).longValue());
+            }
+        });
+        apply(replay);
+        log.info("Sales leaderboard warmed up from {} (user, store, day) totals since {}, {} held changes replayed",
+                rows.size(), from, replay.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSelloutChanged(SelloutChangedEvent event) {
+        synchronized (warmUpLock) {
+            if (!warmedUp) {
+                // Before the warm-up these lines are in its snapshot; during it they are sorted out at the end
+                if (pendingChanges != null) {
+                    pendingChanges.addAll(event.changes());
+                }
+                return;
+            }
+        }
+        apply(event.changes());
+    }
+
+    private void apply(List<SelloutChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        forEachBoard(today, target -> {
+            for (SelloutChange change : changes) {
+                Long id = target.dimension() == Dimension.PROMOTER ? change.userId() : change.storeId();
+                if (id == null) {
+                    continue;
+                }
+                LocalDateTime at = change.createdAt() != null ? change.createdAt() : change.visitDate();
+                if (at != null) {
+                    target.board().add(at.toLocalDate(), id, change.amountDelta(), change.quantityDelta());
+                }
+            }
+        });
+    }
+
+    /** Top {@code limit} (at most {@link #MAX_K}) for the current period. No database access once names are known. */
+    public LeaderboardDTO getLeaderboard(Period period, Dimension dimension, int limit) {
+        Board board = boards.get(dimension).get(period);
+        LocalDate today = LocalDate.now();
+        if (!period.startOf(today).equals(board.periodStart)) {
+            synchronized (board) {
+                board.rollTo(today);
+            }
+        }
+        List<Ranked> top = board.top;
+        List<Ranked> head = top.subList(0, Math.min(Math.max(limit, 1), top.size()));
+        Map<Long, String> names = namesFor(dimension, head);
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(head.size());
+        for (int i = 0; i < head.size(); i++) {
+            Ranked ranked = head.get(i);
+            entries.add(new LeaderboardEntryDTO(i + 1, ranked.id(), names.get(ranked.id()),
+                    Math.round(ranked.amount() * 100) / 100.0, ranked.quantity()));
+        }
+        return new LeaderboardDTO(period.name(), dimension.name(), board.periodStart, board.participants, entries);
+    }
+
+    private record DimensionBoard(Dimension dimension, Board board) {
+    }
+
+    private void forEachBoard(LocalDate today, Consumer<DimensionBoard> update) {
+        for (Map.Entry<Dimension, Map<Period, Board>> byDimension : boards.entrySet()) {
+            for (Board board : byDimension.getValue().values()) {
+                synchronized (board) {
+                    board.rollTo(today);
+                    update.accept(new DimensionBoard(byDimension.getKey(), board));
+                    board.publish();
+                }
+            }
+        }
+    }
+
+    /** Names are loaded the first time an id reaches a leaderboard, then served from memory. */
+    private Map<Long, String> namesFor(Dimension dimension, List<Ranked> entries) {
+        Map<Long, String> cache = dimension == Dimension.PROMOTER ? userNames : storeNames;
+        Set<Long> missing = entries.stream()
+                .map(Ranked::id)
+                .filter(id -> !cache.containsKey(id))
+                .collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            if (dimension == Dimension.PROMOTER) {
+                cache.putAll(userRepository.findAllById(missing).stream()
+                        .collect(Collectors.toMap(User::getId, User::getFullName)));
+            } else {
+                cache.putAll(storeRepository.findAllById(missing).stream()
+                        .collect(Collectors.toMap(Store::getId, Store::getName)));
+            }
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,562 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.SelloutCubeCellDTO;
+import com.samsung.merchandising_api.dto.SelloutCubeDTO;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory columnar cube of sellout lines for product × store × region × day analytics.
+ * <p>
+ * Rows are stored column by column in fixed-size segments of primitive arrays: product code,
+ * store code, region code, epoch day, quantity and amount. Product attributes (type, sub-category,
+ * SKU) and store attributes (city) are dictionary-encoded once per product / store, so a row
+ * costs 28 bytes whatever the labels. The cube is loaded at startup from {@code sellouts}
+ * (pre-aggregated per product, store, region and day) and committed writes are appended; a
+ * deleted line is appended as a negative row.
+ * <p>
+ * The load reads the lines from one REPEATABLE READ snapshot. Writes committed before the load are
+ * in that snapshot and ignored; those delivered while it runs are held back and, before the snapshot
+ * ends, sorted out by whether their line is visible in it ({@link SelloutSnapshotReplay}). The
+ * database is read outside the append lock, which only covers the in-memory appends. Queries filter
+ * and group on int codes and scan the segments in parallel on the common fork-join pool.
+ * <p>
+ * The region is the promoter's region as this instance first read it: at the load for the lines
+ * loaded, at the promoter's first write after it otherwise. It is cached for the life of the
+ * instance, so a promoter moved to another region keeps the old one here until the next restart.
+ * The day is the sellout's {@code createdAt}. Product / store attributes are read when a product
+ * or store first enters the cube.
+ */
+@Component
+public class SelloutCube {
+
+    private static final Logger log = LoggerFactory.getLogger(SelloutCube.class);
+
+    public enum Dimension {
+        PRODUCT_TYPE, SUB_CATEGORY, SKU, STORE, CITY, REGION, DAY
+    }
+
+    public static final int MAX_GROUP_BY = 3;
+    /** Codes are packed 21 bits per group-by dimension into a long key. */
+    private static final int CODE_BITS = 21;
+    private static final long CODE_MASK = (1L << CODE_BITS) - 1;
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final String NONE = "-";
+
+    private static final String VISIBLE_SELLOUT_IDS = "SELECT id FROM sellouts WHERE id = ANY(?)";
+    private static final String LOAD_SELLOUTS =
+            "SELECT s.product_id, v.store_id, u.region, CAST(s.created_at AS DATE) AS day, " +
+            "SUM(s.quantity) AS quantity, SUM(s.amount) AS amount " +
+            "FROM sellouts s JOIN visits v ON v.id = s.visit_id JOIN users u ON u.id = v.user_id " +
+            "GROUP BY s.product_id, v.store_id, u.region, CAST(s.created_at AS DATE)";
+    /** Loaded rows appended per lock acquisition. */
+    private static final int LOAD_CHUNK = 5000;
+
+    private record LoadedRow(long productId, long storeId, String region, int day, int quantity, double amount) {
+    }
+
+    /** Append-only string ↔ code dictionary; codes are published through a copy-on-grow array. */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private int size;
+
+        /** Caller holds the cube's append lock. */
+        int encode(String value) {
+            String key = value == null || value.isBlank() ? NONE : value;
+            Integer code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = key;
+            values = current;
+            codes.put(key, size);
+            return size++;
+        }
+
+        String decode(int code) {
+            return values[code];
+        }
+
+        boolean[] matching(Set<String> accepted, int length) {
+            boolean[] ok = new boolean[length];
+            String[] current = values;
+            for (int i = 0; i < length && i < current.length; i++) {
+                ok[i] = current[i] != null && accepted.contains(current[i]);
+            }
+            return ok;
+        }
+
+        int length() {
+            return values.length;
+        }
+    }
+
+    /** One column chunk per measure / dimension; rows [0, count) of a segment are immutable once published. */
+    private static final class Segment {
+        final int[] product = new int[SEGMENT_SIZE];
+        final int[] store = new int[SEGMENT_SIZE];
+        final int[] region = new int[SEGMENT_SIZE];
+        final int[] day = new int[SEGMENT_SIZE];
+        final int[] quantity = new int[SEGMENT_SIZE];
+        final double[] amount = new double[SEGMENT_SIZE];
+    }
+
+    // ── dimension tables, indexed by product / store code ──
+    private final Map<Long, Integer> productCodes = new ConcurrentHashMap<>();
+    private volatile long[] productIds = new long[256];
+    private volatile int[] productType = new int[256];
+    private volatile int[] productSubCategory = new int[256];
+    private volatile int[] productSku = new int[256];
+    private final Map<Long, Integer> storeCodes = new ConcurrentHashMap<>();
+    private volatile long[] storeIds = new long[256];
+    private volatile int[] storeCity = new int[256];
+
+    private final Dictionary types = new Dictionary();
+    private final Dictionary subCategories = new Dictionary();
+    private final Dictionary skus = new Dictionary();
+    private final Dictionary cities = new Dictionary();
+    private final Dictionary regions = new Dictionary();
+
+    private final Object appendLock = new Object();
+    private volatile Segment[] segments = new Segment[0];
+    /** Rows visible to queries; written last by the appender. */
+    private volatile int rowCount;
+    /** Region per promoter, read once per instance (see the class doc). */
+    private final Map<Long, String> userRegions = new ConcurrentHashMap<>();
+    /** Changes committed while the cube loads; null before and after the load. Guarded by the append lock. */
+    private List<SelloutChange> pendingChanges;
+    /** Guarded by the append lock. */
+    private boolean loaded;
+
+    private final ProductRepository productRepository;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+
+    public SelloutCube(ProductRepository productRepository,
+                       StoreRepository storeRepository,
+                       UserRepository userRepository,
+                       JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.storeRepository = storeRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // The lines loaded and the visibility check of the changes held back must see the same snapshot
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Dimension tables in two reads, then one streamed GROUP BY over the lines and, in the same
+     * snapshot, the visibility check of the changes held back meanwhile, which are applied last.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        List<Product> products = productRepository.findAll();
+        List<Store> stores = storeRepository.findAll();
+        synchronized (appendLock) {
+            products.forEach(this::productCode);
+            stores.forEach(this::storeCode);
+        }
+        List<SelloutChange> replay = new ArrayList<>();
+        try {
+            snapshotTransaction.executeWithoutResult(tx -> {
+                synchronized (appendLock) {
+                    pendingChanges = new ArrayList<>();
+                }
+                // First statement of the transaction: it takes the snapshot
+                List<LoadedRow> chunk = new ArrayList<>(LOAD_CHUNK);
+                jdbcTemplate.query(con -> {
+                    var ps = con.prepareStatement(LOAD_SELLOUTS);
+                    ps.setFetchSize(LOAD_CHUNK);
+                    return ps;
+                }, rs -> {
+                    chunk.add(new LoadedRow(rs.getLong("product_id"), rs.getLong("store_id"), rs.getString("region"),
+                            (int) rs.getDate("day").toLocalDate().toEpochDay(),
+                            rs.getInt("quantity"), rs.getDouble("amount")));
+                    if (chunk.size() == LOAD_CHUNK) {
+                        appendLoaded(chunk);
+                        chunk.clear();
+                    }
+                });
+                appendLoaded(chunk);
+                List<SelloutChange> held;
+                synchronized (appendLock) {
+                    held = pendingChanges;
+                    pendingChanges = null;
+                    // From here on changes are appended; they are delivered after commits that follow the snapshot
+                    loaded = true;
+                }
+                replay.addAll(SelloutSnapshotReplay.changesToReplay(held, this::visibleSelloutIds));
+            });
+        } catch (RuntimeException ex) {
+            synchronized (appendLock) {
+                pendingChanges = null;
+                loaded = false;
+                // Drop the rows appended so far: the next load starts from an empty cube
+                rowCount = 0;
+            }
+            throw ex;
+        }
+        apply(replay);
+        log.info("Sellout cube loaded: {} rows, {} products, {} stores, {} held changes replayed in {} ms",
+                rowCount, productCodes.size(), storeCodes.size(), replay.size(), System.currentTimeMillis() - start);
+    }
+
+    /** Ids among {@code ids} visible to the current transaction. */
+    private List<Long> visibleSelloutIds(List<Long> ids) {
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(VISIBLE_SELLOUT_IDS);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSelloutChanged(SelloutChangedEvent event) {
+        synchronized (appendLock) {
+            if (!loaded) {
+                // Before the load these lines are in its snapshot; during it they are sorted out at the end
+                if (pendingChanges != null) {
+                    pendingChanges.addAll(event.changes());
+                }
+                return;
+            }
+        }
+        apply(event.changes());
+    }
+
+    private void apply(List<SelloutChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<Long> newProducts = new HashSet<>();
+        Set<Long> newStores = new HashSet<>();
+        Set<Long> users = new HashSet<>();
+        for (SelloutChange change : changes) {
+            if (change.productId() != null && !productCodes.containsKey(change.productId())) {
+                newProducts.add(change.productId());
+            }
+            if (change.storeId() != null && !storeCodes.containsKey(change.storeId())) {
+                newStores.add(change.storeId());
+            }
+            if (change.userId() != null && !userRegions.containsKey(change.userId())) {
+                users.add(change.userId());
+            }
+        }
+        // Lookups happen outside the append lock so queries and other writers never wait on the database
+        List<Product> products = newProducts.isEmpty() ? List.of() : productRepository.findAllById(newProducts);
+        List<Store> stores = newStores.isEmpty() ? List.of() : storeRepository.findAllById(newStores);
+        if (!users.isEmpty()) {
+            for (User user : userRepository.findAllById(users)) {
+                userRegions.put(user.getId(), user.getRegion() != null ? user.getRegion() : NONE);
+            }
+        }
+
+        synchronized (appendLock) {
+            products.forEach(this::productCode);
+            stores.forEach(this::storeCode);
+            for (SelloutChange change : changes) {
+                Integer product = productCodes.get(change.productId());
+                Integer store = storeCodes.get(change.storeId());
+                LocalDateTime at = change.createdAt() != null ? change.createdAt() : change.visitDate();
+                if (product == null || store == null || at == null) {
+                    continue;
+                }
+                append(product, store, regions.encode(userRegions.get(change.userId())),
+                        (int) at.toLocalDate().toEpochDay(), change.quantityDelta(), change.amountDelta());
+            }
+        }
+    }
+
+    /**
+     * Sums of quantity and amount per combination of {@code groupBy} values (at most
+     * {@link #MAX_GROUP_BY}), over the rows matching every filter and [from, to). Cells are sorted by
+     * amount, largest first; {@code limit} caps the number returned.
+     */
+    public SelloutCubeDTO query(List<Dimension> groupBy, Map<Dimension, Set<String>> filters,
+                                LocalDate from, LocalDate to, int limit) {
+        if (groupBy.size() > MAX_GROUP_BY) {
+            throw new IllegalArgumentException("At most " + MAX_GROUP_BY + " group-by dimensions");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        long start = System.nanoTime();
+        int rows = rowCount;
+        Segment[] segs = segments;
+        long[] pIds = productIds;
+        int[] pType = productType;
+        int[] pSub = productSubCategory;
+        int[] pSku = productSku;
+        long[] sIds = storeIds;
+        int[] sCity = storeCity;
+
+        boolean[] productOk = productFilter(filters, pIds.length, pType, pSub, pSku);
+        boolean[] storeOk = storeFilter(filters, sIds, sCity);
+        boolean[] regionOk = filters.containsKey(Dimension.REGION)
+                ? regions.matching(filters.get(Dimension.REGION), regions.length()) : null;
+        int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+        int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+        Dimension[] dims = groupBy.toArray(new Dimension[0]);
+
+        int segmentCount = (rows + SEGMENT_SIZE - 1) >>> SEGMENT_BITS;
+        Map<Long, double[]> cells = IntStream.range(0, segmentCount).parallel()
+                .mapToObj(index -> {
+                    Segment seg = segs[index];
+                    int end = Math.min(SEGMENT_SIZE, rows - (index << SEGMENT_BITS));
+                    Map<Long, double[]> partial = new HashMap<>();
+                    for (int r = 0; r < end; r++) {
+                        int p = seg.product[r];
+                        int s = seg.store[r];
+                        int d = seg.day[r];
+                        if (d < fromDay || d >= toDay
+                                || (productOk != null && !productOk[p])
+                                || (storeOk != null && !storeOk[s])
+                                || (regionOk != null && !regionOk[seg.region[r]])) {
+                            continue;
+                        }
+                        long key = 0;
+                        for (Dimension dim : dims) {
+                            int code = switch (dim) {
+                                case PRODUCT_TYPE -> pType[p];
+                                case SUB_CATEGORY -> pSub[p];
+                                case SKU -> pSku[p];
+                                case STORE -> s;
+                                case CITY -> sCity[s];
+                                case REGION -> seg.region[r];
+                                case DAY -> d;
+                            };
+                            key = (key << CODE_BITS) | (code & CODE_MASK);
+                        }
+                        double[] cell = partial.computeIfAbsent(key, k -> new double[3]);
+                        cell[0] += seg.quantity[r];
+                        cell[1] += seg.amount[r];
+                        cell[2]++;
+                    }
+                    return partial;
+                })
+                .reduce(SelloutCube::mergeCells)
+                .orElseGet(HashMap::new);
+
+        long matched = 0;
+        long totalQuantity = 0;
+        double totalAmount = 0;
+        List<SelloutCubeCellDTO> result = new ArrayList<>(cells.size());
+        for (Map.Entry<Long, double[]> entry : cells.entrySet()) {
+            double[] cell = entry.getValue();
+            matched += (long) cell[2];
+            totalQuantity += (long) cell[0];
+            totalAmount += cell[1];
+            result.add(new SelloutCubeCellDTO(decode(dims, entry.getKey(), sIds), (long) cell[0], round(cell[1])));
+        }
+        result.sort((a, b) -> Double.compare(b.getAmount(), a.getAmount()));
+        List<SelloutCubeCellDTO> head = result.subList(0, Math.min(Math.max(limit, 1), result.size()));
+
+        return new SelloutCubeDTO(groupBy.stream().map(Enum::name).toList(), from, to, (long) rows, matched,
+                totalQuantity, round(totalAmount), result.size(), new ArrayList<>(head),
+                (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private void appendLoaded(List<LoadedRow> rows) {
+        synchronized (appendLock) {
+            for (LoadedRow row : rows) {
+                Integer product = productCodes.get(row.productId());
+                Integer store = storeCodes.get(row.storeId());
+                if (product != null && store != null) {
+                    append(product, store, regions.encode(row.region()), row.day(), row.quantity(), row.amount());
+                }
+            }
+        }
+    }
+
+    /** Caller holds the append lock. */
+    private void append(int product, int store, int region, int day, int quantity, double amount) {
+        int row = rowCount;
+        int index = row >>> SEGMENT_BITS;
+        Segment[] segs = segments;
+        if (index == segs.length) {
+            segs = Arrays.copyOf(segs, segs.length + 1);
+            segs[index] = new Segment();
+            segments = segs;
+        }
+        Segment seg = segs[index];
+        int offset = row & (SEGMENT_SIZE - 1);
+        seg.product[offset] = product;
+        seg.store[offset] = store;
+        seg.region[offset] = region;
+        seg.day[offset] = day;
+        seg.quantity[offset] = quantity;
+        seg.amount[offset] = amount;
+        rowCount = row + 1;
+    }
+
+    /** Caller holds the append lock. */
+    private int productCode(Product product) {
+        Integer existing = productCodes.get(product.getId());
+        if (existing != null) {
+            return existing;
+        }
+        int code = productCodes.size();
+        if (code == productIds.length) {
+            int length = code * 2;
+            productType = Arrays.copyOf(productType, length);
+            productSubCategory = Arrays.copyOf(productSubCategory, length);
+            productSku = Arrays.copyOf(productSku, length);
+            productIds = Arrays.copyOf(productIds, length);
+        }
+        productType[code] = types.encode(product.getType() != null ? product.getType().name() : null);
+        productSubCategory[code] = subCategories.encode(product.getSubCategory());
+        productSku[code] = skus.encode(product.getSku());
+        productIds[code] = product.getId();
+        productCodes.put(product.getId(), code);
+        return code;
+    }
+
+    /** Caller holds the append lock. */
+    private int storeCode(Store store) {
+        Integer existing = storeCodes.get(store.getId());
+        if (existing != null) {
+            return existing;
+        }
+        int code = storeCodes.size();
+        if (code == storeIds.length) {
+            storeCity = Arrays.copyOf(storeCity, code * 2);
+            storeIds = Arrays.copyOf(storeIds, code * 2);
+        }
+        storeCity[code] = cities.encode(store.getCity());
+        storeIds[code] = store.getId();
+        storeCodes.put(store.getId(), code);
+        return code;
+    }
+
+    private boolean[] productFilter(Map<Dimension, Set<String>> filters, int length,
+                                    int[] pType, int[] pSub, int[] pSku) {
+        Set<String> typeFilter = filters.get(Dimension.PRODUCT_TYPE);
+        Set<String> subFilter = filters.get(Dimension.SUB_CATEGORY);
+        Set<String> skuFilter = filters.get(Dimension.SKU);
+        if (typeFilter == null && subFilter == null && skuFilter == null) {
+            return null;
+        }
+        boolean[] ok = new boolean[length];
+        for (int p = 0; p < length; p++) {
+            ok[p] = accepts(typeFilter, types, pType[p])
+                    && accepts(subFilter, subCategories, pSub[p])
+                    && accepts(skuFilter, skus, pSku[p]);
+        }
+        return ok;
+    }
+
+    private boolean[] storeFilter(Map<Dimension, Set<String>> filters, long[] sIds, int[] sCity) {
+        Set<String> storeFilter = filters.get(Dimension.STORE);
+        Set<String> cityFilter = filters.get(Dimension.CITY);
+        if (storeFilter == null && cityFilter == null) {
+            return null;
+        }
+        boolean[] ok = new boolean[sIds.length];
+        for (int s = 0; s < sIds.length; s++) {
+            ok[s] = (storeFilter == null || storeFilter.contains(Long.toString(sIds[s])))
+                    && accepts(cityFilter, cities, sCity[s]);
+        }
+        return ok;
+    }
+
+    private static boolean accepts(Set<String> accepted, Dictionary dictionary, int code) {
+        if (accepted == null) {
+            return true;
+        }
+        String value = dictionary.decode(code);
+        return value != null && accepted.contains(value);
+    }
+
+    private Map<String, String> decode(Dimension[] dims, long key, long[] sIds) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < dims.length; i++) {
+            int code = (int) ((key >>> (CODE_BITS * (dims.length - 1 - i))) & CODE_MASK);
+            values.put(dims[i].name(), switch (dims[i]) {
+                case PRODUCT_TYPE -> types.decode(code);
+                case SUB_CATEGORY -> subCategories.decode(code);
+                case SKU -> skus.decode(code);
+                case STORE -> Long.toString(sIds[code]);
+                case CITY -> cities.decode(code);
+                case REGION -> regions.decode(code);
+                case DAY -> LocalDate.ofEpochDay(code).toString();
+            });
+        }
+        return values;
+    }
+
+    /** Both maps are per-segment partials owned by this query, so either may be reused. */
+    private static Map<Long, double[]> mergeCells(Map<Long, double[]> into, Map<Long, double[]> from) {
+        Map<Long, double[]> target = into.size() >= from.size() ? into : from;
+        Map<Long, double[]> source = target == into ? from : into;
+        source.forEach((key, cell) -> target.merge(key, cell, (a, b) -> {
+            a[0] += b[0];
+            a[1] += b[1];
+            a[2] += b[2];
+            return a;
+        }));
+        return target;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /** Parse a comma-separated filter value into a set, null when absent. */
+    public static Set<String> valuesOf(String csv) {
+        if (csv == null || csv.isBlank()) {
+            return null;
+        }
+        Set<String> values = new HashSet<>();
+        for (String value : csv.split(",")) {
+            if (!value.isBlank()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,302 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.SelloutImportErrorDTO;
+import com.samsung.merchandising_api.dto.SelloutImportReportDTO;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming import of retailer sellout files (CSV with a header row).
+ * <p>
+ * Required columns: {@code visit_id, sku, quantity, amount}; optional {@code created_at}
+ * (yyyy-MM-dd or yyyy-MM-ddTHH:mm[:ss], defaults to now). The separator is ',' or ';', taken from
+ * the header. The file is read line by line and only the current chunk is held in memory. SKUs are
+ * resolved from a map of the whole catalog loaded once per import; visits are checked with one IN
+ * query per chunk. Each chunk is committed on its own with JDBC batch inserts, one sales_amount
+ * increment per visit and a SelloutChangedEvent. The increments are applied in visit id order, so
+ * two chunks (or an import and a live write) touching the same visits lock them in the same order;
+ * a chunk that still loses a deadlock is retried once. A bad line or a failed chunk is reported and
+ * the import goes on.
+ */
+@Service
+public class SelloutImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(SelloutImportService.class);
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SELLOUT =
+            "INSERT INTO sellouts (id, visit_id, product_id, quantity, amount, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ADD_SALES_AMOUNT =
+            "UPDATE visits SET sales_amount = COALESCE(sales_amount, 0) + ?, updated_at = now() WHERE id = ?";
+
+    private record Line(long number, long visitId, long productId, int quantity, double amount, LocalDateTime createdAt) {
+    }
+
+    /** Column positions resolved from the header row; createdAt is -1 when absent. */
+    private record Columns(char separator, int visitId, int sku, int quantity, int amount, int createdAt) {
+    }
+
+    /** Running totals of one import. */
+    private static final class Report {
+        long linesRead;
+        long imported;
+        long rejected;
+        int chunks;
+        final List<SelloutImportErrorDTO> errors = new ArrayList<>();
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new SelloutImportErrorDTO(line, reason));
+            }
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final VisitRepository visitRepository;
+    private final SequenceIdAllocator idAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public SelloutImportService(ProductRepository productRepository,
+                                VisitRepository visitRepository,
+                                SequenceIdAllocator idAllocator,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.sellout-import.chunk-size:2000}") int chunkSize) {
+        this.productRepository = productRepository;
+        this.visitRepository = visitRepository;
+        this.idAllocator = idAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    public SelloutImportReportDTO importCsv(Reader source) throws IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        String header = reader.readLine();
+        while (header != null && header.isBlank()) {
+            header = reader.readLine();
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("Fichier CSV vide");
+        }
+        Columns columns = columnsOf(header);
+        Map<String, Long> productIdsBySku = productRepository.findAll().stream()
+                .filter(p -> p.getSku() != null)
+                .collect(Collectors.toMap(p -> p.getSku().trim(), Product::getId, (a, b) -> a));
+
+        Report report = new Report();
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 1;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            report.linesRead++;
+            Line line = parse(lineNumber, text, columns, productIdsBySku, report);
+            if (line == null) {
+                continue;
+            }
+            chunk.add(line);
+            if (chunk.size() >= chunkSize) {
+                writeChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, report);
+        }
+        long took = System.currentTimeMillis() - start;
+        log.info("Sellout import: {} lines, {} imported, {} rejected in {} chunks ({} ms)",
+                report.linesRead, report.imported, report.rejected, report.chunks, took);
+        return new SelloutImportReportDTO(report.linesRead, report.imported, report.rejected, report.chunks,
+                report.errors, report.rejected > report.errors.size(), took);
+    }
+
+    private void writeChunk(List<Line> chunk, Report report) {
+        report.chunks++;
+        List<Line> unknownVisit = new ArrayList<>();
+        try {
+            Long imported;
+            try {
+                imported = insertChunk(chunk, unknownVisit);
+            } catch (DeadlockLoserDataAccessException ex) {
+                log.info("Sellout import chunk {} lost a deadlock, retrying once", report.chunks);
+                unknownVisit.clear();
+                imported = insertChunk(chunk, unknownVisit);
+            }
+            report.imported += imported != null ? imported : 0;
+            unknownVisit.forEach(line -> report.reject(line.number(), "Visite introuvable: " + line.visitId()));
+        } catch (RuntimeException ex) {
+            log.warn("Sellout import chunk {} failed: {}", report.chunks, ex.getMessage());
+            for (Line line : chunk) {
+                report.reject(line.number(), "Lot rejeté: " + ex.getMessage());
+            }
+        }
+    }
+
+    /** One transaction for the chunk; lines whose visit does not exist go to {@code unknownVisit}. */
+    private Long insertChunk(List<Line> chunk, List<Line> unknownVisit) {
+        return transactionTemplate.execute(tx -> {
+            Set<Long> visitIds = chunk.stream().map(Line::visitId).collect(Collectors.toSet());
+            Map<Long, VisitSnapshot> visits = visitRepository.findSnapshotsByIdIn(visitIds).stream()
+                    .collect(Collectors.toMap(VisitSnapshot::visitId, v -> v));
+            List<Line> valid = new ArrayList<>(chunk.size());
+            for (Line line : chunk) {
+                (visits.containsKey(line.visitId()) ? valid : unknownVisit).add(line);
+            }
+            if (valid.isEmpty()) {
+                return 0L;
+            }
+
+            List<Long> ids = idAllocator.nextIds("sellouts", valid.size());
+            List<Object[]> rows = new ArrayList<>(valid.size());
+            // Sorted by visit id: concurrent writers take the visit row locks in the same order
+            Map<Long, Double> salesDeltas = new TreeMap<>();
+            List<SelloutChange> changes = new ArrayList<>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                Line line = valid.get(i);
+                VisitSnapshot visit = visits.get(line.visitId());
+                rows.add(new Object[]{ids.get(i), line.visitId(), line.productId(), line.quantity(), line.amount(),
+                        Timestamp.valueOf(line.createdAt())});
+                salesDeltas.merge(line.visitId(), line.amount(), Double::sum);
+                changes.add(new SelloutChange(ids.get(i), line.visitId(), line.productId(), visit.userId(),
+                        visit.storeId(), visit.status(), visit.visitDate(), line.quantity(), line.amount(),
+                        line.createdAt(), false));
+            }
+            jdbcTemplate.batchUpdate(INSERT_SELLOUT, rows,
+                    new int[]{Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.TIMESTAMP});
+            jdbcTemplate.batchUpdate(ADD_SALES_AMOUNT, salesDeltas.entrySet().stream()
+                            .map(e -> new Object[]{e.getValue(), e.getKey()})
+                            .collect(Collectors.toList()),
+                    new int[]{Types.DOUBLE, Types.BIGINT});
+            eventPublisher.publishEvent(new SelloutChangedEvent(changes));
+            return (long) valid.size();
+        });
+    }
+
+    private static Line parse(long number, String text, Columns columns, Map<String, Long> productIdsBySku, Report report) {
+        List<String> fields = split(text, columns.separator());
+        int width = Math.max(Math.max(columns.visitId(), columns.sku()), Math.max(columns.quantity(), columns.amount()));
+        if (fields.size() <= Math.max(width, columns.createdAt())) {
+            report.reject(number, "Nombre de colonnes insuffisant");
+            return null;
+        }
+        Long productId = productIdsBySku.get(fields.get(columns.sku()).trim());
+        if (productId == null) {
+            report.reject(number, "SKU inconnu: " + fields.get(columns.sku()).trim());
+            return null;
+        }
+        try {
+            long visitId = Long.parseLong(fields.get(columns.visitId()).trim());
+            int quantity = Integer.parseInt(fields.get(columns.quantity()).trim());
+            double amount = Double.parseDouble(fields.get(columns.amount()).trim().replace(',', '.'));
+            LocalDateTime createdAt = columns.createdAt() >= 0
+                    ? parseTimestamp(fields.get(columns.createdAt()).trim()) : LocalDateTime.now();
+            return new Line(number, visitId, productId, quantity, amount, createdAt);
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            report.reject(number, "Valeur invalide: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value.isEmpty()) {
+            return LocalDateTime.now();
+        }
+        return value.length() <= 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value.replace(' ', 'T'));
+    }
+
+    private static Columns columnsOf(String header) {
+        char separator = count(header, ';') > count(header, ',') ? ';' : ',';
+        Map<String, Integer> positions = new HashMap<>();
+        List<String> names = split(header, separator);
+        for (int i = 0; i < names.size(); i++) {
+            positions.put(names.get(i).trim().toLowerCase().replace("\uFEFF", ""), i);
+        }
+        for (String required : List.of("visit_id", "sku", "quantity", "amount")) {
+            if (!positions.containsKey(required)) {
+                throw new IllegalArgumentException("Colonne obligatoire manquante: " + required);
+            }
+        }
+        return new Columns(separator, positions.get("visit_id"), positions.get("sku"),
+                positions.get("quantity"), positions.get("amount"), positions.getOrDefault("created_at", -1));
+    }
+
+    /** One CSV record: double quotes enclose a field, "" inside quotes is a literal quote. */
+    private static List<String> split(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int count(String text, char c) {
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,155 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.SelloutCreateDTO;
+import com.samsung.merchandising_api.dto.SelloutDTO;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.Sellout;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.SelloutRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sellout lines of a visit (/api/visits/{visitId}/sellout).
+ * <p>
+ * Every write adjusts the visit's denormalized {@code salesAmount} with an atomic delta and publishes
+ * a {@link SelloutChangedEvent} in the same transaction, so the KPI totals, the leaderboard and the
+ * cube see exactly the committed lines.
+ */
+@Service
+public class SelloutService {
+
+    private final SelloutRepository selloutRepository;
+    private final VisitRepository visitRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SelloutService(SelloutRepository selloutRepository,
+                          VisitRepository visitRepository,
+                          ProductRepository productRepository,
+                          ApplicationEventPublisher eventPublisher) {
+        this.selloutRepository = selloutRepository;
+        this.visitRepository = visitRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Add one line to the visit. Empty when the visit does not exist.
+     * @throws IllegalArgumentException when the product does not exist
+     */
+    @Transactional
+    public Optional<SelloutDTO> addSellout(Long visitId, SelloutCreateDTO dto) {
+        Visit visit = visitRepository.findById(visitId).orElse(null);
+        if (visit == null) {
+            return Optional.empty();
+        }
+        Product product = productRepository.findById(dto.getProductId())
+                .orElseThrow(() -> new IllegalArgumentException("Produit non trouvé avec l'ID: " + dto.getProductId()));
+
+        Sellout saved = selloutRepository.save(newSellout(visit, product, dto));
+
+        // Add the line to the visit's salesAmount in place (no re-sum, no lost update)
+        visitRepository.addToSalesAmount(visitId, saved.getAmount());
+        eventPublisher.publishEvent(new SelloutChangedEvent(List.of(changeOf(saved, visit, false))));
+        return Optional.of(SelloutDTO.fromEntity(saved));
+    }
+
+    /** Add several lines to the visit; lines with an unknown product are skipped. Empty when the visit does not exist. */
+    @Transactional
+    public Optional<List<SelloutDTO>> addSellouts(Long visitId, List<SelloutCreateDTO> dtos) {
+        Visit visit = visitRepository.findById(visitId).orElse(null);
+        if (visit == null) {
+            return Optional.empty();
+        }
+
+        Set<Long> productIds = dtos.stream()
+                .map(SelloutCreateDTO::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<SelloutDTO> results = new ArrayList<>();
+        List<SelloutChange> changes = new ArrayList<>();
+        double addedAmount = 0;
+        for (SelloutCreateDTO dto : dtos) {
+            Product product = products.get(dto.getProductId());
+            if (product == null) continue; // skip invalid products
+
+            Sellout saved = selloutRepository.save(newSellout(visit, product, dto));
+            results.add(SelloutDTO.fromEntity(saved));
+            changes.add(changeOf(saved, visit, false));
+            addedAmount += saved.getAmount();
+        }
+
+        // One increment for the whole batch; the inserts are flushed as JDBC batches before it
+        if (!changes.isEmpty()) {
+            visitRepository.addToSalesAmount(visitId, addedAmount);
+            eventPublisher.publishEvent(new SelloutChangedEvent(changes));
+        }
+        return Optional.of(results);
+    }
+
+    /** Delete a line of the visit; false when there is no such line on this visit. */
+    @Transactional
+    public boolean deleteSellout(Long visitId, Long selloutId) {
+        Sellout sellout = selloutRepository.findById(selloutId).orElse(null);
+        if (sellout == null || !sellout.getVisit().getId().equals(visitId)) {
+            return false;
+        }
+
+        selloutRepository.delete(sellout);
+
+        // Subtract the line from the visit's salesAmount
+        Visit visit = sellout.getVisit();
+        visitRepository.addToSalesAmount(visitId, -(sellout.getAmount() != null ? sellout.getAmount() : 0.0));
+        eventPublisher.publishEvent(new SelloutChangedEvent(List.of(changeOf(sellout, visit, true))));
+        return true;
+    }
+
+    /** Recompute the visit's salesAmount from its lines; the new total, or empty when the visit does not exist. */
+    @Transactional
+    public Optional<Double> recomputeSalesAmount(Long visitId) {
+        if (visitRepository.recomputeSalesAmount(visitId) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(selloutRepository.sumAmountByVisitId(visitId));
+    }
+
+    private static Sellout newSellout(Visit visit, Product product, SelloutCreateDTO dto) {
+        Sellout sellout = new Sellout();
+        sellout.setVisit(visit);
+        sellout.setProduct(product);
+        sellout.setQuantity(dto.getQuantity() != null ? dto.getQuantity() : 0);
+        sellout.setAmount(dto.getAmount() != null ? dto.getAmount() : 0.0);
+        sellout.setCreatedAt(LocalDateTime.now());
+        return sellout;
+    }
+
+    /** Sellout line with its visit's attribution, for listeners that must not reload the visit. */
+    private static SelloutChange changeOf(Sellout sellout, Visit visit, boolean removed) {
+        return new SelloutChange(sellout.getId(), visit.getId(), sellout.getProduct().getId(),
+                visit.getUser() != null ? visit.getUser().getId() : null,
+                visit.getStore() != null ? visit.getStore().getId() : null,
+                visit.getStatus(), visit.getVisitDate(),
+                sellout.getQuantity() != null ? sellout.getQuantity() : 0,
+                sellout.getAmount() != null ? sellout.getAmount() : 0.0,
+                sellout.getCreatedAt(), removed);
+    }
+}
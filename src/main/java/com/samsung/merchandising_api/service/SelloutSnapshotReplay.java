@@ -0,0 +1,63 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.event.SelloutChange;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sorts out the sellout changes delivered while an in-memory view loads its totals from a
+ * REPEATABLE READ snapshot (leaderboard, cube).
+ * <p>
+ * Whether a change is already in the snapshot is decided by visibility, never by id: ids come from
+ * a pooled sequence and imports commit in long chunks, so a line can carry a low id and still
+ * commit after the snapshot was taken. The ids are looked up from inside the snapshot transaction:
+ * an added line that is not visible there is replayed; a removal is replayed only when its line was
+ * counted, i.e. visible in the snapshot or added by a replayed change. A line deleted before the
+ * snapshot is therefore never subtracted twice.
+ */
+final class SelloutSnapshotReplay {
+
+    /** Upper bound on bind parameters per IN (...) list sent to Postgres. */
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private SelloutSnapshotReplay() {
+    }
+
+    /**
+     * Changes of {@code held} that the snapshot does not reflect, in their original order.
+     * {@code visibleIds} returns the given ids that exist in the snapshot; it must run in the
+     * snapshot transaction.
+     */
+    static List<SelloutChange> changesToReplay(List<SelloutChange> held,
+                                               Function<List<Long>, List<Long>> visibleIds) {
+        if (held.isEmpty()) {
+            return held;
+        }
+        List<Long> ids = held.stream().map(SelloutChange::selloutId).filter(Objects::nonNull).distinct().toList();
+        Set<Long> visible = new HashSet<>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK) {
+            visible.addAll(visibleIds.apply(ids.subList(i, Math.min(i + IN_CLAUSE_CHUNK, ids.size()))));
+        }
+
+        Set<Long> replayedAdds = new HashSet<>();
+        List<SelloutChange> replay = new ArrayList<>();
+        for (SelloutChange change : held) {
+            Long id = change.selloutId();
+            if (id == null) {
+                // Nothing to look up: the change is applied as it comes
+                replay.add(change);
+            } else if (!change.removed() && !visible.contains(id)) {
+                replayedAdds.add(id);
+                replay.add(change);
+            } else if (change.removed() && (visible.contains(id) || replayedAdds.contains(id))) {
+                replay.add(change);
+            }
+        }
+        return replay;
+    }
+}
@@ -0,0 +1,44 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.model.IdSequences;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ids for rows inserted with plain JDBC (sync bundles, the async visit queue), drawn from the same
+ * pooled sequences as Hibernate: each {@code nextval} reserves the block V-49..V, so n ids cost
+ * ⌈n / 50⌉ sequence calls in one round trip and never collide with Hibernate's blocks.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> nextIds(String table, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        int blocks = (count + IdSequences.ALLOCATION_SIZE - 1) / IdSequences.ALLOCATION_SIZE;
+        List<Long> highs = jdbcTemplate.queryForList(
+                "SELECT nextval(CAST(? AS regclass)) FROM generate_series(1, ?)",
+                Long.class, IdSequences.sequenceOf(table), blocks);
+        List<Long> ids = new ArrayList<>(count);
+        for (Long high : highs) {
+            // A brand-new sequence starts at 1: that first value covers id 1 only
+            for (long id = Math.max(1, high - IdSequences.ALLOCATION_SIZE + 1); id <= high && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        if (ids.size() < count) {
+            ids.addAll(nextIds(table, count - ids.size()));
+        }
+        return ids;
+    }
+}
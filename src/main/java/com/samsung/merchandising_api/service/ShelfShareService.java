@@ -0,0 +1,332 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.ShelfShareDistributionDTO;
+import com.samsung.merchandising_api.dto.ShelfShareStatsDTO;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import com.samsung.merchandising_api.model.ShelfShareDigest;
+import com.samsung.merchandising_api.model.ShelfShareDimension;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.repository.ShelfShareDigestRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shelf-share percentiles (p10 / p50 / p90) per day and per GLOBAL / REGION / CITY / STORE scope,
+ * kept as t-digests.
+ * <p>
+ * Submitted visits are added to in-memory digests right away ({@link SketchBuffer}); a scheduled
+ * flush merges them into {@code shelf_share_digests} under a row lock. Unlike HyperLogLog a
+ * t-digest merge is not idempotent, so a batch is only put back when its transaction rolled back.
+ * Queries merge the stored days of the range plus whatever is still pending and never read
+ * {@code visits}.
+ * The region is the promoter's, the city the store's.
+ * <p>
+ * Until the startup backfill has decided whether it runs, submitted visits are held back. A
+ * backfill reads {@code visits} from one REPEATABLE READ snapshot and, at its end, drops the held
+ * visits that snapshot already counted; the others are added like live ones.
+ */
+@Service
+public class ShelfShareService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShelfShareService.class);
+
+    private static final long MAX_RANGE_DAYS = 366;
+
+    /** Held visits the backfill snapshot counted: same predicate as {@link #BACKFILL_VISITS}. */
+    private static final String BACKFILLED_VISIT_IDS =
+            "SELECT v.id FROM visits v WHERE v.id = ANY(?) AND v.visit_date >= ? AND v.status <> 'PLANNED' " +
+            "AND v.shelf_share IS NOT NULL";
+
+    private static final String BACKFILL_VISITS =
+            "SELECT CAST(v.visit_date AS DATE) AS day, v.store_id, s.city, u.region, v.shelf_share " +
+            "FROM visits v JOIN stores s ON s.id = v.store_id JOIN users u ON u.id = v.user_id " +
+            "WHERE v.visit_date >= ? AND v.status <> 'PLANNED' " +
+            "AND v.shelf_share IS NOT NULL ORDER BY v.visit_date";
+
+    private record DigestKey(LocalDate day, ShelfShareDimension dimension, String key) {
+    }
+
+    private record StoreInfo(String name, String city) {
+    }
+
+    private final Map<Long, String> userRegions = new ConcurrentHashMap<>();
+    private final Map<Long, StoreInfo> stores = new ConcurrentHashMap<>();
+
+    private final Object backfillLock = new Object();
+    /** Visits submitted before the backfill is over; null afterwards. Guarded by backfillLock. */
+    private List<VisitSnapshot> heldVisits = new ArrayList<>();
+
+    private final ShelfShareDigestRepository digestRepository;
+    private final UserRepository userRepository;
+    private final StoreRepository storeRepository;
+    private final SketchBuffer<DigestKey, TDigest> digests;
+    private final JdbcTemplate jdbcTemplate;
+    private final int backfillDays;
+
+    public ShelfShareService(ShelfShareDigestRepository digestRepository,
+                             UserRepository userRepository,
+                             StoreRepository storeRepository,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.shelf-share.backfill-days:90}") int backfillDays) {
+        this.digestRepository = digestRepository;
+        this.userRepository = userRepository;
+        this.storeRepository = storeRepository;
+        this.digests = new SketchBuffer<>("Shelf-share", TDigest::new, TDigest::merge, this::write,
+                jdbcTemplate, transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.backfillDays = backfillDays;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVisitSubmitted(VisitSubmittedEvent event) {
+        List<VisitSnapshot> visits = event.visits().stream()
+                .filter(v -> v.shelfShare() != null && v.visitDate() != null && v.storeId() != null)
+                .toList();
+        if (visits.isEmpty()) {
+            return;
+        }
+        synchronized (backfillLock) {
+            if (heldVisits != null) {
+                heldVisits.addAll(visits);
+                return;
+            }
+        }
+        addVisits(visits);
+    }
+
+    private void addVisits(List<VisitSnapshot> visits) {
+        if (visits.isEmpty()) {
+            return;
+        }
+        Map<Long, String> regions = regionsOf(visits.stream().map(VisitSnapshot::userId).toList());
+        Map<Long, StoreInfo> storeInfos = storesOf(visits.stream().map(VisitSnapshot::storeId).toList());
+        for (VisitSnapshot visit : visits) {
+            StoreInfo store = storeInfos.get(visit.storeId());
+            add(visit.visitDate().toLocalDate(), visit.storeId(), regions.get(visit.userId()),
+                    store != null ? store.city() : null, visit.shelfShare());
+        }
+    }
+
+    /** Merge pending digests into the table; put back only if the transaction rolled back. */
+    @Scheduled(fixedDelayString = "${app.shelf-share.flush-interval-ms:30000}")
+    public void flush() {
+        digests.flush();
+    }
+
+    /**
+     * Rebuild the last {@code app.shelf-share.backfill-days} days from {@code visits} when no digest
+     * exists yet. Rows are streamed in date order from a read-only cursor; each finished day is
+     * flushed in its own transaction. A t-digest merge is not idempotent, so a day must not be
+     * rolled back after its digests left the buffer, nor written twice: a held visit is added only
+     * if the snapshot of the scan did not count it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (backfillDays <= 0 || digestRepository.count() > 0) {
+            addVisits(releaseHeldVisits());
+            return;
+        }
+        Date since = Date.valueOf(LocalDate.now().minusDays(backfillDays));
+        List<VisitSnapshot> replay = new ArrayList<>();
+        try {
+            digests.backfill(BACKFILL_VISITS, since, rs -> add(rs.getDate("day").toLocalDate(), rs.getLong("store_id"),
+                    rs.getString("region"), rs.getString("city"), rs.getDouble("shelf_share")), () -> {
+                // From here on visits are added live; they are delivered after commits that follow the snapshot
+                replay.addAll(releaseHeldVisits());
+                Set<Long> counted = new HashSet<>(backfilledVisitIds(replay, since));
+                replay.removeIf(v -> counted.contains(v.visitId()));
+            });
+        } catch (RuntimeException ex) {
+            // Days already flushed stay written; visits held back are not lost on top of that
+            replay.addAll(releaseHeldVisits());
+            addVisits(replay);
+            throw ex;
+        }
+        addVisits(replay);
+        log.info("Shelf-share digests backfilled for the last {} days, {} held visits replayed", backfillDays, replay.size());
+    }
+
+    private List<VisitSnapshot> releaseHeldVisits() {
+        synchronized (backfillLock) {
+            List<VisitSnapshot> held = heldVisits != null ? heldVisits : List.of();
+            heldVisits = null;
+            return held;
+        }
+    }
+
+    /** Ids among the held visits that the backfill read; runs in its snapshot. */
+    private List<Long> backfilledVisitIds(List<VisitSnapshot> held, Date since) {
+        Long[] ids = held.stream().map(VisitSnapshot::visitId).filter(Objects::nonNull).distinct().toArray(Long[]::new);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(BACKFILLED_VISIT_IDS);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setDate(2, since);
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * p10 / p50 / p90 over [from, to) for every key of {@code dimension} (or only {@code key}),
+     * weakest median first.
+     */
+    @Transactional(readOnly = true)
+    public ShelfShareDistributionDTO getDistribution(ShelfShareDimension dimension, String key, LocalDate from, LocalDate to) {
+        if (to == null) {
+            to = LocalDate.now().plusDays(1);
+        }
+        if (from == null) {
+            from = to.minusDays(30);
+        }
+        long days = ChronoUnit.DAYS.between(from, to);
+        if (days <= 0) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (days > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Range too large (max " + MAX_RANGE_DAYS + " days)");
+        }
+        String dimensionKey = dimension == ShelfShareDimension.GLOBAL ? ShelfShareDigest.ALL
+                : (key != null && !key.isBlank() ? key : null);
+
+        Map<String, TDigest> merged = new HashMap<>();
+        LocalDate rangeFrom = from;
+        LocalDate rangeTo = to;
+        digests.read(() -> {
+            for (ShelfShareDigest row : digestRepository.findRange(dimension, dimensionKey, rangeFrom, rangeTo.minusDays(1))) {
+                merged.computeIfAbsent(row.getDimensionKey(), k -> new TDigest())
+                        .merge(TDigest.fromBytes(row.getDigest()));
+            }
+        }, (dk, digest) -> {
+            if (dk.dimension() == dimension && !dk.day().isBefore(rangeFrom) && dk.day().isBefore(rangeTo)
+                    && (dimensionKey == null || dimensionKey.equals(dk.key()))) {
+                merged.computeIfAbsent(dk.key(), k -> new TDigest()).merge(digest);
+            }
+        });
+
+        Map<Long, StoreInfo> storeInfos = dimension == ShelfShareDimension.STORE
+                ? storesOf(merged.keySet().stream().map(ShelfShareService::parseId).filter(Objects::nonNull).toList())
+                : Map.<Long, StoreInfo>of();
+        List<ShelfShareStatsDTO> entries = new ArrayList<>(merged.size());
+        merged.forEach((k, digest) -> {
+            Long storeId = parseId(k);
+            StoreInfo store = storeId != null ? storeInfos.get(storeId) : null;
+            entries.add(new ShelfShareStatsDTO(k, store != null ? store.name() : k, digest.count(),
+                    round(digest.quantile(0.10)), round(digest.quantile(0.50)), round(digest.quantile(0.90))));
+        });
+        entries.sort(Comparator.comparing(ShelfShareStatsDTO::getP50).thenComparing(ShelfShareStatsDTO::getKey));
+        return new ShelfShareDistributionDTO(dimension.name(), from, to, entries);
+    }
+
+    private void add(LocalDate day, Long storeId, String region, String city, double shelfShare) {
+        digest(new DigestKey(day, ShelfShareDimension.GLOBAL, ShelfShareDigest.ALL), shelfShare);
+        digest(new DigestKey(day, ShelfShareDimension.STORE, storeId.toString()), shelfShare);
+        if (region != null && !region.isBlank()) {
+            digest(new DigestKey(day, ShelfShareDimension.REGION, region), shelfShare);
+        }
+        if (city != null && !city.isBlank()) {
+            digest(new DigestKey(day, ShelfShareDimension.CITY, city), shelfShare);
+        }
+    }
+
+    private void digest(DigestKey key, double value) {
+        digests.update(key, digest -> digest.add(value));
+    }
+
+    private void write(DigestKey key, TDigest digest) {
+        ShelfShareDigest row = digestRepository.findForUpdate(key.day(), key.dimension(), key.key())
+                .orElseGet(() -> {
+                    ShelfShareDigest created = new ShelfShareDigest();
+                    created.setDay(key.day());
+                    created.setDimension(key.dimension());
+                    created.setDimensionKey(key.key());
+                    return created;
+                });
+        TDigest stored = row.getDigest() != null ? TDigest.fromBytes(row.getDigest()) : new TDigest();
+        synchronized (digest) {
+            stored.merge(digest);
+        }
+        row.setDigest(stored.toBytes());
+        row.setValueCount(stored.count());
+        row.setUpdatedAt(LocalDateTime.now());
+        digestRepository.save(row);
+    }
+
+    /** Region of each promoter, loaded once per user. */
+    private Map<Long, String> regionsOf(Collection<Long> userIds) {
+        Set<Long> missing = new HashSet<>();
+        for (Long id : userIds) {
+            if (id != null && !userRegions.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findAllById(missing)) {
+                userRegions.put(user.getId(), user.getRegion() != null ? user.getRegion() : "");
+            }
+        }
+        Map<Long, String> regions = new HashMap<>();
+        userIds.stream().filter(Objects::nonNull).forEach(id -> regions.put(id, userRegions.get(id)));
+        return regions;
+    }
+
+    /** Name and city of each store, loaded once per store. */
+    private Map<Long, StoreInfo> storesOf(Collection<Long> storeIds) {
+        Set<Long> missing = new HashSet<>();
+        for (Long id : storeIds) {
+            if (id != null && !stores.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Store store : storeRepository.findAllById(missing)) {
+                stores.put(store.getId(), new StoreInfo(store.getName(), store.getCity()));
+            }
+        }
+        Map<Long, StoreInfo> infos = new HashMap<>();
+        storeIds.stream().filter(Objects::nonNull).forEach(id -> infos.put(id, stores.get(id)));
+        return infos;
+    }
+
+    private static Long parseId(String key) {
+        try {
+            return Long.valueOf(key);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
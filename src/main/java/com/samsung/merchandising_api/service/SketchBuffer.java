@@ -0,0 +1,185 @@
+package com.samsung.merchandising_api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory sketches (HyperLogLog, t-digest) waiting to be merged into their table, keyed by day
+ * and scope. Used by {@link CoverageService} and {@link ShelfShareService}.
+ * <p>
+ * Writers update the pending sketch of a key under the read side of a lock; a flush swaps the
+ * pending map under the write side and hands each sketch to the table writer in a transaction of
+ * its own (REQUIRES_NEW), so a flush called while a backfill cursor is open commits on its own.
+ * Flushes run one at a time. Until that transaction commits the batch stays visible to queries; if
+ * it rolls back the batch is merged back into the pending map for the next run. Queries read the
+ * table and the in-memory sketches under the read side of a visibility lock; the flush holds its
+ * write side from just before the commit until the batch has left memory, so a query sees the
+ * batch either in the table or in memory, never in both. Each sketch is its own monitor.
+ */
+final class SketchBuffer<K, S> {
+
+    private static final Logger log = LoggerFactory.getLogger(SketchBuffer.class);
+
+    private static final int BACKFILL_FETCH_SIZE = 5000;
+
+    private volatile Map<K, S> pending = new ConcurrentHashMap<>();
+    /** Batch being written by the running flush, still visible to queries until it commits. */
+    private volatile Map<K, S> flushing = Map.of();
+    /** Writers share the read side; swapping the pending map takes the write side. */
+    private final ReadWriteLock pendingLock = new ReentrantReadWriteLock();
+    /** Queries share the read side; a flush takes the write side around its commit. */
+    private final ReentrantReadWriteLock visibilityLock = new ReentrantReadWriteLock();
+    /** A scheduled flush and a backfill flush never write the same batch window concurrently. */
+    private final Lock flushLock = new ReentrantLock();
+
+    private final String name;
+    private final Supplier<S> factory;
+    /** (target, source): merges source into target. */
+    private final BiConsumer<S, S> merger;
+    /** Merges one sketch into its row inside the flush transaction; reads it under its monitor (queries read it too). */
+    private final BiConsumer<K, S> writer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+
+    SketchBuffer(String name, Supplier<S> factory, BiConsumer<S, S> merger, BiConsumer<K, S> writer,
+                 JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.factory = factory;
+        this.merger = merger;
+        this.writer = writer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        // One snapshot for the whole scan and whatever the caller checks at its end
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /** Applies {@code update} to the pending sketch of {@code key}, created if needed. */
+    void update(K key, Consumer<S> update) {
+        pendingLock.readLock().lock();
+        try {
+            S sketch = pending.computeIfAbsent(key, k -> factory.get());
+            synchronized (sketch) {
+                update.accept(sketch);
+            }
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code tableRead}, then passes every sketch not committed yet (being flushed, then
+     * pending), each under its own monitor, to {@code inMemory}. No flush commits in between.
+     */
+    void read(Runnable tableRead, BiConsumer<K, S> inMemory) {
+        visibilityLock.readLock().lock();
+        try {
+            tableRead.run();
+            List<Map.Entry<K, S>> entries = new ArrayList<>(flushing.entrySet());
+            entries.addAll(pending.entrySet());
+            for (Map.Entry<K, S> entry : entries) {
+                synchronized (entry.getValue()) {
+                    inMemory.accept(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            visibilityLock.readLock().unlock();
+        }
+    }
+
+    /** Merge pending sketches into the table; put back only if the transaction rolled back. */
+    void flush() {
+        flushLock.lock();
+        try {
+            Map<K, S> batch;
+            pendingLock.writeLock().lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                flushing = batch;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                pendingLock.writeLock().unlock();
+            }
+            try {
+                writeTransaction.executeWithoutResult(tx -> {
+                    batch.forEach(writer);
+                    // Last step before the commit: queries wait until the batch has left memory
+                    visibilityLock.writeLock().lock();
+                });
+            } catch (RuntimeException ex) {
+                if (!visibilityLock.isWriteLockedByCurrentThread()) {
+                    visibilityLock.writeLock().lock();
+                }
+                log.warn("{} flush of {} sketches failed, retrying later: {}", name, batch.size(), ex.getMessage());
+                batch.forEach((key, sketch) -> update(key, target -> merger.accept(target, sketch)));
+            } finally {
+                flushing = Map.of();
+                if (visibilityLock.isWriteLockedByCurrentThread()) {
+                    visibilityLock.writeLock().unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Streams {@code sql} (one DATE parameter, a {@code day} column, rows in day order) from a
+     * read-only cursor, feeding each row to {@code row} and flushing every finished day, then the last.
+     */
+    void backfill(String sql, Date since, RowCallbackHandler row) {
+        backfill(sql, since, row, () -> {
+        });
+    }
+
+    /**
+     * Same, then runs {@code inSnapshot} in the REPEATABLE READ transaction of the scan, so it sees
+     * exactly the rows the scan saw.
+     */
+    void backfill(String sql, Date since, RowCallbackHandler row, Runnable inSnapshot) {
+        LocalDate[] currentDay = new LocalDate[1];
+        readTransaction.executeWithoutResult(tx -> {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql);
+                ps.setFetchSize(BACKFILL_FETCH_SIZE);
+                ps.setDate(1, since);
+                return ps;
+            }, rs -> {
+                LocalDate day = rs.getDate("day").toLocalDate();
+                if (currentDay[0] != null && !day.equals(currentDay[0])) {
+                    flush();
+                }
+                currentDay[0] = day;
+                row.processRow(rs);
+            });
+            inSnapshot.run();
+        });
+        flush();
+    }
+}
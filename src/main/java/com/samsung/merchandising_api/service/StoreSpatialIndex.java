@@ -0,0 +1,187 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.NearbyStoreDTO;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid index over store coordinates.
+ * <p>
+ * The map is cut into fixed cells of {@link #CELL_DEGREES}; a radius query only visits the
+ * handful of cells overlapping the search circle, so geofence checks and "which store am I in?"
+ * lookups never hit the database. Reads are lock-free (cells are copy-on-write arrays);
+ * writes come from the store endpoints and are serialized.
+ */
+@Component
+public class StoreSpatialIndex {
+
+    /** Cell size in degrees (~1.1 km of latitude), a good fit for the 500 m geofence. */
+    static final double CELL_DEGREES = 0.01;
+
+    /** Above this many cells a query just scans every store instead of walking the grid. */
+    private static final int MAX_CELLS_PER_QUERY = 10_000;
+
+    private static final double EARTH_RADIUS_METERS = 6371000;
+    private static final double METERS_PER_DEGREE_LAT = 111_320;
+
+    private final StoreRepository storeRepository;
+
+    private final Map<Long, Entry[]> cells = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+
+    public StoreSpatialIndex(StoreRepository storeRepository) {
+        this.storeRepository = storeRepository;
+    }
+
+    /** Snapshot of the store fields the index needs to answer queries on its own. */
+    record Entry(Long id, String name, String type, String city, String address, double latitude, double longitude) {
+        long cellKey() {
+            return StoreSpatialIndex.cellKey(cellOf(latitude), cellOf(longitude));
+        }
+    }
+
+    record Hit(Entry entry, double distanceMeters) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild(storeRepository.findAll());
+    }
+
+    public synchronized void rebuild(Collection<Store> stores) {
+        cells.clear();
+        byId.clear();
+        stores.forEach(this::put);
+    }
+
+    /** Insert or move a store. Stores without coordinates are dropped from the index. */
+    public synchronized void put(Store store) {
+        if (store == null || store.getId() == null) {
+            return;
+        }
+        remove(store.getId());
+        if (store.getLatitude() == null || store.getLongitude() == null) {
+            return;
+        }
+        Entry entry = new Entry(store.getId(), store.getName(), store.getType(), store.getCity(),
+                store.getAddress(), store.getLatitude(), store.getLongitude());
+        byId.put(entry.id(), entry);
+        cells.merge(entry.cellKey(), new Entry[]{entry}, (existing, added) -> {
+            Entry[] copy = Arrays.copyOf(existing, existing.length + 1);
+            copy[existing.length] = added[0];
+            return copy;
+        });
+    }
+
+    public synchronized void putAll(Collection<Store> stores) {
+        stores.forEach(this::put);
+    }
+
+    public synchronized void remove(Long storeId) {
+        Entry previous = byId.remove(storeId);
+        if (previous == null) {
+            return;
+        }
+        cells.computeIfPresent(previous.cellKey(), (key, existing) -> {
+            Entry[] kept = Arrays.stream(existing).filter(e -> !e.id().equals(storeId)).toArray(Entry[]::new);
+            return kept.length == 0 ? null : kept;
+        });
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Up to {@code k} stores within {@code radiusMeters} of the point, closest first.
+     */
+    public List<NearbyStoreDTO> findNearby(double latitude, double longitude, double radiusMeters, int k) {
+        return nearest(latitude, longitude, radiusMeters, k).stream()
+                .map(hit -> new NearbyStoreDTO(hit.entry().id(), hit.entry().name(), hit.entry().type(),
+                        hit.entry().city(), hit.entry().address(), hit.entry().latitude(), hit.entry().longitude(),
+                        Math.round(hit.distanceMeters())))
+                .toList();
+    }
+
+    /** Closest store within {@code radiusMeters}, or null when none is in range. */
+    public NearbyStoreDTO findNearest(double latitude, double longitude, double radiusMeters) {
+        List<NearbyStoreDTO> hits = findNearby(latitude, longitude, radiusMeters, 1);
+        return hits.isEmpty() ? null : hits.get(0);
+    }
+
+    List<Hit> nearest(double latitude, double longitude, double radiusMeters, int k) {
+        if (k <= 0 || radiusMeters < 0) {
+            return List.of();
+        }
+        double dLat = radiusMeters / METERS_PER_DEGREE_LAT;
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double dLon = radiusMeters / (METERS_PER_DEGREE_LAT * cosLat);
+
+        int minLatCell = cellOf(latitude - dLat);
+        int maxLatCell = cellOf(latitude + dLat);
+        int minLonCell = cellOf(longitude - dLon);
+        int maxLonCell = cellOf(longitude + dLon);
+
+        List<Hit> hits = new ArrayList<>();
+        long cellCount = (long) (maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1);
+        if (cellCount > MAX_CELLS_PER_QUERY) {
+            for (Entry entry : byId.values()) {
+                collect(entry, latitude, longitude, radiusMeters, hits);
+            }
+        } else {
+            for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (int lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    Entry[] bucket = cells.get(cellKey(latCell, lonCell));
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (Entry entry : bucket) {
+                        collect(entry, latitude, longitude, radiusMeters, hits);
+                    }
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceMeters));
+        return hits.size() > k ? hits.subList(0, k) : hits;
+    }
+
+    private static void collect(Entry entry, double latitude, double longitude, double radiusMeters, List<Hit> hits) {
+        double distance = distanceMeters(latitude, longitude, entry.latitude(), entry.longitude());
+        if (distance <= radiusMeters) {
+            hits.add(new Hit(entry, distance));
+        }
+    }
+
+    /**
+     * Calculate distance between two GPS coordinates using the Haversine formula.
+     * @return distance in meters
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_METERS * c;
+    }
+
+    private static int cellOf(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+}
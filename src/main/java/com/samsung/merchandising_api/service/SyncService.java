@@ -0,0 +1,416 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.InteractionCreateDTO;
+import com.samsung.merchandising_api.dto.SelloutCreateDTO;
+import com.samsung.merchandising_api.dto.SyncBundleDTO;
+import com.samsung.merchandising_api.dto.SyncOperationDTO;
+import com.samsung.merchandising_api.dto.SyncResponseDTO;
+import com.samsung.merchandising_api.dto.SyncResultDTO;
+import com.samsung.merchandising_api.dto.VisitSubmitDTO;
+import com.samsung.merchandising_api.event.InteractionChange;
+import com.samsung.merchandising_api.event.InteractionsChangedEvent;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import com.samsung.merchandising_api.model.Assignment;
+import com.samsung.merchandising_api.model.Product;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.SyncOperation;
+import com.samsung.merchandising_api.model.SyncOperationType;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.repository.AssignmentRepository;
+import com.samsung.merchandising_api.repository.ProductRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.SyncOperationRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies an ordered bundle of offline operations from the mobile app in one transaction.
+ * <p>
+ * Every operation carries a device-generated idempotency key: keys already recorded in
+ * {@code sync_operations} are answered as DUPLICATE with the original entity id, so a
+ * retried upload never creates rows twice. References (stores, users, products, visits)
+ * are resolved with one IN query per table and interactions / sellouts are written with
+ * JDBC batch inserts. Invalid operations are REJECTED individually without aborting the
+ * rest of the bundle, and are not recorded so the client can fix and resend them.
+ * Created visits and sellout lines are published as events inside the transaction.
+ */
+@Service
+public class SyncService {
+
+    public static final int MAX_OPERATIONS_PER_BUNDLE = 2000;
+
+    private static final String INSERT_INTERACTION =
+            "INSERT INTO interactions (id, visit_id, product_id, gender, color, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SELLOUT =
+            "INSERT INTO sellouts (id, visit_id, product_id, quantity, amount, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SYNC_OPERATION =
+            "INSERT INTO sync_operations (id, idempotency_key, operation_type, entity_id, device_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ADD_INTERACTION_COUNT =
+            "UPDATE visits SET interaction_count = COALESCE(interaction_count, 0) + ?, updated_at = now() WHERE id = ?";
+    private static final String ADD_SALES_AMOUNT =
+            "UPDATE visits SET sales_amount = COALESCE(sales_amount, 0) + ?, updated_at = now() WHERE id = ?";
+
+    private final SyncOperationRepository syncOperationRepository;
+    private final VisitRepository visitRepository;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final ProductRepository productRepository;
+    private final VisitSubmissionService visitSubmissionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SyncService(SyncOperationRepository syncOperationRepository,
+                       VisitRepository visitRepository,
+                       StoreRepository storeRepository,
+                       UserRepository userRepository,
+                       AssignmentRepository assignmentRepository,
+                       ProductRepository productRepository,
+                       VisitSubmissionService visitSubmissionService,
+                       JdbcTemplate jdbcTemplate,
+                       SequenceIdAllocator idAllocator,
+                       ApplicationEventPublisher eventPublisher) {
+        this.syncOperationRepository = syncOperationRepository;
+        this.visitRepository = visitRepository;
+        this.storeRepository = storeRepository;
+        this.userRepository = userRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.productRepository = productRepository;
+        this.visitSubmissionService = visitSubmissionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public SyncResponseDTO sync(SyncBundleDTO bundle) {
+        List<SyncOperationDTO> ops = bundle.getOperations() != null ? bundle.getOperations() : List.of();
+        if (ops.size() > MAX_OPERATIONS_PER_BUNDLE) {
+            throw new IllegalArgumentException("Too many operations in one bundle (max " + MAX_OPERATIONS_PER_BUNDLE + ")");
+        }
+        SyncResultDTO[] results = new SyncResultDTO[ops.size()];
+
+        // ── 1. Idempotency: reject malformed keys, answer already-applied ones ──
+        Set<String> lookupKeys = new HashSet<>();
+        Set<String> seenInBundle = new HashSet<>();
+        for (int i = 0; i < ops.size(); i++) {
+            SyncOperationDTO op = ops.get(i);
+            if (op == null || op.getIdempotencyKey() == null || op.getIdempotencyKey().isBlank() || op.getType() == null) {
+                results[i] = rejected(op, "idempotencyKey and type are required");
+            } else if (op.getIdempotencyKey().length() > 100) {
+                results[i] = rejected(op, "idempotencyKey is longer than 100 characters");
+            } else if (!seenInBundle.add(op.getIdempotencyKey())) {
+                results[i] = rejected(op, "idempotencyKey repeated in bundle");
+            } else {
+                lookupKeys.add(op.getIdempotencyKey());
+            }
+            if (op != null && op.getVisitKey() != null) {
+                lookupKeys.add(op.getVisitKey());
+            }
+        }
+        Map<String, SyncOperation> applied = lookupKeys.isEmpty() ? Map.of()
+                : syncOperationRepository.findByIdempotencyKeyIn(lookupKeys).stream()
+                        .collect(Collectors.toMap(SyncOperation::getIdempotencyKey, Function.identity()));
+
+        Map<String, Long> visitIdsByKey = new HashMap<>();
+        applied.values().stream()
+                .filter(o -> o.getType() == SyncOperationType.VISIT)
+                .forEach(o -> visitIdsByKey.put(o.getIdempotencyKey(), o.getEntityId()));
+        for (int i = 0; i < ops.size(); i++) {
+            if (results[i] == null) {
+                SyncOperation previous = applied.get(ops.get(i).getIdempotencyKey());
+                if (previous != null) {
+                    results[i] = new SyncResultDTO(previous.getIdempotencyKey(), previous.getType(),
+                            SyncResultDTO.Status.DUPLICATE, previous.getEntityId(), null);
+                }
+            }
+        }
+
+        // ── 2. Resolve every referenced row with one IN query per table ──
+        Set<Long> storeIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> assignmentIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> visitIds = new HashSet<>();
+        for (int i = 0; i < ops.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            SyncOperationDTO op = ops.get(i);
+            if (op.getVisit() != null) {
+                addIfPresent(storeIds, op.getVisit().getStoreId());
+                addIfPresent(userIds, op.getVisit().getUserId());
+                addIfPresent(assignmentIds, op.getVisit().getAssignmentId());
+            }
+            if (op.getInteraction() != null) {
+                addIfPresent(productIds, op.getInteraction().getProductId());
+            }
+            if (op.getSellout() != null) {
+                addIfPresent(productIds, op.getSellout().getProductId());
+            }
+            addIfPresent(visitIds, op.getVisitId());
+        }
+        Map<Long, Store> stores = byId(storeRepository.findAllById(storeIds), Store::getId);
+        Map<Long, User> users = byId(userRepository.findAllById(userIds), User::getId);
+        Map<Long, Assignment> assignments = byId(assignmentRepository.findAllById(assignmentIds), Assignment::getId);
+        Map<Long, Product> products = byId(productRepository.findAllById(productIds), Product::getId);
+        Set<Long> existingVisitIds = visitIds.isEmpty() ? Set.of() : new HashSet<>(visitRepository.findExistingIds(visitIds));
+
+        // ── 3. Visits first, so later operations in the bundle can reference them by key ──
+        List<Visit> newVisits = new ArrayList<>();
+        List<Integer> newVisitIndexes = new ArrayList<>();
+        // Identity set: Lombok's hashCode on Assignment changes as check-in times are set
+        Set<Assignment> touchedAssignments = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < ops.size(); i++) {
+            SyncOperationDTO op = ops.get(i);
+            if (results[i] != null || op.getType() != SyncOperationType.VISIT) {
+                continue;
+            }
+            VisitSubmitDTO dto = op.getVisit();
+            if (dto == null) {
+                results[i] = rejected(op, "visit payload is required");
+                continue;
+            }
+            Store store = dto.getStoreId() != null ? stores.get(dto.getStoreId()) : null;
+            User user = dto.getUserId() != null ? users.get(dto.getUserId()) : null;
+            if (store == null || user == null) {
+                results[i] = rejected(op, "Unknown store or user");
+                continue;
+            }
+            Assignment assignment = dto.getAssignmentId() != null ? assignments.get(dto.getAssignmentId()) : null;
+            Visit visit = visitSubmissionService.buildCompletedVisit(dto, store, user, assignment,
+                    timestampOf(op), visitSubmissionService.checkGeofence(dto, store));
+            if (assignment != null) {
+                touchedAssignments.add(assignment);
+            }
+            newVisits.add(visit);
+            newVisitIndexes.add(i);
+        }
+        List<Visit> savedVisits = visitRepository.saveAll(newVisits);
+        assignmentRepository.saveAll(touchedAssignments);
+        visitRepository.flush();
+        if (!savedVisits.isEmpty()) {
+            eventPublisher.publishEvent(new VisitSubmittedEvent(
+                    savedVisits.stream().map(VisitSnapshot::of).collect(Collectors.toList())));
+        }
+        for (int n = 0; n < savedVisits.size(); n++) {
+            int i = newVisitIndexes.get(n);
+            SyncOperationDTO op = ops.get(i);
+            Long id = savedVisits.get(n).getId();
+            visitIdsByKey.put(op.getIdempotencyKey(), id);
+            results[i] = new SyncResultDTO(op.getIdempotencyKey(), op.getType(), SyncResultDTO.Status.CREATED, id, null);
+        }
+
+        // ── 4. Interactions and sellouts, written with JDBC batch inserts ──
+        List<Integer> interactionIndexes = new ArrayList<>();
+        List<Object[]> interactionRows = new ArrayList<>();
+        List<Integer> selloutIndexes = new ArrayList<>();
+        List<Object[]> selloutRows = new ArrayList<>();
+        Map<Long, Integer> newInteractionsByVisit = new LinkedHashMap<>();
+        Set<Long> visitsWithNewSellouts = new LinkedHashSet<>();
+        for (int i = 0; i < ops.size(); i++) {
+            SyncOperationDTO op = ops.get(i);
+            if (results[i] != null || op.getType() == SyncOperationType.VISIT) {
+                continue;
+            }
+            Long visitId = resolveVisitId(op, visitIdsByKey, existingVisitIds);
+            if (visitId == null) {
+                results[i] = rejected(op, "Unknown visit");
+                continue;
+            }
+            Timestamp createdAt = Timestamp.valueOf(timestampOf(op));
+            if (op.getType() == SyncOperationType.INTERACTION) {
+                InteractionCreateDTO dto = op.getInteraction();
+                if (dto == null) {
+                    results[i] = rejected(op, "interaction payload is required");
+                    continue;
+                }
+                Long productId = dto.getProductId() != null && products.containsKey(dto.getProductId())
+                        ? dto.getProductId() : null;
+                interactionIndexes.add(i);
+                interactionRows.add(new Object[]{null, visitId, productId, dto.getGender(), dto.getColor(), createdAt});
+                newInteractionsByVisit.merge(visitId, 1, Integer::sum);
+            } else {
+                SelloutCreateDTO dto = op.getSellout();
+                if (dto == null || dto.getProductId() == null || !products.containsKey(dto.getProductId())) {
+                    results[i] = rejected(op, "Produit non trouvé avec l'ID: " + (dto != null ? dto.getProductId() : null));
+                    continue;
+                }
+                selloutIndexes.add(i);
+                selloutRows.add(new Object[]{null, visitId, dto.getProductId(),
+                        dto.getQuantity() != null ? dto.getQuantity() : 0,
+                        dto.getAmount() != null ? dto.getAmount() : 0.0, createdAt});
+                visitsWithNewSellouts.add(visitId);
+            }
+        }
+        insertWithIds("interactions", INSERT_INTERACTION, interactionRows, interactionIndexes, ops, results,
+                new int[]{Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP});
+        insertWithIds("sellouts", INSERT_SELLOUT, selloutRows, selloutIndexes, ops, results,
+                new int[]{Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.DOUBLE, Types.TIMESTAMP});
+
+        publishInteractions(interactionRows, newInteractionsByVisit.keySet());
+        publishSellouts(selloutRows, visitsWithNewSellouts);
+
+        // ── 5. Bump the denormalized counters by one delta per affected visit ──
+        if (!newInteractionsByVisit.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_INTERACTION_COUNT, newInteractionsByVisit.entrySet().stream()
+                            .map(e -> new Object[]{e.getValue(), e.getKey()})
+                            .collect(Collectors.toList()),
+                    new int[]{Types.INTEGER, Types.BIGINT});
+        }
+        addSalesAmounts(selloutRows);
+
+        // ── 6. Remember what was applied; a concurrent replay of the same key fails on the unique index ──
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> records = new ArrayList<>();
+        for (SyncResultDTO result : results) {
+            if (result.getStatus() == SyncResultDTO.Status.CREATED) {
+                records.add(new Object[]{null, result.getIdempotencyKey(), result.getType().name(), result.getEntityId(),
+                        bundle.getDeviceId(), now});
+            }
+        }
+        if (!records.isEmpty()) {
+            // Same pooled blocks as the entity inserts: one nextval per 50 records, not one per record
+            List<Long> ids = idAllocator.nextIds("sync_operations", records.size());
+            for (int n = 0; n < records.size(); n++) {
+                records.get(n)[0] = ids.get(n);
+            }
+            jdbcTemplate.batchUpdate(INSERT_SYNC_OPERATION, records,
+                    new int[]{Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP});
+        }
+
+        int created = 0;
+        int duplicates = 0;
+        int rejectedCount = 0;
+        for (SyncResultDTO result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case REJECTED -> rejectedCount++;
+            }
+        }
+        return new SyncResponseDTO(created, duplicates, rejectedCount, List.of(results));
+    }
+
+    /** Ids are drawn from the table's pooled sequence up front so the inserts can be batched. */
+    private void insertWithIds(String table, String sql, List<Object[]> rows, List<Integer> indexes,
+                               List<SyncOperationDTO> ops, SyncResultDTO[] results, int[] argTypes) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Long> ids = idAllocator.nextIds(table, rows.size());
+        for (int n = 0; n < rows.size(); n++) {
+            rows.get(n)[0] = ids.get(n);
+        }
+        jdbcTemplate.batchUpdate(sql, rows, argTypes);
+        for (int n = 0; n < rows.size(); n++) {
+            SyncOperationDTO op = ops.get(indexes.get(n));
+            results[indexes.get(n)] = new SyncResultDTO(op.getIdempotencyKey(), op.getType(),
+                    SyncResultDTO.Status.CREATED, ids.get(n), null);
+        }
+    }
+
+    /** Rows as built for INSERT_INTERACTION; visit context comes from one IN query. */
+    private void publishInteractions(List<Object[]> interactionRows, Set<Long> visitIds) {
+        if (interactionRows.isEmpty()) {
+            return;
+        }
+        Map<Long, VisitSnapshot> visits = byId(visitRepository.findSnapshotsByIdIn(visitIds), VisitSnapshot::visitId);
+        List<InteractionChange> changes = new ArrayList<>(interactionRows.size());
+        for (Object[] row : interactionRows) {
+            VisitSnapshot visit = visits.get((Long) row[1]);
+            changes.add(new InteractionChange((Long) row[1], visit != null ? visit.userId() : null,
+                    visit != null ? visit.storeId() : null, (Long) row[2], (String) row[3], (String) row[4],
+                    ((Timestamp) row[5]).toLocalDateTime(), false));
+        }
+        eventPublisher.publishEvent(new InteractionsChangedEvent(changes));
+    }
+
+    /** Rows as built for INSERT_SELLOUT, ids already assigned; visit context comes from one IN query. */
+    private void publishSellouts(List<Object[]> selloutRows, Set<Long> visitIds) {
+        if (selloutRows.isEmpty()) {
+            return;
+        }
+        Map<Long, VisitSnapshot> visits = byId(visitRepository.findSnapshotsByIdIn(visitIds), VisitSnapshot::visitId);
+        List<SelloutChange> changes = new ArrayList<>(selloutRows.size());
+        for (Object[] row : selloutRows) {
+            VisitSnapshot visit = visits.get((Long) row[1]);
+            changes.add(new SelloutChange((Long) row[0], (Long) row[1], (Long) row[2],
+                    visit != null ? visit.userId() : null, visit != null ? visit.storeId() : null,
+                    visit != null ? visit.status() : null, visit != null ? visit.visitDate() : null,
+                    (Integer) row[3], (Double) row[4], ((Timestamp) row[5]).toLocalDateTime(), false));
+        }
+        eventPublisher.publishEvent(new SelloutChangedEvent(changes));
+    }
+
+    /** One atomic increment per visit with the sum of its new sellout lines (rows as built for INSERT_SELLOUT). */
+    private void addSalesAmounts(List<Object[]> selloutRows) {
+        if (selloutRows.isEmpty()) {
+            return;
+        }
+        Map<Long, Double> deltas = new LinkedHashMap<>();
+        for (Object[] row : selloutRows) {
+            deltas.merge((Long) row[1], (Double) row[4], Double::sum);
+        }
+        List<Object[]> args = deltas.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(ADD_SALES_AMOUNT, args, new int[]{Types.DOUBLE, Types.BIGINT});
+    }
+
+
+    private Long resolveVisitId(SyncOperationDTO op, Map<String, Long> visitIdsByKey, Set<Long> existingVisitIds) {
+        if (op.getVisitKey() != null) {
+            return visitIdsByKey.get(op.getVisitKey());
+        }
+        if (op.getVisitId() != null && existingVisitIds.contains(op.getVisitId())) {
+            return op.getVisitId();
+        }
+        return null;
+    }
+
+    private LocalDateTime timestampOf(SyncOperationDTO op) {
+        return op.getClientTimestamp() != null ? op.getClientTimestamp() : LocalDateTime.now();
+    }
+
+    private SyncResultDTO rejected(SyncOperationDTO op, String error) {
+        return new SyncResultDTO(op != null ? op.getIdempotencyKey() : null, op != null ? op.getType() : null,
+                SyncResultDTO.Status.REJECTED, null, error);
+    }
+
+    private static void addIfPresent(Set<Long> ids, Long id) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    private static <T> Map<Long, T> byId(List<T> entities, Function<T, Long> idOf) {
+        return entities.stream().collect(Collectors.toMap(idOf, Function.identity()));
+    }
+}
@@ -0,0 +1,178 @@
+package com.samsung.merchandising_api.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest (Dunning) for streaming quantiles of a double-valued measure.
+ * <p>
+ * Values are kept as weighted centroids; centroids near the median may absorb many points while
+ * those in the tails stay small, so extreme quantiles (p10, p90) remain accurate. With the default
+ * compression of 100 a digest holds a few hundred centroids, growing only with the logarithm of the
+ * number of points (about 750 for a million), and two digests merge by pooling their centroids and
+ * compressing again. Not thread-safe.
+ */
+public final class TDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int size;
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    /** Centroids appended since the last compression. */
+    private int unmerged;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) (6 * compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.size; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        if (other.size > 0) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    public long count() {
+        return Math.round(totalWeight);
+    }
+
+    /** Value below which a fraction {@code q} of the points fall; NaN when empty. */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q must be in [0, 1]");
+        }
+        compress();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size == 1) {
+            return means[0];
+        }
+        double target = q * totalWeight;
+        if (target <= weights[0] / 2) {
+            return interpolate(min, means[0], target / (weights[0] / 2));
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < size - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step >= target) {
+                return interpolate(means[i], means[i + 1], (target - cumulative) / step);
+            }
+            cumulative += step;
+        }
+        double lastHalf = weights[size - 1] / 2;
+        return interpolate(means[size - 1], max, lastHalf == 0 ? 1 : (target - cumulative) / lastHalf);
+    }
+
+    /** [compression, min, max, n, mean0, weight0, mean1, weight1, ...] */
+    public byte[] toBytes() {
+        compress();
+        ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES * 3 + Integer.BYTES + size * 2 * Double.BYTES);
+        buffer.putDouble(compression).putDouble(min).putDouble(max).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putDouble(means[i]).putDouble(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    public static TDigest fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        TDigest digest = new TDigest(buffer.getDouble());
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        int n = buffer.getInt();
+        for (int i = 0; i < n; i++) {
+            digest.add(buffer.getDouble(), buffer.getDouble());
+        }
+        digest.min = min;
+        digest.max = max;
+        return digest;
+    }
+
+    private void add(double mean, double weight) {
+        if (Double.isNaN(mean)) {
+            return;
+        }
+        if (size == means.length) {
+            compress();
+            if (size == means.length) {
+                means = Arrays.copyOf(means, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+        }
+        means[size] = mean;
+        weights[size] = weight;
+        size++;
+        unmerged++;
+        totalWeight += weight;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    /**
+     * Sort all centroids and greedily merge neighbours while the merged weight stays under
+     * 4 · W · q(1 − q) / compression, the t-digest size bound at quantile q.
+     */
+    private void compress() {
+        if (unmerged == 0 || size == 0) {
+            unmerged = 0;
+            return;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        double[] m = means;
+        Arrays.sort(order, (a, b) -> Double.compare(m[a], m[b]));
+
+        double[] newMeans = new double[means.length];
+        double[] newWeights = new double[weights.length];
+        int n = 0;
+        double weightSoFar = 0;
+        newMeans[0] = means[order[0]];
+        newWeights[0] = weights[order[0]];
+        for (int k = 1; k < size; k++) {
+            int i = order[k];
+            double proposed = newWeights[n] + weights[i];
+            double q = (weightSoFar + proposed / 2) / totalWeight;
+            double limit = Math.max(1, 4 * totalWeight * q * (1 - q) / compression);
+            if (proposed <= limit) {
+                newMeans[n] += (means[i] - newMeans[n]) * weights[i] / proposed;
+                newWeights[n] = proposed;
+            } else {
+                weightSoFar += newWeights[n];
+                n++;
+                newMeans[n] = means[i];
+                newWeights[n] = weights[i];
+            }
+        }
+        means = newMeans;
+        weights = newWeights;
+        size = n + 1;
+        unmerged = 0;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * Math.max(0, Math.min(1, fraction));
+    }
+}
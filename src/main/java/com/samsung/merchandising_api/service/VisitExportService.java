@@ -0,0 +1,117 @@
+package com.samsung.merchandising_api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samsung.merchandising_api.dto.VisitSummaryDTO;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams visits to an OutputStream straight from a database cursor.
+ * Rows are written as they are read, so memory stays flat whatever the export size.
+ */
+@Service
+public class VisitExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    /** Flush to the client every N rows (and right after the first one). */
+    private static final int FLUSH_EVERY = 500;
+
+    private static final String CSV_HEADER = "id,visitDate,status,salesAmount,shelfShare,interactionCount," +
+            "storeId,storeName,storeCity,userId,userName,userRole,assignmentId,photoUrl,comment\n";
+
+    private final VisitRepository visitRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public VisitExportService(VisitRepository visitRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.visitRepository = visitRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write every visit matching the filters to {@code out}.
+     * Runs in its own read-only transaction so Postgres keeps the cursor open while rows are streamed.
+     */
+    public void export(OutputStream out, Format format, Long userId, Long storeId,
+                       VisitStatus status, LocalDateTime from, LocalDateTime to) {
+        readOnlyTransaction.executeWithoutResult(tx -> {
+            try (Stream<VisitSummaryDTO> rows = visitRepository.streamSummaries(userId, storeId, status, from, to)) {
+                BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+                if (format == Format.CSV) {
+                    buffered.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+                }
+                long written = 0;
+                Iterator<VisitSummaryDTO> it = rows.iterator();
+                while (it.hasNext()) {
+                    VisitSummaryDTO row = it.next();
+                    if (format == Format.CSV) {
+                        buffered.write(toCsvLine(row).getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        buffered.write(objectMapper.writeValueAsBytes(row));
+                        buffered.write('\n');
+                    }
+                    written++;
+                    if (written == 1 || written % FLUSH_EVERY == 0) {
+                        buffered.flush();
+                    }
+                }
+                buffered.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private String toCsvLine(VisitSummaryDTO v) {
+        StringBuilder sb = new StringBuilder(256);
+        appendCsv(sb, v.getId()).append(',');
+        appendCsv(sb, v.getVisitDate()).append(',');
+        appendCsv(sb, v.getStatus()).append(',');
+        appendCsv(sb, v.getSalesAmount()).append(',');
+        appendCsv(sb, v.getShelfShare()).append(',');
+        appendCsv(sb, v.getInteractionCount()).append(',');
+        appendCsv(sb, v.getStoreId()).append(',');
+        appendCsv(sb, v.getStoreName()).append(',');
+        appendCsv(sb, v.getStoreCity()).append(',');
+        appendCsv(sb, v.getUserId()).append(',');
+        appendCsv(sb, v.getUserName()).append(',');
+        appendCsv(sb, v.getUserRole()).append(',');
+        appendCsv(sb, v.getAssignmentId()).append(',');
+        appendCsv(sb, v.getPhotoUrl()).append(',');
+        appendCsv(sb, v.getComment()).append('\n');
+        return sb.toString();
+    }
+
+    /** RFC 4180 quoting: wrap in quotes when the value contains a separator, quote or line break. */
+    private StringBuilder appendCsv(StringBuilder sb, Object value) {
+        if (value == null) {
+            return sb;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            sb.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else {
+            sb.append(text);
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,179 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.InteractionDTO;
+import com.samsung.merchandising_api.dto.SelloutDTO;
+import com.samsung.merchandising_api.dto.VisitPageDTO;
+import com.samsung.merchandising_api.dto.VisitResponseDTO;
+import com.samsung.merchandising_api.dto.VisitSummaryDTO;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.InteractionRepository;
+import com.samsung.merchandising_api.repository.SelloutRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import com.samsung.merchandising_api.repository.VisitSpecifications;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Read-side queries over visits that must stay cheap regardless of table size.
+ */
+@Service
+public class VisitQueryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** Cursor used for the first page: sorts after every real (visit_date, id) pair. */
+    private static final LocalDateTime FIRST_PAGE_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    /** Upper bound on bind parameters per IN (...) list sent to Postgres. */
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private final VisitRepository visitRepository;
+    private final InteractionRepository interactionRepository;
+    private final SelloutRepository selloutRepository;
+
+    public VisitQueryService(VisitRepository visitRepository,
+                             InteractionRepository interactionRepository,
+                             SelloutRepository selloutRepository) {
+        this.visitRepository = visitRepository;
+        this.interactionRepository = interactionRepository;
+        this.selloutRepository = selloutRepository;
+    }
+
+    /**
+     * Attach interactions and sellout items to a list of visit DTOs.
+     * Issues one IN query per table (per chunk of ids) and groups rows in memory,
+     * instead of two queries per visit.
+     */
+    @Transactional(readOnly = true)
+    public List<VisitResponseDTO> enrichWithDetails(List<VisitResponseDTO> visits) {
+        List<Long> visitIds = visits.stream()
+                .map(VisitResponseDTO::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (visitIds.isEmpty()) {
+            return visits;
+        }
+
+        Map<Long, List<InteractionDTO>> interactionsByVisit = new HashMap<>();
+        Map<Long, List<SelloutDTO>> selloutsByVisit = new HashMap<>();
+        for (int i = 0; i < visitIds.size(); i += IN_CLAUSE_CHUNK) {
+            List<Long> chunk = visitIds.subList(i, Math.min(i + IN_CLAUSE_CHUNK, visitIds.size()));
+            for (InteractionDTO interaction : interactionRepository.findDtosByVisitIdIn(chunk)) {
+                interactionsByVisit.computeIfAbsent(interaction.getVisitId(), k -> new ArrayList<>()).add(interaction);
+            }
+            for (SelloutDTO sellout : selloutRepository.findDtosByVisitIdIn(chunk)) {
+                selloutsByVisit.computeIfAbsent(sellout.getVisitId(), k -> new ArrayList<>()).add(sellout);
+            }
+        }
+
+        for (VisitResponseDTO dto : visits) {
+            if (dto.getId() != null) {
+                dto.setInteractions(interactionsByVisit.getOrDefault(dto.getId(), new ArrayList<>()));
+                dto.setSelloutItems(selloutsByVisit.getOrDefault(dto.getId(), new ArrayList<>()));
+            }
+        }
+        return visits;
+    }
+
+    /**
+     * Fetch one page of visits ordered by (visitDate DESC, id DESC), starting after the given cursor.
+     * One extra row is read to know whether another page exists, so no COUNT(*) is ever issued.
+     */
+    @Transactional(readOnly = true)
+    public VisitPageDTO getVisitPage(String cursor, Integer size, Long userId, Long storeId,
+                                     VisitStatus status, LocalDateTime from, LocalDateTime to) {
+        int pageSize = clampPageSize(size);
+
+        LocalDateTime cursorDate = FIRST_PAGE_DATE;
+        Long cursorId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor decoded = decodeCursor(cursor);
+            cursorDate = decoded.visitDate();
+            cursorId = decoded.id();
+        }
+
+        // Only the filters given are rendered, so each combination gets a plan of its own.
+        // Unfiltered, the scan starts at the cursor in idx_visits_date_id and the page depth does not
+        // matter; with filters, rows after the cursor that do not match are read and skipped, so the
+        // cost follows their selectivity.
+        Specification<Visit> spec = Specification.where(VisitSpecifications.keysetAfter(cursorDate, cursorId))
+                .and(VisitSpecifications.byUser(userId))
+                .and(VisitSpecifications.byStore(storeId))
+                .and(VisitSpecifications.hasStatus(status))
+                .and(VisitSpecifications.visitDateFrom(from))
+                .and(VisitSpecifications.visitDateBefore(to));
+        List<VisitSummaryDTO> rows = visitRepository.findSummaryPage(spec, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<VisitSummaryDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            VisitSummaryDTO last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(last.getVisitDate(), last.getId());
+        }
+        return new VisitPageDTO(items, nextCursor, hasMore, items.size());
+    }
+
+    /**
+     * Multi-criteria search; every argument is optional. Returns a Slice (no COUNT(*)).
+     */
+    @Transactional(readOnly = true)
+    public Slice<VisitSummaryDTO> search(LocalDateTime from, LocalDateTime to, VisitStatus status,
+                                         String city, String region, String storeType,
+                                         Long userId, Long sfosId, int page, Integer size) {
+        Specification<Visit> spec = Specification.where(VisitSpecifications.visitDateFrom(from))
+                .and(VisitSpecifications.visitDateBefore(to))
+                .and(VisitSpecifications.hasStatus(status))
+                .and(VisitSpecifications.inCity(city))
+                .and(VisitSpecifications.inRegion(region))
+                .and(VisitSpecifications.hasStoreType(storeType != null ? storeType.toUpperCase() : null))
+                .and(VisitSpecifications.byUser(userId))
+                .and(VisitSpecifications.bySfosTeam(sfosId));
+        return visitRepository.searchSummaries(spec, PageRequest.of(Math.max(page, 0), clampPageSize(size)));
+    }
+
+    private int clampPageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    static String encodeCursor(LocalDateTime visitDate, Long id) {
+        String raw = visitDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    record Cursor(LocalDateTime visitDate, Long id) {
+    }
+}
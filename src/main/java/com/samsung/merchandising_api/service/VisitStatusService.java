@@ -0,0 +1,199 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.VisitBulkStatusDTO;
+import com.samsung.merchandising_api.dto.VisitBulkStatusResultDTO;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitStatusChangedEvent;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Supervisor validation / rejection of visits, one at a time or in bulk.
+ * A bulk change is one statement per chunk of ids, or one for a filter: a CTE locks the matched
+ * visits ({@code FOR UPDATE}) and reads their current status, the UPDATE moves those in an allowed
+ * source status, and the result joins the two. The matched / unchanged / illegal counts and what
+ * moved therefore come from the same rows: by ids, one snapshot per moved visit; by filter, which
+ * has no size limit, the count and sums of the moved rows per status they left. Both feed
+ * {@link VisitStatusChangedEvent}.
+ */
+@Service
+public class VisitStatusService {
+
+    public static final int MAX_IDS_PER_REQUEST = 10_000;
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    // Rows locked in id order, so two bulk changes over the same visits queue up instead of deadlocking
+    private static final String MATCH_AND_MOVE =
+            "WITH matched AS (SELECT id, status FROM visits WHERE %s ORDER BY id FOR UPDATE), " +
+            "moved AS (UPDATE visits v SET status = ?, updated_at = now() FROM matched m " +
+            "WHERE v.id = m.id AND m.status IN (%s) " +
+            "RETURNING v.id, v.user_id, v.store_id, v.visit_date, v.shelf_share, v.sales_amount) ";
+    // Every matched visit with its status before the UPDATE; the moved columns are null when it did not move
+    private static final String MATCHED_ROWS = "SELECT m.status AS before_status, mv.* " +
+            "FROM matched m LEFT JOIN moved mv ON mv.id = m.id";
+    // Same, aggregated per status before the UPDATE: [status, matched, moved, sum(sales), sum(shelf), count(shelf)]
+    private static final String MATCHED_TOTALS = "SELECT m.status, COUNT(*), COUNT(mv.id), " +
+            "COALESCE(SUM(mv.sales_amount), 0), COALESCE(SUM(mv.shelf_share), 0), COUNT(mv.shelf_share) " +
+            "FROM matched m LEFT JOIN moved mv ON mv.id = m.id GROUP BY m.status";
+
+    private final VisitRepository visitRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public VisitStatusService(VisitRepository visitRepository, ApplicationEventPublisher eventPublisher,
+                              JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.visitRepository = visitRepository;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Set the status of one visit (PATCH /api/visits/{id}/status); the change is published when the
+     * status actually changes. Empty when the visit does not exist.
+     */
+    @Transactional
+    public Optional<Visit> updateStatus(Long id, VisitStatus newStatus) {
+        Visit visit = visitRepository.findDetailedById(id).orElse(null);
+        if (visit == null) {
+            return Optional.empty();
+        }
+        VisitSnapshot before = VisitSnapshot.of(visit);
+        visit.setStatus(newStatus);
+        Visit updatedVisit = visitRepository.save(visit);
+        if (before.status() != newStatus) {
+            eventPublisher.publishEvent(new VisitStatusChangedEvent(List.of(before), newStatus));
+        }
+        return Optional.of(updatedVisit);
+    }
+
+    @Transactional
+    public VisitBulkStatusResultDTO updateStatuses(VisitBulkStatusDTO request) {
+        VisitStatus target = request.getStatus();
+        if (target == null) {
+            throw new IllegalArgumentException("Target status is required");
+        }
+        Set<VisitStatus> sources = target.allowedSources();
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("Bulk transition to " + target + " is not allowed (VALIDATED or REJECTED only)");
+        }
+
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byFilter = request.getFrom() != null || request.getTo() != null
+                || request.getStoreId() != null || request.getUserId() != null;
+        if (byIds == byFilter) {
+            throw new IllegalArgumentException("Provide either ids or at least one filter (from, to, storeId, userId)");
+        }
+
+        String sourcePlaceholders = placeholders(sources.size());
+        Map<VisitStatus, Long> before = new EnumMap<>(VisitStatus.class);
+        long updated = 0;
+        long requested = 0;
+        // The UPDATEs go through JDBC: pending entity changes go out first, managed visits are stale after
+        entityManager.flush();
+        if (byIds) {
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(request.getIds()));
+            ids.removeIf(Objects::isNull);
+            if (ids.size() > MAX_IDS_PER_REQUEST) {
+                throw new IllegalArgumentException("Too many ids (max " + MAX_IDS_PER_REQUEST + ")");
+            }
+            requested = ids.size();
+            List<VisitSnapshot> moved = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i += IN_CLAUSE_CHUNK) {
+                List<Long> chunk = ids.subList(i, Math.min(i + IN_CLAUSE_CHUNK, ids.size()));
+                String sql = String.format(MATCH_AND_MOVE, "id IN (" + placeholders(chunk.size()) + ")",
+                        sourcePlaceholders) + MATCHED_ROWS;
+                List<Object> args = new ArrayList<>(chunk);
+                args.add(target.name());
+                sources.forEach(source -> args.add(source.name()));
+                jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                    VisitStatus status = VisitStatus.valueOf(rs.getString("before_status"));
+                    before.merge(status, 1L, Long::sum);
+                    if (rs.getObject("id") != null) {
+                        moved.add(snapshotOf(rs, status));
+                    }
+                }, args.toArray());
+            }
+            updated = moved.size();
+            if (!moved.isEmpty()) {
+                eventPublisher.publishEvent(new VisitStatusChangedEvent(moved, target));
+            }
+        } else {
+            List<String> conditions = new ArrayList<>();
+            List<Object> args = new ArrayList<>();
+            if (request.getStoreId() != null) {
+                conditions.add("store_id = ?");
+                args.add(request.getStoreId());
+            }
+            if (request.getUserId() != null) {
+                conditions.add("user_id = ?");
+                args.add(request.getUserId());
+            }
+            if (request.getFrom() != null) {
+                conditions.add("visit_date >= ?");
+                args.add(Timestamp.valueOf(request.getFrom()));
+            }
+            if (request.getTo() != null) {
+                conditions.add("visit_date < ?");
+                args.add(Timestamp.valueOf(request.getTo()));
+            }
+            args.add(target.name());
+            sources.forEach(source -> args.add(source.name()));
+            String sql = String.format(MATCH_AND_MOVE, String.join(" AND ", conditions), sourcePlaceholders)
+                    + MATCHED_TOTALS;
+            List<VisitStatusChangedEvent.Moved> moved = new ArrayList<>();
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                VisitStatus status = VisitStatus.valueOf(rs.getString(1));
+                before.put(status, rs.getLong(2));
+                if (rs.getLong(3) > 0) {
+                    moved.add(new VisitStatusChangedEvent.Moved(status, rs.getLong(3), rs.getDouble(4),
+                            rs.getDouble(5), rs.getLong(6)));
+                }
+            }, args.toArray());
+            updated = moved.stream().mapToLong(VisitStatusChangedEvent.Moved::visits).sum();
+            if (!moved.isEmpty()) {
+                eventPublisher.publishEvent(new VisitStatusChangedEvent(List.of(), target, moved));
+            }
+        }
+        entityManager.clear();
+
+        long matched = before.values().stream().mapToLong(Long::longValue).sum();
+        long unchanged = before.getOrDefault(target, 0L);
+        long illegal = matched - unchanged - updated;
+        long notFound = byIds ? requested - matched : 0;
+        return new VisitBulkStatusResultDTO(target, matched, updated, unchanged, illegal, notFound);
+    }
+
+    /** A moved visit as it was before the UPDATE: in {@code source}, other columns unchanged by it. */
+    private static VisitSnapshot snapshotOf(ResultSet rs, VisitStatus source) throws SQLException {
+        Timestamp visitDate = rs.getTimestamp("visit_date");
+        return new VisitSnapshot(rs.getLong("id"), rs.getObject("user_id", Long.class),
+                rs.getObject("store_id", Long.class), visitDate != null ? visitDate.toLocalDateTime() : null,
+                source, rs.getObject("shelf_share", Double.class), rs.getObject("sales_amount", Double.class));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
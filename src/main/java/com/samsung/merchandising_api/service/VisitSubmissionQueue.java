@@ -0,0 +1,362 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.NearbyStoreDTO;
+import com.samsung.merchandising_api.dto.SubmissionStatusDTO;
+import com.samsung.merchandising_api.dto.VisitSubmitDTO;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.repository.AssignmentRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind pipeline for visit submissions.
+ * <p>
+ * {@link #enqueue} only does in-memory validation and returns a tracking id, so the request
+ * thread does not wait on the database; the one exception is an existence check the first time
+ * an assignmentId is seen, so a bad reference is a 400 rather than a FAILED status. A scheduled drainer takes up to {@code batchSize}
+ * submissions at a time and persists them in one transaction with JDBC batch inserts
+ * (one query per table to resolve users and stores). The queue is bounded: when it is full,
+ * enqueue refuses the submission and the caller answers 429 so the client retries later.
+ * If a whole batch fails, its submissions are retried one by one so a single bad row
+ * cannot take the others down with it.
+ * <p>
+ * A transient failure (no connection, deadlock, lock or statement timeout) says nothing about the
+ * rows: the batch is re-queued as it is, with an exponential backoff, up to {@code maxAttempts}
+ * persist attempts per submission. Only constraint and validation errors, or a submission out of
+ * attempts, end as FAILED.
+ */
+@Component
+public class VisitSubmissionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitSubmissionQueue.class);
+
+    private static final String INSERT_VISIT = "INSERT INTO visits (id, visit_date, status, shelf_share, comment, " +
+            "check_in_latitude, check_in_longitude, user_id, store_id, assignment_id, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] INSERT_VISIT_TYPES = {Types.BIGINT, Types.TIMESTAMP, Types.VARCHAR, Types.DOUBLE,
+            Types.VARCHAR, Types.DOUBLE, Types.DOUBLE, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP};
+    private static final String TOUCH_ASSIGNMENT =
+            "UPDATE assignments SET check_in_time = COALESCE(check_in_time, ?), check_out_time = ? WHERE id = ?";
+
+    /** Finished statuses are kept this long for clients polling the status endpoint. */
+    private static final long STATUS_RETENTION_MINUTES = 60;
+    private static final int MAX_KNOWN_ASSIGNMENTS = 100_000;
+
+    /** A submission waiting in the queue; the visit date is the time it was received, not persisted. */
+    private record Pending(String trackingId, VisitSubmitDTO dto, Long storeId, LocalDateTime receivedAt,
+                           int attempts) {
+
+        Pending retried() {
+            return new Pending(trackingId, dto, storeId, receivedAt, attempts + 1);
+        }
+    }
+
+    /** A submission waiting out its backoff after a transient failure. */
+    private record Retry(Pending pending, long dueAtNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private final BlockingQueue<Pending> queue;
+    /** Not bounded by the queue capacity: every entry was admitted once already. */
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final Map<String, SubmissionStatusDTO> statuses = new ConcurrentHashMap<>();
+    /** Assignments already checked at enqueue; cleared when it grows past MAX_KNOWN_ASSIGNMENTS. */
+    private final Set<Long> knownAssignments = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private final StoreSpatialIndex storeSpatialIndex;
+    private final VisitSubmissionService visitSubmissionService;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public VisitSubmissionQueue(@Value("${app.visits.async-queue.capacity:5000}") int capacity,
+                                @Value("${app.visits.async-queue.batch-size:200}") int batchSize,
+                                @Value("${app.visits.async-queue.max-attempts:5}") int maxAttempts,
+                                @Value("${app.visits.async-queue.retry-backoff-ms:500}") long retryBackoffMs,
+                                StoreSpatialIndex storeSpatialIndex,
+                                VisitSubmissionService visitSubmissionService,
+                                StoreRepository storeRepository,
+                                UserRepository userRepository,
+                                AssignmentRepository assignmentRepository,
+                                JdbcTemplate jdbcTemplate,
+                                SequenceIdAllocator idAllocator,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.storeSpatialIndex = storeSpatialIndex;
+        this.visitSubmissionService = visitSubmissionService;
+        this.storeRepository = storeRepository;
+        this.userRepository = userRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.idAllocator = idAllocator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Validate and queue a submission.
+     * @return the tracking id, or empty when the queue is full (backpressure)
+     * @throws IllegalArgumentException when the submission is invalid
+     */
+    public Optional<String> enqueue(VisitSubmitDTO dto) {
+        if (dto.getUserId() == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        Long storeId = dto.getStoreId();
+        if (storeId == null && dto.getCheckInLatitude() != null && dto.getCheckInLongitude() != null) {
+            NearbyStoreDTO nearest = storeSpatialIndex.findNearest(dto.getCheckInLatitude(), dto.getCheckInLongitude(),
+                    VisitSubmissionService.GEOFENCE_RADIUS_METERS);
+            storeId = nearest != null ? nearest.getStoreId() : null;
+        }
+        if (storeId == null) {
+            throw new IllegalArgumentException("storeId is required (or a check-in position inside a store geofence)");
+        }
+        if (dto.getAssignmentId() != null && !isKnownAssignment(dto.getAssignmentId())) {
+            throw new IllegalArgumentException("Unknown assignmentId: " + dto.getAssignmentId());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Pending pending = new Pending(UUID.randomUUID().toString(), dto, storeId, now, 0);
+        statuses.put(pending.trackingId(), new SubmissionStatusDTO(pending.trackingId(),
+                SubmissionStatusDTO.State.QUEUED, null, null, now, null));
+        if (!queue.offer(pending)) {
+            statuses.remove(pending.trackingId());
+            return Optional.empty();
+        }
+        return Optional.of(pending.trackingId());
+    }
+
+    private boolean isKnownAssignment(Long assignmentId) {
+        if (knownAssignments.contains(assignmentId)) {
+            return true;
+        }
+        if (!assignmentRepository.existsById(assignmentId)) {
+            return false;
+        }
+        if (knownAssignments.size() >= MAX_KNOWN_ASSIGNMENTS) {
+            knownAssignments.clear();
+        }
+        knownAssignments.add(assignmentId);
+        return true;
+    }
+
+    public Optional<SubmissionStatusDTO> getStatus(String trackingId) {
+        return Optional.ofNullable(statuses.get(trackingId));
+    }
+
+    public int getQueueDepth() {
+        return queue.size() + retries.size();
+    }
+
+    /** Retries whose backoff is over go first, then new submissions. */
+    @Scheduled(fixedDelayString = "${app.visits.async-queue.drain-interval-ms:200}")
+    public void drain() {
+        List<Retry> due = new ArrayList<>();
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            retries.drainTo(due, batchSize);
+            due.forEach(retry -> batch.add(retry.pending()));
+            due.clear();
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty()) {
+                break;
+            }
+            persistBatch(batch);
+            batch.clear();
+        }
+        evictExpiredStatuses();
+    }
+
+    @PreDestroy
+    public void drainOnShutdown() {
+        log.info("Draining {} queued visit submissions before shutdown", getQueueDepth());
+        drain();
+        // One last attempt for those still backing off; what fails now is lost with the process
+        List<Pending> waiting = new ArrayList<>();
+        for (Retry retry : retries.toArray(new Retry[0])) {
+            if (retries.remove(retry)) {
+                waiting.add(retry.pending());
+            }
+        }
+        for (int i = 0; i < waiting.size(); i += batchSize) {
+            persistBatch(waiting.subList(i, Math.min(i + batchSize, waiting.size())));
+        }
+        if (!retries.isEmpty()) {
+            log.error("{} visit submissions could not be persisted before shutdown", retries.size());
+        }
+    }
+
+    private void persistBatch(List<Pending> batch) {
+        try {
+            Map<String, Long> visitIds = transactionTemplate.execute(tx -> insert(batch));
+            LocalDateTime now = LocalDateTime.now();
+            for (Pending pending : batch) {
+                Long visitId = visitIds.get(pending.trackingId());
+                statuses.put(pending.trackingId(), visitId != null
+                        ? new SubmissionStatusDTO(pending.trackingId(), SubmissionStatusDTO.State.PERSISTED,
+                                visitId, null, pending.receivedAt(), now)
+                        : new SubmissionStatusDTO(pending.trackingId(), SubmissionStatusDTO.State.FAILED,
+                                null, "Unknown store or user", pending.receivedAt(), now));
+            }
+        } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+                retryLater(batch, ex);
+            } else if (batch.size() > 1) {
+                log.warn("Batch of {} visit submissions failed, retrying one by one: {}", batch.size(), ex.getMessage());
+                for (Pending pending : batch) {
+                    persistBatch(List.of(pending));
+                }
+            } else {
+                Pending pending = batch.get(0);
+                log.error("Visit submission {} could not be persisted", pending.trackingId(), ex);
+                statuses.put(pending.trackingId(), new SubmissionStatusDTO(pending.trackingId(),
+                        SubmissionStatusDTO.State.FAILED, null, ex.getMessage(), pending.receivedAt(), LocalDateTime.now()));
+            }
+        }
+    }
+
+    /** Re-queue the batch after its backoff; submissions out of attempts are FAILED. */
+    private void retryLater(List<Pending> batch, RuntimeException ex) {
+        int retried = 0;
+        for (Pending pending : batch) {
+            Pending next = pending.retried();
+            if (next.attempts() >= maxAttempts) {
+                log.error("Visit submission {} failed {} times, giving up", pending.trackingId(), next.attempts(), ex);
+                statuses.put(pending.trackingId(), new SubmissionStatusDTO(pending.trackingId(),
+                        SubmissionStatusDTO.State.FAILED, null, ex.getMessage(), pending.receivedAt(), LocalDateTime.now()));
+                continue;
+            }
+            long backoffMs = retryBackoffMs << Math.min(next.attempts() - 1, 10);
+            retries.add(new Retry(next, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs)));
+            // Still QUEUED for the client; the last error tells why it is late
+            statuses.put(pending.trackingId(), new SubmissionStatusDTO(pending.trackingId(),
+                    SubmissionStatusDTO.State.QUEUED, null, ex.getMessage(), pending.receivedAt(), null));
+            retried++;
+        }
+        if (retried > 0) {
+            log.warn("Transient failure persisting {} visit submissions, {} re-queued: {}",
+                    batch.size(), retried, ex.getMessage());
+        }
+    }
+
+    /** Failures that say nothing about the rows themselves, anywhere in the cause chain. */
+    static boolean isTransient(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof CannotGetJdbcConnectionException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Insert the batch; returns visit ids by tracking id (missing = invalid reference). */
+    private Map<String, Long> insert(List<Pending> batch) {
+        Set<Long> storeIds = batch.stream().map(Pending::storeId).collect(Collectors.toSet());
+        Set<Long> userIds = batch.stream().map(p -> p.dto().getUserId()).collect(Collectors.toSet());
+        Map<Long, Store> stores = storeRepository.findAllById(storeIds).stream()
+                .collect(Collectors.toMap(Store::getId, Function.identity()));
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Pending> valid = batch.stream()
+                .filter(p -> stores.containsKey(p.storeId()) && users.containsKey(p.dto().getUserId()))
+                .toList();
+        Map<String, Long> visitIds = new HashMap<>();
+        if (valid.isEmpty()) {
+            return visitIds;
+        }
+
+        List<Long> ids = idAllocator.nextIds("visits", valid.size());
+        List<Object[]> visitRows = new ArrayList<>(valid.size());
+        List<Object[]> assignmentRows = new ArrayList<>();
+        List<VisitSnapshot> snapshots = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            Pending pending = valid.get(i);
+            VisitSubmitDTO dto = pending.dto();
+            Store store = stores.get(pending.storeId());
+            Visit visit = visitSubmissionService.buildCompletedVisit(dto, store, users.get(dto.getUserId()), null,
+                    pending.receivedAt(), visitSubmissionService.checkGeofence(dto, store));
+            Timestamp visitDate = Timestamp.valueOf(visit.getVisitDate());
+            visitRows.add(new Object[]{ids.get(i), visitDate, visit.getStatus().name(), visit.getShelfShare(),
+                    visit.getComment(), visit.getCheckInLatitude(), visit.getCheckInLongitude(),
+                    dto.getUserId(), store.getId(), dto.getAssignmentId(), Timestamp.valueOf(LocalDateTime.now())});
+            if (dto.getAssignmentId() != null) {
+                assignmentRows.add(new Object[]{visitDate, visitDate, dto.getAssignmentId()});
+            }
+            visitIds.put(pending.trackingId(), ids.get(i));
+            snapshots.add(new VisitSnapshot(ids.get(i), dto.getUserId(), store.getId(), visit.getVisitDate(),
+                    visit.getStatus(), visit.getShelfShare(), null));
+        }
+        jdbcTemplate.batchUpdate(INSERT_VISIT, visitRows, INSERT_VISIT_TYPES);
+        if (!assignmentRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(TOUCH_ASSIGNMENT, assignmentRows,
+                    new int[]{Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT});
+        }
+        eventPublisher.publishEvent(new VisitSubmittedEvent(snapshots));
+        return visitIds;
+    }
+
+    private void evictExpiredStatuses() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(STATUS_RETENTION_MINUTES);
+        statuses.values().removeIf(s -> s.getProcessedAt() != null && s.getProcessedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,176 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.VisitRequest;
+import com.samsung.merchandising_api.dto.VisitSubmitDTO;
+import com.samsung.merchandising_api.event.VisitSnapshot;
+import com.samsung.merchandising_api.event.VisitSubmittedEvent;
+import com.samsung.merchandising_api.model.Assignment;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.AssignmentRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Builds COMPLETED visits from promoter submissions. Shared by every submission path
+ * (direct submit, offline sync) so geofencing and assignment check-in rules stay identical.
+ * The direct paths ({@link #submit}, {@link #create}) also save the visit and publish
+ * {@link VisitSubmittedEvent} in one transaction, so the KPI deltas commit with the visit.
+ */
+@Service
+public class VisitSubmissionService {
+
+    /** Maximum allowed distance (in meters) between check-in position and store coordinates */
+    public static final double GEOFENCE_RADIUS_METERS = 500.0;
+
+    /** Distance between the check-in position and the store; distanceMeters is null when unknown. */
+    public record GeofenceCheck(Double distanceMeters, boolean outside) {
+    }
+
+    /** A saved direct submission and the geofence check it was flagged with. */
+    public record Submission(Visit visit, GeofenceCheck geofence) {
+    }
+
+    private final VisitRepository visitRepository;
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final AssignmentRepository assignmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public VisitSubmissionService(VisitRepository visitRepository,
+                                  StoreRepository storeRepository,
+                                  UserRepository userRepository,
+                                  AssignmentRepository assignmentRepository,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.visitRepository = visitRepository;
+        this.storeRepository = storeRepository;
+        this.userRepository = userRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Save a COMPLETED visit for {@code storeId} (POST /api/visits/submit), linking and checking in the
+     * assignment if one is given. Empty when the store or the user does not exist.
+     */
+    @Transactional
+    public Optional<Submission> submit(VisitSubmitDTO dto, Long storeId) {
+        Store store = storeRepository.findById(storeId).orElse(null);
+        if (store == null) {
+            return Optional.empty();
+        }
+        User user = userRepository.findById(dto.getUserId()).orElse(null);
+        if (user == null) {
+            return Optional.empty();
+        }
+        GeofenceCheck geofence = checkGeofence(dto, store);
+
+        // Lier une affectation si fournie
+        Assignment assignment = null;
+        if (dto.getAssignmentId() != null) {
+            assignment = assignmentRepository.findById(dto.getAssignmentId()).orElse(null);
+        }
+        Visit visit = buildCompletedVisit(dto, store, user, assignment, LocalDateTime.now(), geofence);
+        if (assignment != null) {
+            assignmentRepository.save(assignment);
+        }
+
+        Visit savedVisit = visitRepository.save(visit);
+        eventPublisher.publishEvent(new VisitSubmittedEvent(List.of(VisitSnapshot.of(savedVisit))));
+        return Optional.of(new Submission(savedVisit, geofence));
+    }
+
+    /**
+     * Save a COMPLETED visit from a promoter report (POST /api/visits), dated now.
+     * @throws NoSuchElementException when the store or the user does not exist
+     */
+    @Transactional
+    public Visit create(VisitRequest request) {
+        // Trouver le Store (lance exception si non trouvé)
+        Store store = storeRepository.findById(request.getStoreId())
+                .orElseThrow(() -> new NoSuchElementException("Store non trouvé avec l'ID: " + request.getStoreId()));
+
+        // Trouver le User (lance exception si non trouvé)
+        User user = userRepository.findById(request.getUserId())
+                .orElseThrow(() -> new NoSuchElementException("User non trouvé avec l'ID: " + request.getUserId()));
+
+        // Créer la visite
+        Visit visit = new Visit();
+        visit.setStore(store);
+        visit.setUser(user);
+        visit.setVisitDate(LocalDateTime.now());
+        visit.setShelfShare(request.getShelfShare());
+        visit.setComment(request.getComment());
+        visit.setStatus(VisitStatus.COMPLETED);
+
+        // Lier une affectation si fournie
+        if (request.getAssignmentId() != null) {
+            assignmentRepository.findById(request.getAssignmentId()).ifPresent(visit::setAssignment);
+        }
+
+        visit.setCheckInLatitude(request.getCheckInLatitude());
+        visit.setCheckInLongitude(request.getCheckInLongitude());
+
+        Visit savedVisit = visitRepository.save(visit);
+        eventPublisher.publishEvent(new VisitSubmittedEvent(List.of(VisitSnapshot.of(savedVisit))));
+        return savedVisit;
+    }
+
+    public GeofenceCheck checkGeofence(VisitSubmitDTO dto, Store store) {
+        if (dto.getCheckInLatitude() == null || dto.getCheckInLongitude() == null
+                || store.getLatitude() == null || store.getLongitude() == null) {
+            return new GeofenceCheck(null, false);
+        }
+        double distance = StoreSpatialIndex.distanceMeters(
+                dto.getCheckInLatitude(), dto.getCheckInLongitude(),
+                store.getLatitude(), store.getLongitude());
+        return new GeofenceCheck(distance, distance > GEOFENCE_RADIUS_METERS);
+    }
+
+    /**
+     * Create (but do not save) a COMPLETED visit. We allow it even if outside the geofence, but flag it
+     * in the comment. When an assignment is given, its check-in / check-out times are updated too;
+     * the caller is responsible for persisting it.
+     */
+    public Visit buildCompletedVisit(VisitSubmitDTO dto, Store store, User user, Assignment assignment,
+                                     LocalDateTime visitDate, GeofenceCheck geofence) {
+        Visit visit = new Visit();
+        visit.setStore(store);
+        visit.setUser(user);
+        visit.setVisitDate(visitDate);
+        visit.setShelfShare(dto.getShelfShare());
+
+        // Append geofence warning to comment if outside radius
+        String finalComment = dto.getComment() != null ? dto.getComment() : "";
+        if (geofence.outside() && geofence.distanceMeters() != null) {
+            finalComment += String.format("\n⚠️ Géorepérage: %.0f m du magasin (rayon autorisé: %.0f m)",
+                    geofence.distanceMeters(), GEOFENCE_RADIUS_METERS);
+        }
+        visit.setComment(finalComment);
+        visit.setStatus(VisitStatus.COMPLETED);
+
+        if (assignment != null) {
+            visit.setAssignment(assignment);
+            // Marquer les temps de check-in / check-out sur l'affectation
+            if (assignment.getCheckInTime() == null) {
+                assignment.setCheckInTime(visitDate);
+            }
+            assignment.setCheckOutTime(visitDate);
+        }
+
+        visit.setCheckInLatitude(dto.getCheckInLatitude());
+        visit.setCheckInLongitude(dto.getCheckInLongitude());
+        return visit;
+    }
+}
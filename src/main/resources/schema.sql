@@ -42,7 +42,8 @@ CREATE TABLE visits (
     sales_amount DOUBLE PRECISION,
     shelf_share DOUBLE PRECISION,
     interaction_count INTEGER,
-    comment VARCHAR(500)
+    comment VARCHAR(500),
+    updated_at TIMESTAMP
 );
 
 -- Create products table
@@ -56,4 +57,28 @@ CREATE TABLE products (
     price DOUBLE PRECISION,
     image_url VARCHAR(500),
     stock INTEGER DEFAULT 0
-);
\ No newline at end of file
+);
+-- Keyset pagination of visits (ORDER BY visit_date DESC, id DESC)
+CREATE INDEX idx_visits_date_id ON visits (visit_date, id);
+
+-- Visit search (/api/visits/search): one composite index per leading filter, all ending in visit_date
+CREATE INDEX idx_visits_status_date ON visits (status, visit_date);
+CREATE INDEX idx_visits_store_date ON visits (store_id, visit_date);
+CREATE INDEX idx_visits_user_date ON visits (user_id, visit_date);
+CREATE INDEX idx_stores_city_type ON stores (city, type);
+CREATE INDEX idx_stores_type ON stores (type);
+CREATE INDEX idx_users_region ON users (region);
+CREATE INDEX idx_users_manager ON users (manager_id);
+
+-- Change marker read by the incremental KPI rollup job
+CREATE INDEX idx_visits_updated_at ON visits (updated_at);
+
+-- Child lines fetched and deleted by visit (sellouts / interactions are created by Hibernate)
+CREATE INDEX IF NOT EXISTS idx_sellouts_visit ON sellouts (visit_id);
+CREATE INDEX IF NOT EXISTS idx_interactions_visit ON interactions (visit_id);
+
+-- Pooled id sequences: Hibernate reserves 50 ids per nextval so inserts can be batched
+ALTER SEQUENCE stores_id_seq INCREMENT BY 50;
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE visits_id_seq INCREMENT BY 50;
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
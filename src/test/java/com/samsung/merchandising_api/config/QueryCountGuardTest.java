@@ -0,0 +1,200 @@
+package com.samsung.merchandising_api.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.samsung.merchandising_api.controller.VisitController;
+import com.samsung.merchandising_api.model.Assignment;
+import com.samsung.merchandising_api.model.Role;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.TaskItem;
+import com.samsung.merchandising_api.model.TaskItemStatus;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.AssignmentRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements run by the visit endpoints, JSON rendering included, for a few rows and for many:
+ * a fetch plan that misses an association the response reads shows up as a count that grows with
+ * the rows. Each endpoint runs inside a transaction, like a request with open-in-view, and every
+ * test rolls its data back.
+ */
+@SpringBootTest
+class QueryCountGuardTest {
+
+    private static final LocalDateTime FEW_DAY = LocalDateTime.of(2099, 1, 1, 10, 0);
+    private static final LocalDateTime MANY_DAY = LocalDateTime.of(2099, 1, 2, 10, 0);
+
+    @Autowired
+    private VisitController visitController;
+    @Autowired
+    private VisitRepository visitRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private StoreRepository storeRepository;
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${app.query-guard.max-statements-per-request:20}")
+    private int maxStatements;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void storeListingDoesNotGrowWithVisits() {
+        rolledBack(() -> {
+            List<Visit> few = seed(2, FEW_DAY, false);
+            List<Visit> many = seed(10, MANY_DAY, false);
+
+            int fewCount = statementsOf(() -> visitController.getVisitsByStore(few.get(0).getStore().getId()));
+            int manyCount = statementsOf(() -> visitController.getVisitsByStore(many.get(0).getStore().getId()));
+
+            assertThat(manyCount).isEqualTo(fewCount);
+            assertThat(manyCount).isLessThanOrEqualTo(maxStatements);
+        });
+    }
+
+    /** Same fetch plan as findByStatus, on a range that only holds the seeded visits. */
+    @Test
+    void dateRangeListingDoesNotGrowWithVisits() {
+        rolledBack(() -> {
+            seed(2, FEW_DAY, false);
+            seed(10, MANY_DAY, false);
+
+            int fewCount = statementsOf(() -> visitRepository.findByVisitDateBetween(FEW_DAY, FEW_DAY.plusHours(1)));
+            int manyCount = statementsOf(() -> visitRepository.findByVisitDateBetween(MANY_DAY, MANY_DAY.plusHours(1)));
+
+            assertThat(manyCount).isEqualTo(fewCount);
+            assertThat(manyCount).isLessThanOrEqualTo(maxStatements);
+        });
+    }
+
+    @Test
+    void detailRunsAFixedNumberOfStatements() {
+        rolledBack(() -> {
+            Visit visit = seed(1, FEW_DAY, false).get(0);
+
+            // Visit with user, store, assignment and task statuses, then the user's subordinates and the tasks
+            int count = statementsOf(() -> visitController.getVisitById(visit.getId()).getBody());
+
+            assertThat(count).isLessThanOrEqualTo(3);
+        });
+    }
+
+    @Test
+    void responseDtoListingDoesNotGrowWithVisits() {
+        rolledBack(() -> {
+            List<Visit> few = seed(2, FEW_DAY, true);
+            List<Visit> many = seed(10, MANY_DAY, true);
+
+            int fewCount = statementsOf(() -> visitController.getVisitsByUser(few.get(0).getUser().getId()));
+            int manyCount = statementsOf(() -> visitController.getVisitsByUser(many.get(0).getUser().getId()));
+
+            assertThat(manyCount).isEqualTo(fewCount);
+            assertThat(manyCount).isLessThanOrEqualTo(maxStatements);
+        });
+    }
+
+    /**
+     * Statements run by {@code endpoint} and the serialization of its result, read from
+     * {@link QueryCountGuard#currentCount()} as the request filter would. Starts from an empty
+     * persistence context so nothing is served from the first-level cache.
+     */
+    private int statementsOf(Supplier<Object> endpoint) {
+        entityManager.flush();
+        entityManager.clear();
+        QueryCountGuard.startCounting();
+        try {
+            objectMapper.writeValueAsString(endpoint.get());
+            return QueryCountGuard.currentCount();
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            QueryCountGuard.stopCounting();
+        }
+    }
+
+    /** {@code count} REJECTED visits of one new store on {@code day}, each with an assignment of two tasks. */
+    private List<Visit> seed(int count, LocalDateTime day, boolean onePromoter) {
+        Store store = new Store();
+        store.setName("Store " + UUID.randomUUID());
+        store.setType("OR");
+        store.setCity("Casablanca");
+        store.setLatitude(33.57);
+        store.setLongitude(-7.59);
+        storeRepository.save(store);
+
+        User promoter = null;
+        List<Visit> visits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (promoter == null || !onePromoter) {
+                promoter = new User();
+                promoter.setFullName("Promoter " + i);
+                promoter.setEmail(UUID.randomUUID() + "@test.local");
+                promoter.setPassword("x");
+                promoter.setRole(Role.PROMOTER);
+                promoter.setRegion("Casablanca");
+                userRepository.save(promoter);
+            }
+
+            Assignment assignment = new Assignment();
+            assignment.setDate(day.toLocalDate());
+            assignment.setUser(promoter);
+            assignment.setStore(store);
+            for (String description : List.of("Facing", "PLV")) {
+                TaskItem task = new TaskItem();
+                task.setDescription(description);
+                task.setAssignment(assignment);
+                assignment.getTasks().add(task);
+            }
+            assignmentRepository.save(assignment);
+
+            Visit visit = new Visit();
+            visit.setVisitDate(day);
+            visit.setStatus(VisitStatus.REJECTED);
+            visit.setUser(promoter);
+            visit.setStore(store);
+            visit.setAssignment(assignment);
+            visit.setTaskStatuses(new ArrayList<>(List.of(TaskItemStatus.DONE, TaskItemStatus.TODO)));
+            visits.add(visitRepository.save(visit));
+        }
+        return visits;
+    }
+
+    private void rolledBack(Runnable test) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            tx.setRollbackOnly();
+            test.run();
+        });
+    }
+}
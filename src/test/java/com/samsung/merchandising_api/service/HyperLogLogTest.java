@@ -0,0 +1,136 @@
+package com.samsung.merchandising_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+    }
+
+    @Test
+    void smallCardinalitiesAreAlmostExact() {
+        HyperLogLog hll = new HyperLogLog();
+        for (long id = 1; id <= 100; id++) {
+            hll.add(id);
+            hll.add(id);
+        }
+
+        assertThat(hll.estimate()).isBetween(95L, 105L);
+    }
+
+    @Test
+    void estimatesStayWithinThreeStandardErrors() {
+        // Sequential ids (database keys) and random ones must both spread over the registers
+        Random random = new Random(42);
+        for (int cardinality : new int[]{1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sequential = new HyperLogLog();
+            HyperLogLog randomIds = new HyperLogLog();
+            for (long id = 1; id <= cardinality; id++) {
+                sequential.add(id);
+                randomIds.add(random.nextLong());
+            }
+            double bound = 3 * HyperLogLog.RELATIVE_STANDARD_ERROR * cardinality;
+
+            assertThat((double) sequential.estimate()).isBetween(cardinality - bound, cardinality + bound);
+            assertThat((double) randomIds.estimate()).isBetween(cardinality - bound, cardinality + bound);
+        }
+    }
+
+    @Test
+    void averageErrorMatchesTheStandardError() {
+        Random random = new Random(7);
+        int runs = 50;
+        int cardinality = 50_000;
+        double squaredErrors = 0;
+        for (int run = 0; run < runs; run++) {
+            HyperLogLog hll = new HyperLogLog();
+            for (int n = 0; n < cardinality; n++) {
+                hll.add(random.nextLong());
+            }
+            double error = (hll.estimate() - cardinality) / (double) cardinality;
+            squaredErrors += error * error;
+        }
+
+        assertThat(Math.sqrt(squaredErrors / runs)).isLessThan(1.5 * HyperLogLog.RELATIVE_STANDARD_ERROR);
+    }
+
+    @Test
+    void mergeEqualsASketchOfTheUnion() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        HyperLogLog week = new HyperLogLog();
+        for (long id = 1; id <= 30_000; id++) {
+            monday.add(id);
+            week.add(id);
+        }
+        for (long id = 20_001; id <= 50_000; id++) {
+            tuesday.add(id);
+            week.add(id);
+        }
+
+        HyperLogLog merged = new HyperLogLog().merge(monday).merge(tuesday);
+
+        assertThat(merged.toBytes()).isEqualTo(week.toBytes());
+        double bound = 3 * HyperLogLog.RELATIVE_STANDARD_ERROR * 50_000;
+        assertThat((double) merged.estimate()).isBetween(50_000 - bound, 50_000 + bound);
+    }
+
+    @Test
+    void mergeIsIdempotentAndOrderIndependent() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (long id = 0; id < 5_000; id++) {
+            a.add(id * 3);
+            b.add(id * 5);
+        }
+
+        byte[] ab = new HyperLogLog().merge(a).merge(b).toBytes();
+        byte[] ba = new HyperLogLog().merge(b).merge(a).toBytes();
+        // A retried flush merges the same pending sketch twice
+        byte[] twice = new HyperLogLog().merge(a).merge(b).merge(a).merge(b).toBytes();
+
+        assertThat(ba).isEqualTo(ab);
+        assertThat(twice).isEqualTo(ab);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog hll = new HyperLogLog();
+        for (long id = 1; id <= 12_345; id++) {
+            hll.add(id);
+        }
+
+        byte[] bytes = hll.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes.length).isEqualTo(HyperLogLog.REGISTERS);
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(hll.estimate());
+    }
+
+    @Test
+    void bytesAreCopies() {
+        HyperLogLog hll = new HyperLogLog();
+        byte[] bytes = hll.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        bytes[0] = 10;
+        hll.add(1);
+
+        assertThat(restored.estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(hll.toBytes()).estimate()).isEqualTo(1L);
+    }
+
+    @Test
+    void wrongRegisterCountIsRejected() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[16])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
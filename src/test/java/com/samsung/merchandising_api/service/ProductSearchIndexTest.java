@@ -0,0 +1,299 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.ProductCatalogDeltaDTO;
+import com.samsung.merchandising_api.dto.ProductDTO;
+import com.samsung.merchandising_api.dto.ProductSearchResultDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductSearchIndexTest {
+
+    private long version;
+
+    @Test
+    void tokensAreLowerCasedStrippedOfAccentsAndSplitOnSeparators() {
+        assertThat(ProductSearchIndex.tokensOf("Réfrigérateur Side-by-Side  SM_A546B"))
+                .containsExactly("refrigerateur", "side", "by", "sm", "a546b");
+        assertThat(ProductSearchIndex.tokensOf("Crème")).containsExactly("creme");
+        assertThat(ProductSearchIndex.tokensOf(" -- ")).isEmpty();
+        assertThat(ProductSearchIndex.tokensOf(null)).isEmpty();
+    }
+
+    @Test
+    void queryWithoutLetterOrDigitIsRejected() {
+        ProductSearchIndex index = build(product(1, "Galaxy A54", "SM-A546B", "Smartphones"));
+
+        assertThatThrownBy(() -> index.search("--", null, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void exactSkuComesFirstWithOrWithoutSeparators() {
+        ProductSearchIndex index = build(
+                product(1, "SM A546B protective case", "CASE-1", "Accessoires"),
+                product(2, "Galaxy A54", "SM-A546B", "Smartphones"));
+
+        assertThat(ids(index.search("SM-A546B", null, 10))).containsExactly(2L, 1L);
+        assertThat(ids(index.search("sma546b", null, 10))).containsExactly(2L);
+    }
+
+    @Test
+    void namePrefixBeatsSkuAndSubCategoryPrefixWhichBeatSubstring() {
+        ProductSearchIndex index = build(
+                product(1, "Bespoke Jet", "VS20", "Aspirateurs"),
+                product(2, "Soundbar", "JET-1", "Audio"),
+                product(3, "Lave-linge", "WW90", "Jetable"),
+                product(4, "EcoBubble Projet", "WW80", "Lave-linge"),
+                product(5, "Galaxy A54", "SM-A546B", "Smartphones"));
+
+        assertThat(ids(index.search("jet", null, 10))).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void shorterNamesRankFirstAmongEqualScores() {
+        ProductSearchIndex index = build(
+                product(1, "Galaxy S24 Ultra Titanium", "SM-S928B", "Smartphones"),
+                product(2, "Galaxy S24", "SM-S921B", "Smartphones"),
+                product(3, "Galaxy S24 Plus", "SM-S926B", "Smartphones"));
+
+        assertThat(ids(index.search("galaxy s24", null, 10))).containsExactly(2L, 3L, 1L);
+        assertThat(ids(index.search("galaxy s24", null, 2))).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void everyTokenMustMatch() {
+        ProductSearchIndex index = build(
+                product(1, "Galaxy A54", "SM-A546B", "Smartphones"),
+                product(2, "Galaxy Tab S9", "SM-X710", "Tablettes"));
+
+        assertThat(ids(index.search("galaxy tab", null, 10))).containsExactly(2L);
+        assertThat(ids(index.search("galaxy fridge", null, 10))).isEmpty();
+        assertThat(ids(index.search("ga ta", null, 10))).containsExactly(2L);
+    }
+
+    @Test
+    void substringNeedsThreeCharactersAndIsConfirmedOnTheText() {
+        ProductSearchIndex index = build(
+                product(1, "EcoBubble", "WW90T", "Lave-linge"),
+                // Every trigram of "bubble" but not the word itself
+                product(2, "Bub Bbl Ble Ubb", "WW80T", "Lave-linge"));
+
+        assertThat(ids(index.search("bubble", null, 10))).containsExactly(1L);
+        assertThat(ids(index.search("ob", null, 10))).isEmpty();
+    }
+
+    @Test
+    void typeFilterKeepsOnlyTheGivenTypes() {
+        ProductSearchIndex index = build(
+                product(1, "Galaxy A54", "SM-A546B", "Smartphones", "BROWN_GOODS"),
+                product(2, "Galaxy Fridge", "RF-1", "Réfrigérateurs", "WHITE_GOODS"));
+
+        assertThat(ids(index.search("galaxy", Set.of("WHITE_GOODS"), 10))).containsExactly(2L);
+        assertThatThrownBy(() -> index.search("galaxy", Set.of("PINK_GOODS"), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void incrementalDeltaAddsUpdatesAndRemovesProducts() {
+        ProductSearchIndex index = build(
+                product(1, "Galaxy A54", "SM-A546B", "Smartphones"),
+                product(2, "Galaxy A34", "SM-A346B", "Smartphones"),
+                product(3, "Neo QLED 55", "QE55", "TV"));
+
+        apply(index, List.of(
+                product(1, "Galaxy A55", "SM-A556B", "Smartphones"),
+                product(4, "Galaxy A54 Enterprise", "SM-A546E", "Smartphones")), List.of(3L));
+
+        assertThat(ids(index.search("a54", null, 10))).containsExactly(4L);
+        assertThat(ids(index.search("a55", null, 10))).containsExactly(1L);
+        assertThat(ids(index.search("galaxy", null, 10))).containsExactlyInAnyOrder(1L, 2L, 4L).endsWith(4L);
+        assertThat(ids(index.search("qled", null, 10))).isEmpty();
+        assertThat(ids(index.search("SM-A546B", null, 10))).isEmpty();
+        assertThat(ids(index.search("SM-A556B", null, 10))).containsExactly(1L);
+    }
+
+    @Test
+    void skuHandedOverBetweenProductsInOneDeltaStaysFindable() {
+        ProductSearchIndex index = build(
+                product(1, "Galaxy A54", "SM-A546B", "Smartphones"),
+                product(2, "Galaxy A54 Demo", "DEMO-1", "Smartphones"));
+
+        apply(index, List.of(
+                product(2, "Galaxy A54 Demo", "SM-A546B", "Smartphones"),
+                product(1, "Galaxy A54", "SM-A546BZ", "Smartphones")), List.of());
+
+        assertThat(ids(index.search("SM-A546B", null, 10)).get(0)).isEqualTo(2L);
+        assertThat(ids(index.search("SM-A546BZ", null, 10)).get(0)).isEqualTo(1L);
+    }
+
+    @Test
+    void mergeRemovesThenAddsKeepingTheResultSorted() {
+        assertThat(ProductSearchIndex.merge(new int[]{1, 3, 5, 7}, new int[]{4, 9}, new int[]{3, 7}))
+                .containsExactly(1, 4, 5, 9);
+        assertThat(ProductSearchIndex.merge(new int[]{1, 3}, new int[]{3}, new int[]{3})).containsExactly(1, 3);
+        assertThat(ProductSearchIndex.merge(new int[]{2, 4}, new int[]{}, new int[]{2, 4})).isEmpty();
+        assertThat(ProductSearchIndex.merge(new int[]{}, new int[]{0, 6}, new int[]{})).containsExactly(0, 6);
+        assertThat(ProductSearchIndex.merge(new int[]{5}, new int[]{1, 5, 8}, new int[]{})).containsExactly(1, 5, 8);
+    }
+
+    @Test
+    void rankingMatchesABruteForceScanAfterBuildDeltasAndCompaction() {
+        Random random = new Random(7);
+        Map<Long, ProductDTO> catalog = new HashMap<>();
+        for (long id = 1; id <= 400; id++) {
+            catalog.put(id, randomProduct(id, random));
+        }
+        ProductSearchIndex index = build(catalog.values().toArray(new ProductDTO[0]));
+        assertSameRanking(index, catalog, random);
+
+        for (int d = 0; d < 30; d++) {
+            List<ProductDTO> changed = new ArrayList<>();
+            for (int n = 0; n < 60; n++) {
+                ProductDTO product = randomProduct(1 + random.nextInt(500), random);
+                changed.removeIf(p -> p.getId().equals(product.getId()));
+                changed.add(product);
+            }
+            List<Long> removed = new ArrayList<>();
+            for (int n = 0; n < 3; n++) {
+                long id = 1 + random.nextInt(500);
+                if (changed.stream().noneMatch(p -> p.getId() == id)) {
+                    removed.add(id);
+                }
+            }
+            apply(index, changed, removed);
+            changed.forEach(p -> catalog.put(p.getId(), p));
+            removed.forEach(catalog::remove);
+            assertSameRanking(index, catalog, random);
+        }
+
+        index.compactIfFragmented();
+        assertSameRanking(index, catalog, random);
+    }
+
+    // --- brute-force reference
+
+    private static final String[] WORDS = {"Galaxy", "Neo", "QLED", "Bespoke", "EcoBubble", "WindFree", "Ultra",
+            "Plus", "Noir", "Blanc", "Réfrigérateur", "Lave-linge", "Micro-ondes", "Frame", "Buds", "Tab"};
+    private static final String[] CATEGORIES = {"Smartphones", "TV", "Lave-linge", "Climatiseurs", "Audio"};
+
+    private static ProductDTO randomProduct(long id, Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int w = 0, words = 1 + random.nextInt(3); w < words; w++) {
+            name.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        name.append(' ').append(random.nextInt(100));
+        // Unique per id, so that an exact SKU designates one product
+        String sku = (char) ('A' + random.nextInt(4)) + "" + (char) ('A' + random.nextInt(4)) + "-" + id
+                + (char) ('A' + random.nextInt(26));
+        return product(id, name.toString(), sku, CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    }
+
+    private void assertSameRanking(ProductSearchIndex index, Map<Long, ProductDTO> catalog, Random random) {
+        List<String> queries = new ArrayList<>(List.of("g", "ga", "galaxy", "alaxy", "ubb", "bubble noir",
+                "ultra 1", "lave", "ondes", "aa", "ab-1", "zzz", "tv", "blanc plus", "refri"));
+        List<ProductDTO> products = new ArrayList<>(catalog.values());
+        for (int q = 0; q < 20; q++) {
+            ProductDTO product = products.get(random.nextInt(products.size()));
+            String[] tokens = ProductSearchIndex.tokensOf(product.getName() + " " + product.getSku());
+            String token = tokens[random.nextInt(tokens.length)];
+            queries.add(token.substring(random.nextInt(token.length())));
+            queries.add(product.getSku());
+        }
+        for (String query : queries) {
+            List<long[]> ranking = catalog.values().stream()
+                    .map(p -> new long[]{referenceScore(p, query), nameLength(p)})
+                    .filter(key -> key[0] > 0)
+                    .sorted(Comparator.<long[]>comparingLong(key -> -key[0]).thenComparingLong(key -> key[1]))
+                    .toList();
+            for (int limit : new int[]{5, 100}) {
+                List<ProductDTO> found = index.search(query, null, limit).getProducts();
+                List<long[]> expected = ranking.subList(0, Math.min(limit, ranking.size()));
+                List<long[]> actual = found.stream()
+                        .map(p -> new long[]{referenceScore(p, query), nameLength(p)})
+                        .toList();
+                assertThat(actual).as("query '%s', limit %d", query, limit)
+                        .usingElementComparator(Comparator.<long[]>comparingLong(key -> key[0])
+                                .thenComparingLong(key -> key[1]))
+                        .containsExactlyElementsOf(expected);
+                assertThat(found).allMatch(p -> catalog.get(p.getId()) == p, "current version of each product");
+            }
+        }
+    }
+
+    /** Ranking rules of the index, applied product by product. */
+    private static long referenceScore(ProductDTO product, String query) {
+        String[] tokens = ProductSearchIndex.tokensOf(query);
+        String[] skuTokens = ProductSearchIndex.tokensOf(product.getSku());
+        String compactSku = String.join("", skuTokens);
+        if (String.join("", tokens).equals(compactSku)) {
+            return Integer.MAX_VALUE;
+        }
+        List<String> sku = new ArrayList<>(List.of(skuTokens));
+        if (skuTokens.length > 1) {
+            sku.add(compactSku);
+        }
+        List<List<String>> fields = List.of(List.of(ProductSearchIndex.tokensOf(product.getName())), sku,
+                List.of(ProductSearchIndex.tokensOf(product.getSubCategory())));
+        int[] prefixScores = {40, 35, 30};
+        int[] substringScores = {20, 15, 10};
+        long total = 0;
+        for (String token : tokens) {
+            int score = 0;
+            for (int f = 0; f < 3 && score == 0; f++) {
+                if (fields.get(f).stream().anyMatch(t -> t.startsWith(token))) {
+                    score = prefixScores[f];
+                }
+            }
+            for (int f = 0; f < 3 && score == 0 && token.length() >= 3; f++) {
+                if (fields.get(f).stream().anyMatch(t -> t.contains(token))) {
+                    score = substringScores[f];
+                }
+            }
+            if (score == 0) {
+                return 0;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    private static long nameLength(ProductDTO product) {
+        return product.getName() == null ? 0 : product.getName().length();
+    }
+
+    // --- helpers
+
+    private ProductSearchIndex build(ProductDTO... products) {
+        ProductSearchIndex index = new ProductSearchIndex(null);
+        version = 1;
+        index.index(new ProductCatalogDeltaDTO(version, -1L, true, List.of(products), List.of()));
+        return index;
+    }
+
+    private void apply(ProductSearchIndex index, List<ProductDTO> changed, List<Long> removedIds) {
+        version++;
+        index.index(new ProductCatalogDeltaDTO(version, version - 1, false, changed, removedIds));
+    }
+
+    private static ProductDTO product(long id, String name, String sku, String subCategory) {
+        return product(id, name, sku, subCategory, "BROWN_GOODS");
+    }
+
+    private static ProductDTO product(long id, String name, String sku, String subCategory, String type) {
+        return new ProductDTO(id, name, null, sku, type, subCategory, 100.0, null, 0);
+    }
+
+    private static List<Long> ids(ProductSearchResultDTO result) {
+        return result.getProducts().stream().map(ProductDTO::getId).collect(Collectors.toList());
+    }
+}
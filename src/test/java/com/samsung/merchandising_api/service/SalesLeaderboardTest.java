@@ -0,0 +1,180 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.LeaderboardDTO;
+import com.samsung.merchandising_api.dto.LeaderboardEntryDTO;
+import com.samsung.merchandising_api.event.SelloutChange;
+import com.samsung.merchandising_api.event.SelloutChangedEvent;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.SelloutRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Warm-up reconciliation against a fake snapshot: {@link #snapshotIds} are the sellout lines the
+ * REPEATABLE READ snapshot sees, {@link #duringWarmUp} the changes delivered while it is read.
+ */
+class SalesLeaderboardTest {
+
+    private static final long PROMOTER = 1;
+    private static final long STORE = 10;
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private SalesLeaderboard leaderboard;
+    private Set<Long> snapshotIds;
+    private List<Object[]> snapshotTotals;
+    private List<SelloutChange> duringWarmUp;
+
+    @BeforeEach
+    void setUp() {
+        snapshotIds = Set.of();
+        snapshotTotals = List.of();
+        duringWarmUp = new ArrayList<>();
+        SelloutRepository sellouts = (SelloutRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{SelloutRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "sumByUserStoreAndDaySince" -> {
+                        // Commits that land while the totals are read are delivered during the warm-up
+                        leaderboard.onSelloutChanged(new SelloutChangedEvent(duringWarmUp));
+                        yield snapshotTotals;
+                    }
+                    case "findExistingIds" -> ((Collection<?>) args[0]).stream().filter(snapshotIds::contains).toList();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        UserRepository users = (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findAllById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return StreamSupport.stream(((Iterable<?>) args[0]).spliterator(), false).map(id -> {
+                        User user = new User();
+                        user.setId((Long) id);
+                        user.setFullName("Promoter " + id);
+                        return user;
+                    }).toList();
+                });
+        StoreRepository stores = (StoreRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{StoreRepository.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        leaderboard = new SalesLeaderboard(sellouts, users, stores, new NoOpTransactionManager());
+    }
+
+    @Test
+    void lineCommittedAfterTheSnapshotWithALowerIdIsCounted() {
+        // Line 90 was allocated before line 100 (pooled ids) but its import chunk committed after the snapshot
+        snapshotIds = Set.of(100L);
+        snapshotTotals = List.<Object[]>of(totals(200, 4));
+        duringWarmUp.add(added(90, 50, 1));
+
+        leaderboard.warmUp();
+
+        assertThat(promoterTotal()).isEqualTo(250.0);
+    }
+
+    @Test
+    void lineAlreadyInTheSnapshotIsNotCountedTwice() {
+        snapshotIds = Set.of(99L, 100L);
+        snapshotTotals = List.<Object[]>of(totals(200, 4));
+        duringWarmUp.add(added(99, 20, 1));
+
+        leaderboard.warmUp();
+
+        assertThat(promoterTotal()).isEqualTo(200.0);
+    }
+
+    @Test
+    void removalIsAppliedOnlyToACountedLine() {
+        // 95 is in the snapshot and deleted after it; 80 was deleted before it and is in no total
+        snapshotIds = Set.of(95L, 100L);
+        snapshotTotals = List.<Object[]>of(totals(200, 4));
+        duringWarmUp.add(removed(95, 30, 1));
+        duringWarmUp.add(removed(80, 40, 1));
+
+        leaderboard.warmUp();
+
+        assertThat(promoterTotal()).isEqualTo(170.0);
+    }
+
+    @Test
+    void lineAddedAndRemovedAfterTheSnapshotCancelsOut() {
+        snapshotIds = Set.of(100L);
+        snapshotTotals = List.<Object[]>of(totals(200, 4));
+        duringWarmUp.add(added(101, 60, 2));
+        duringWarmUp.add(removed(101, 60, 2));
+
+        leaderboard.warmUp();
+
+        assertThat(promoterTotal()).isEqualTo(200.0);
+    }
+
+    @Test
+    void changesBeforeTheWarmUpAreLeftToTheSnapshotAndLaterOnesAreApplied() {
+        snapshotIds = Set.of(100L);
+        snapshotTotals = List.<Object[]>of(totals(200, 4));
+        leaderboard.onSelloutChanged(new SelloutChangedEvent(List.of(added(100, 200, 4))));
+
+        leaderboard.warmUp();
+        leaderboard.onSelloutChanged(new SelloutChangedEvent(List.of(added(101, 25, 1))));
+
+        assertThat(promoterTotal()).isEqualTo(225.0);
+    }
+
+    private double promoterTotal() {
+        LeaderboardDTO board = leaderboard.getLeaderboard(SalesLeaderboard.Period.TODAY,
+                SalesLeaderboard.Dimension.PROMOTER, 10);
+        return board.getEntries().stream()
+                .filter(entry -> entry.getId() == PROMOTER)
+                .mapToDouble(LeaderboardEntryDTO::getSalesAmount)
+                .sum();
+    }
+
+    private static Object[] totals(double amount, long quantity) {
+        return new Object[]{PROMOTER, STORE, LocalDate.now(), amount, quantity};
+    }
+
+    private static SelloutChange added(long selloutId, double amount, int quantity) {
+        return new SelloutChange(selloutId, 1L, 1L, PROMOTER, STORE, VisitStatus.COMPLETED, NOW,
+                quantity, amount, NOW, false);
+    }
+
+    private static SelloutChange removed(long selloutId, double amount, int quantity) {
+        return new SelloutChange(selloutId, 1L, 1L, PROMOTER, STORE, VisitStatus.COMPLETED, NOW,
+                quantity, amount, NOW, true);
+    }
+
+    /** Runs the callbacks of a TransactionTemplate without any resource. */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
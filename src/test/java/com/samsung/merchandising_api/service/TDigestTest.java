@@ -0,0 +1,213 @@
+package com.samsung.merchandising_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TDigestTest {
+
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+    @Test
+    void emptyDigestHasNoQuantile() {
+        TDigest digest = new TDigest();
+
+        assertThat(digest.count()).isZero();
+        assertThat(Double.isNaN(digest.quantile(0.5))).isTrue();
+    }
+
+    @Test
+    void singleValueIsEveryQuantile() {
+        TDigest digest = new TDigest();
+        digest.add(42.5);
+
+        assertThat(digest.quantile(0)).isEqualTo(42.5);
+        assertThat(digest.quantile(0.5)).isEqualTo(42.5);
+        assertThat(digest.quantile(1)).isEqualTo(42.5);
+    }
+
+    @Test
+    void quantileOutsideZeroOneIsRejected() {
+        TDigest digest = new TDigest();
+        digest.add(1);
+
+        assertThatThrownBy(() -> digest.quantile(-0.1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> digest.quantile(1.1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void uniformShelfSharesMatchTheirPercentiles() {
+        Random random = new Random(1);
+        TDigest digest = new TDigest();
+        for (int n = 0; n < 100_000; n++) {
+            digest.add(random.nextDouble() * 100);
+        }
+
+        assertThat(digest.count()).isEqualTo(100_000L);
+        assertThat(digest.quantile(0.10)).isCloseTo(10, within(0.5));
+        assertThat(digest.quantile(0.50)).isCloseTo(50, within(0.5));
+        assertThat(digest.quantile(0.90)).isCloseTo(90, within(0.5));
+        assertThat(digest.quantile(0)).isGreaterThanOrEqualTo(0.0);
+        assertThat(digest.quantile(1)).isLessThan(100.0);
+    }
+
+    @Test
+    void normalValuesMatchTheirPercentiles() {
+        Random random = new Random(2);
+        TDigest digest = new TDigest();
+        for (int n = 0; n < 100_000; n++) {
+            digest.add(50 + 10 * random.nextGaussian());
+        }
+
+        // z(0.90) = 1.2816
+        assertThat(digest.quantile(0.10)).isCloseTo(50 - 12.816, within(0.3));
+        assertThat(digest.quantile(0.50)).isCloseTo(50, within(0.3));
+        assertThat(digest.quantile(0.90)).isCloseTo(50 + 12.816, within(0.3));
+    }
+
+    @Test
+    void skewedValuesStayWithinOnePercentOfRank() {
+        Random random = new Random(3);
+        // Exponential: long right tail; bimodal: most stores near 20 %, a few near 80 %
+        assertRankErrorBelow(() -> -Math.log(1 - random.nextDouble()) * 15, 0.01);
+        assertRankErrorBelow(() -> random.nextDouble() < 0.8 ? 20 + 3 * random.nextGaussian()
+                : 80 + 5 * random.nextGaussian(), 0.01);
+    }
+
+    @Test
+    void sizeGrowsOnlyWithTheLogarithmOfThePoints() {
+        int hundredThousand = centroids(100_000);
+        int million = centroids(1_000_000);
+
+        // The q(1 - q) bound keeps tail centroids small: about 150 more per factor 10, never one per point
+        assertThat(million).isLessThan(1_000);
+        assertThat(million - hundredThousand).isLessThan(200);
+    }
+
+    @Test
+    void mergedDigestsMatchOneDigestOfAllValues() {
+        Random random = new Random(5);
+        double[] values = new double[50_000];
+        TDigest whole = new TDigest();
+        TDigest[] days = new TDigest[10];
+        for (int d = 0; d < days.length; d++) {
+            days[d] = new TDigest();
+        }
+        for (int n = 0; n < values.length; n++) {
+            // One store per day with its own level, like per-day digests merged over a range
+            values[n] = (n % days.length) * 5 + 20 * random.nextDouble();
+            whole.add(values[n]);
+            days[n % days.length].add(values[n]);
+        }
+        TDigest merged = new TDigest();
+        for (TDigest day : days) {
+            merged.merge(day);
+        }
+        Arrays.sort(values);
+
+        assertThat(merged.count()).isEqualTo(whole.count());
+        assertThat(merged.quantile(0)).isEqualTo(values[0]);
+        assertThat(merged.quantile(1)).isEqualTo(values[values.length - 1]);
+        for (double q : QUANTILES) {
+            assertThat(Math.abs(rank(values, merged.quantile(q)) - q)).isLessThan(0.01);
+            assertThat(merged.quantile(q)).isCloseTo(whole.quantile(q), within(0.5));
+        }
+    }
+
+    @Test
+    void mergeLeavesTheSourceUsable() {
+        TDigest source = new TDigest();
+        for (int n = 1; n <= 1_000; n++) {
+            source.add(n);
+        }
+        double median = source.quantile(0.5);
+
+        new TDigest().merge(source);
+
+        assertThat(source.count()).isEqualTo(1_000L);
+        assertThat(source.quantile(0.5)).isEqualTo(median);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        Random random = new Random(6);
+        TDigest digest = new TDigest();
+        for (int n = 0; n < 20_000; n++) {
+            digest.add(random.nextGaussian() * 15 + 40);
+        }
+
+        byte[] bytes = digest.toBytes();
+        TDigest restored = TDigest.fromBytes(bytes);
+
+        assertThat(restored.count()).isEqualTo(digest.count());
+        assertThat(restored.quantile(0)).isEqualTo(digest.quantile(0));
+        assertThat(restored.quantile(1)).isEqualTo(digest.quantile(1));
+        for (double q : QUANTILES) {
+            assertThat(restored.quantile(q)).isCloseTo(digest.quantile(q), within(1e-9));
+        }
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    void emptyDigestBytesRoundTrip() {
+        TDigest restored = TDigest.fromBytes(new TDigest().toBytes());
+
+        assertThat(restored.count()).isZero();
+        assertThat(Double.isNaN(restored.quantile(0.5))).isTrue();
+    }
+
+    @Test
+    void restoredDigestKeepsAccumulating() {
+        TDigest stored = new TDigest();
+        for (int n = 0; n < 500; n++) {
+            stored.add(10);
+        }
+        TDigest restored = TDigest.fromBytes(stored.toBytes());
+        for (int n = 0; n < 500; n++) {
+            restored.add(90);
+        }
+
+        assertThat(restored.count()).isEqualTo(1_000L);
+        assertThat(restored.quantile(0.25)).isCloseTo(10, within(1e-9));
+        assertThat(restored.quantile(0.75)).isCloseTo(90, within(1e-9));
+    }
+
+    private static void assertRankErrorBelow(DoubleSupplier distribution, double maxRankError) {
+        double[] values = new double[100_000];
+        TDigest digest = new TDigest();
+        for (int n = 0; n < values.length; n++) {
+            values[n] = distribution.getAsDouble();
+            digest.add(values[n]);
+        }
+        Arrays.sort(values);
+        for (double q : QUANTILES) {
+            assertThat(Math.abs(rank(values, digest.quantile(q)) - q)).isLessThan(maxRankError);
+        }
+    }
+
+    /** Centroids kept for {@code points} uniform values, read from the serialized size. */
+    private static int centroids(int points) {
+        Random random = new Random(4);
+        TDigest digest = new TDigest();
+        for (int n = 0; n < points; n++) {
+            digest.add(random.nextDouble() * 100);
+        }
+        // 3 doubles + 1 int of header, then (mean, weight) per centroid
+        return (digest.toBytes().length - 3 * Double.BYTES - Integer.BYTES) / (2 * Double.BYTES);
+    }
+
+    /** Fraction of the sorted values strictly below {@code value}. */
+    private static double rank(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return (double) index / sorted.length;
+    }
+}
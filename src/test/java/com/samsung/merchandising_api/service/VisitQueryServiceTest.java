@@ -0,0 +1,165 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.VisitPageDTO;
+import com.samsung.merchandising_api.dto.VisitSummaryDTO;
+import com.samsung.merchandising_api.model.Role;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Keyset pages of {@link VisitQueryService#getVisitPage}: visits sharing a visit date must be split
+ * across pages by id, each returned exactly once. Every test rolls its data back.
+ */
+@SpringBootTest
+class VisitQueryServiceTest {
+
+    private static final LocalDateTime SAME_DAY = LocalDateTime.of(2099, 3, 1, 10, 0);
+    private static final LocalDateTime LATER_DAY = LocalDateTime.of(2099, 3, 2, 9, 30);
+
+    @Autowired
+    private VisitQueryService visitQueryService;
+    @Autowired
+    private VisitRepository visitRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private StoreRepository storeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void pagesSplitEqualVisitDatesById() {
+        rolledBack(() -> {
+            Store store = store();
+            List<Visit> visits = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                visits.add(visit(store, SAME_DAY, VisitStatus.COMPLETED));
+            }
+            visits.add(visit(store, LATER_DAY, VisitStatus.COMPLETED));
+            visits.add(visit(store, LATER_DAY, VisitStatus.COMPLETED));
+
+            List<Long> paged = pageAll(store.getId(), null, 2);
+
+            assertThat(paged).isEqualTo(newestFirst(visits));
+        });
+    }
+
+    @Test
+    void cursorPagesHonourOptionalFilters() {
+        rolledBack(() -> {
+            Store store = store();
+            List<Visit> completed = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                completed.add(visit(store, SAME_DAY, VisitStatus.COMPLETED));
+                visit(store, SAME_DAY, VisitStatus.REJECTED);
+            }
+
+            List<Long> paged = pageAll(store.getId(), VisitStatus.COMPLETED, 3);
+
+            assertThat(paged).isEqualTo(newestFirst(completed));
+        });
+    }
+
+    @Test
+    void cursorRoundTripsVisitDateAndId() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 17, 14, 3, 9, 123_000_000);
+
+        VisitQueryService.Cursor cursor = VisitQueryService.decodeCursor(VisitQueryService.encodeCursor(date, 42L));
+
+        assertThat(cursor.visitDate()).isEqualTo(date);
+        assertThat(cursor.id()).isEqualTo(42L);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> VisitQueryService.decodeCursor("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+        // Valid base64 without the id part
+        assertThatThrownBy(() -> VisitQueryService.decodeCursor(Base64.getUrlEncoder().encodeToString(
+                SAME_DAY.toString().getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** Ids of every page, following nextCursor until hasMore is false. */
+    private List<Long> pageAll(Long storeId, VisitStatus status, int size) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            VisitPageDTO page = visitQueryService.getVisitPage(cursor, size, null, storeId, status, null, null);
+            assertThat(page.getItems().size()).isLessThanOrEqualTo(size);
+            page.getItems().stream().map(VisitSummaryDTO::getId).forEach(ids::add);
+            cursor = page.isHasMore() ? page.getNextCursor() : null;
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> newestFirst(List<Visit> visits) {
+        return visits.stream()
+                .sorted(Comparator.comparing(Visit::getVisitDate).thenComparing(Visit::getId).reversed())
+                .map(Visit::getId)
+                .toList();
+    }
+
+    private Store store() {
+        Store store = new Store();
+        store.setName("Store " + UUID.randomUUID());
+        store.setType("OR");
+        store.setCity("Rabat");
+        store.setLatitude(34.02);
+        store.setLongitude(-6.83);
+        return storeRepository.save(store);
+    }
+
+    private Visit visit(Store store, LocalDateTime date, VisitStatus status) {
+        User promoter = new User();
+        promoter.setFullName("Promoter");
+        promoter.setEmail(UUID.randomUUID() + "@test.local");
+        promoter.setPassword("x");
+        promoter.setRole(Role.PROMOTER);
+        promoter.setRegion("Rabat");
+        userRepository.save(promoter);
+
+        Visit visit = new Visit();
+        visit.setVisitDate(date);
+        visit.setStatus(status);
+        visit.setUser(promoter);
+        visit.setStore(store);
+        return visitRepository.save(visit);
+    }
+
+    private void rolledBack(Runnable test) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            tx.setRollbackOnly();
+            test.run();
+        });
+    }
+}
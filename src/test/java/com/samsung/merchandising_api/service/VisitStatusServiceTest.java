@@ -0,0 +1,196 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.VisitBulkStatusDTO;
+import com.samsung.merchandising_api.dto.VisitBulkStatusResultDTO;
+import com.samsung.merchandising_api.model.Role;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.model.Visit;
+import com.samsung.merchandising_api.model.VisitStatus;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import com.samsung.merchandising_api.repository.VisitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bulk transition matrix of {@link VisitStatusService#updateStatuses}: for every target status, one
+ * visit in each current status, by ids and by filter. The counts returned must match what moved.
+ * Every test rolls its data back.
+ */
+@SpringBootTest
+class VisitStatusServiceTest {
+
+    private static final LocalDateTime VISIT_DATE = LocalDateTime.of(2099, 4, 1, 11, 0);
+
+    // Target -> current statuses it may be reached from; PLANNED and COMPLETED are not supervisor decisions
+    private static final Map<VisitStatus, Set<VisitStatus>> ALLOWED = Map.of(
+            VisitStatus.PLANNED, Set.of(),
+            VisitStatus.COMPLETED, Set.of(),
+            VisitStatus.VALIDATED, Set.of(VisitStatus.COMPLETED, VisitStatus.REJECTED),
+            VisitStatus.REJECTED, Set.of(VisitStatus.COMPLETED, VisitStatus.VALIDATED));
+
+    @Autowired
+    private VisitStatusService visitStatusService;
+    @Autowired
+    private VisitRepository visitRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private StoreRepository storeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void transitionMatrixMatchesAllowedSources() {
+        for (VisitStatus current : VisitStatus.values()) {
+            for (VisitStatus target : VisitStatus.values()) {
+                assertThat(current.canTransitionTo(target))
+                        .as(current + " -> " + target)
+                        .isEqualTo(ALLOWED.get(target).contains(current));
+            }
+        }
+    }
+
+    @Test
+    void bulkByIdsReportsEveryCellOfTheMatrix() {
+        for (VisitStatus target : VisitStatus.values()) {
+            rolledBack(() -> {
+                Map<VisitStatus, Visit> visits = oneVisitPerStatus(store());
+                VisitBulkStatusDTO request = request(target);
+                List<Long> ids = new ArrayList<>(visits.values().stream().map(Visit::getId).toList());
+                // Unknown id, and a duplicate that must be counted once
+                ids.add(Long.MAX_VALUE);
+                ids.add(ids.get(0));
+                request.setIds(ids);
+
+                if (ALLOWED.get(target).isEmpty()) {
+                    assertThatThrownBy(() -> visitStatusService.updateStatuses(request))
+                            .isInstanceOf(IllegalArgumentException.class);
+                    return;
+                }
+                VisitBulkStatusResultDTO result = visitStatusService.updateStatuses(request);
+
+                assertCounts(result, target);
+                assertThat(result.getNotFound()).isEqualTo(1);
+                assertFinalStatuses(visits, target);
+            });
+        }
+    }
+
+    @Test
+    void bulkByFilterReportsEveryCellOfTheMatrix() {
+        for (VisitStatus target : ALLOWED.keySet()) {
+            if (ALLOWED.get(target).isEmpty()) {
+                continue;
+            }
+            rolledBack(() -> {
+                Store store = store();
+                Map<VisitStatus, Visit> visits = oneVisitPerStatus(store);
+                // Same store, outside the date range: matched by nothing
+                Visit outside = visit(store, VISIT_DATE.plusDays(1), VisitStatus.COMPLETED);
+                VisitBulkStatusDTO request = request(target);
+                request.setStoreId(store.getId());
+                request.setFrom(VISIT_DATE);
+                request.setTo(VISIT_DATE.plusHours(1));
+
+                VisitBulkStatusResultDTO result = visitStatusService.updateStatuses(request);
+
+                assertCounts(result, target);
+                assertThat(result.getNotFound()).isZero();
+                assertFinalStatuses(visits, target);
+                assertThat(visitRepository.findById(outside.getId()).orElseThrow().getStatus())
+                        .isEqualTo(VisitStatus.COMPLETED);
+            });
+        }
+    }
+
+    /** One visit per status: each target sees one unchanged, two moved and one illegal visit. */
+    private static void assertCounts(VisitBulkStatusResultDTO result, VisitStatus target) {
+        long allowed = ALLOWED.get(target).size();
+        assertThat(result.getStatus()).isEqualTo(target);
+        assertThat(result.getMatched()).isEqualTo(VisitStatus.values().length);
+        assertThat(result.getUpdated()).isEqualTo(allowed);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(result.getIllegalTransition()).isEqualTo(VisitStatus.values().length - allowed - 1);
+    }
+
+    private void assertFinalStatuses(Map<VisitStatus, Visit> visits, VisitStatus target) {
+        visits.forEach((before, visit) -> {
+            VisitStatus expected = ALLOWED.get(target).contains(before) ? target : before;
+            assertThat(visitRepository.findById(visit.getId()).orElseThrow().getStatus())
+                    .as(before + " -> " + target)
+                    .isEqualTo(expected);
+        });
+    }
+
+    private static VisitBulkStatusDTO request(VisitStatus target) {
+        VisitBulkStatusDTO request = new VisitBulkStatusDTO();
+        request.setStatus(target);
+        return request;
+    }
+
+    private Map<VisitStatus, Visit> oneVisitPerStatus(Store store) {
+        Map<VisitStatus, Visit> visits = new EnumMap<>(VisitStatus.class);
+        for (VisitStatus status : VisitStatus.values()) {
+            visits.put(status, visit(store, VISIT_DATE, status));
+        }
+        return visits;
+    }
+
+    private Store store() {
+        Store store = new Store();
+        store.setName("Store " + UUID.randomUUID());
+        store.setType("OR");
+        store.setCity("Rabat");
+        store.setLatitude(34.02);
+        store.setLongitude(-6.83);
+        return storeRepository.save(store);
+    }
+
+    private Visit visit(Store store, LocalDateTime date, VisitStatus status) {
+        User promoter = new User();
+        promoter.setFullName("Promoter");
+        promoter.setEmail(UUID.randomUUID() + "@test.local");
+        promoter.setPassword("x");
+        promoter.setRole(Role.PROMOTER);
+        promoter.setRegion("Rabat");
+        userRepository.save(promoter);
+
+        Visit visit = new Visit();
+        visit.setVisitDate(date);
+        visit.setStatus(status);
+        visit.setUser(promoter);
+        visit.setStore(store);
+        return visitRepository.save(visit);
+    }
+
+    private void rolledBack(Runnable test) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            tx.setRollbackOnly();
+            test.run();
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.samsung.merchandising_api.service;
+
+import com.samsung.merchandising_api.dto.SubmissionStatusDTO;
+import com.samsung.merchandising_api.dto.VisitSubmitDTO;
+import com.samsung.merchandising_api.model.Store;
+import com.samsung.merchandising_api.model.User;
+import com.samsung.merchandising_api.repository.AssignmentRepository;
+import com.samsung.merchandising_api.repository.StoreRepository;
+import com.samsung.merchandising_api.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retry path of the write-behind queue: {@link #failures} are thrown by the next visit inserts,
+ * one per attempt. Backoff is zero, so one drain runs every attempt.
+ */
+class VisitSubmissionQueueTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Deque<RuntimeException> failures = new ArrayDeque<>();
+    private final List<Integer> insertAttempts = new ArrayList<>();
+    private VisitSubmissionQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+                insertAttempts.add(batchArgs.size());
+                if (!failures.isEmpty()) {
+                    throw failures.poll();
+                }
+                return new int[batchArgs.size()];
+            }
+        };
+        AtomicLong nextId = new AtomicLong(100);
+        SequenceIdAllocator idAllocator = new SequenceIdAllocator(jdbcTemplate) {
+            @Override
+            public List<Long> nextIds(String table, int count) {
+                List<Long> ids = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    ids.add(nextId.incrementAndGet());
+                }
+                return ids;
+            }
+        };
+        StoreRepository stores = repository(StoreRepository.class, id -> {
+            Store store = new Store();
+            store.setId(id);
+            return store;
+        });
+        UserRepository users = repository(UserRepository.class, id -> {
+            User user = new User();
+            user.setId(id);
+            return user;
+        });
+        AssignmentRepository assignments = repository(AssignmentRepository.class, id -> null);
+        queue = new VisitSubmissionQueue(100, 10, MAX_ATTEMPTS, 0, new StoreSpatialIndex(stores),
+                new VisitSubmissionService(null, stores, users, assignments, event -> {
+                }),
+                stores, users, assignments, jdbcTemplate, idAllocator, new NoOpTransactionManager(), event -> {
+                });
+    }
+
+    @Test
+    void transientFailureIsRetriedUntilPersisted() {
+        failures.add(new CannotGetJdbcConnectionException("Connection pool exhausted"));
+        failures.add(new DeadlockLoserDataAccessException("deadlock detected", null));
+        String first = queue.enqueue(submission(1L)).orElseThrow();
+        String second = queue.enqueue(submission(2L)).orElseThrow();
+
+        queue.drain();
+
+        // The whole batch is re-queued as it is, never split on a transient failure
+        assertThat(insertAttempts).isEqualTo(List.of(2, 2, 2));
+        assertThat(state(first)).isEqualTo(SubmissionStatusDTO.State.PERSISTED);
+        assertThat(state(second)).isEqualTo(SubmissionStatusDTO.State.PERSISTED);
+        assertThat(queue.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void transientFailureGivesUpAfterMaxAttempts() {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            failures.add(new CannotGetJdbcConnectionException("Connection refused"));
+        }
+        String trackingId = queue.enqueue(submission(1L)).orElseThrow();
+
+        queue.drain();
+
+        assertThat(insertAttempts.size()).isEqualTo(MAX_ATTEMPTS);
+        SubmissionStatusDTO status = queue.getStatus(trackingId).orElseThrow();
+        assertThat(status.getState()).isEqualTo(SubmissionStatusDTO.State.FAILED);
+        assertThat(status.getError()).isEqualTo("Connection refused");
+        assertThat(queue.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void constraintViolationFailsWithoutRetry() {
+        failures.add(new DataIntegrityViolationException("batch rejected"));
+        failures.add(new DataIntegrityViolationException("duplicate key"));
+        String bad = queue.enqueue(submission(1L)).orElseThrow();
+        String good = queue.enqueue(submission(2L)).orElseThrow();
+
+        queue.drain();
+
+        // Batch, then one by one: the first row fails for good, the second goes through
+        assertThat(insertAttempts).isEqualTo(List.of(2, 1, 1));
+        assertThat(state(bad)).isEqualTo(SubmissionStatusDTO.State.FAILED);
+        assertThat(state(good)).isEqualTo(SubmissionStatusDTO.State.PERSISTED);
+    }
+
+    @Test
+    void onlyTransientCausesAreRetried() {
+        assertThat(VisitSubmissionQueue.isTransient(new RuntimeException(
+                new CannotGetJdbcConnectionException("no connection")))).isTrue();
+        assertThat(VisitSubmissionQueue.isTransient(new DeadlockLoserDataAccessException("deadlock", null))).isTrue();
+        assertThat(VisitSubmissionQueue.isTransient(new DataIntegrityViolationException("fk"))).isFalse();
+        assertThat(VisitSubmissionQueue.isTransient(new IllegalArgumentException("bad"))).isFalse();
+    }
+
+    private SubmissionStatusDTO.State state(String trackingId) {
+        return queue.getStatus(trackingId).orElseThrow().getState();
+    }
+
+    private static VisitSubmitDTO submission(Long storeId) {
+        VisitSubmitDTO dto = new VisitSubmitDTO();
+        dto.setStoreId(storeId);
+        dto.setUserId(7L);
+        dto.setShelfShare(35.0);
+        return dto;
+    }
+
+    /** findAllById answers every id with {@code entity}; nothing else is expected. */
+    @SuppressWarnings("unchecked")
+    private static <R> R repository(Class<R> type, Function<Long, Object> entity) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (!method.getName().equals("findAllById")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return StreamSupport.stream(((Iterable<?>) args[0]).spliterator(), false)
+                    .map(id -> entity.apply((Long) id))
+                    .toList();
+        });
+    }
+
+    /** Runs the callbacks of a TransactionTemplate without any resource. */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}